@@ -0,0 +1,102 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLACK;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.GREEN;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.WHITE;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.YELLOW;
+
+/**
+ * The starting positions of the {@code ModelSixPlayerPlayOutTestComplex} games on the
+ * standard map
+ */
+public enum BenchmarkSetup {
+
+	CONSECUTIVE_DOUBLE_MOVES(Rounds.FULL, 45, tickets(4, 3, 3, 2, 5),
+			50, 94, 174, 117, 103),
+	DOUBLE_MOVES_AT_TIMES(Rounds.FULL, 51, tickets(4, 3, 3, 2, 5),
+			174, 26, 112, 29, 117),
+	OUT_OF_TICKETS(Rounds.FULL, 71, tickets(1, 1, 3, 2, 5),
+			117, 141, 91, 123, 50) {
+		@Override Map<Ticket, Integer> detectiveTickets(Colour colour) {
+			return colour == BLUE ? tickets(0, 0, 1, 0, 0) : super.detectiveTickets(colour);
+		}
+	},
+	NEVER_CAUGHT(Rounds.SHORT, 51, tickets(4, 3, 3, 2, 5),
+			112, 94, 50, 29, 117);
+
+	// an enum cannot refer to its own static fields from the arguments of its constants
+	private static final class Rounds {
+		static final List<Boolean> FULL = Arrays.asList(
+				false, false, true,
+				false, false, false, false, true,
+				false, false, false, false, true,
+				false, false, false, false, true,
+				false, false, false, false, false, true);
+		static final List<Boolean> SHORT = Arrays.asList(false, false, true);
+	}
+
+	private static final Colour[] DETECTIVES = {BLUE, GREEN, RED, WHITE, YELLOW};
+
+	final List<Boolean> rounds;
+	final int mrXLocation;
+	final Map<Ticket, Integer> mrXTickets;
+	final int[] detectiveLocations;
+
+	BenchmarkSetup(List<Boolean> rounds, int mrXLocation, Map<Ticket, Integer> mrXTickets,
+			int... detectiveLocations) {
+		this.rounds = rounds;
+		this.mrXLocation = mrXLocation;
+		this.mrXTickets = mrXTickets;
+		this.detectiveLocations = detectiveLocations;
+	}
+
+	static Map<Ticket, Integer> tickets(int taxi, int bus, int underground, int x2, int secret) {
+		Map<Ticket, Integer> tickets = new EnumMap<>(Ticket.class);
+		tickets.put(Ticket.TAXI, taxi);
+		tickets.put(Ticket.BUS, bus);
+		tickets.put(Ticket.UNDERGROUND, underground);
+		tickets.put(Ticket.DOUBLE, x2);
+		tickets.put(Ticket.SECRET, secret);
+		return tickets;
+	}
+
+	Map<Ticket, Integer> detectiveTickets(Colour colour) {
+		return tickets(11, 8, 4, 0, 0);
+	}
+
+	/**
+	 * @param graph the map; not null
+	 * @param player plays for every colour; not null
+	 * @return a new game from this setup
+	 */
+	ScotlandYardModel newGame(Graph<Integer, Transport> graph, Player player) {
+		PlayerConfiguration mrX = new PlayerConfiguration.Builder(BLACK)
+				.at(mrXLocation).with(mrXTickets).using(player).build();
+		PlayerConfiguration[] detectives = new PlayerConfiguration[DETECTIVES.length];
+		for (int i = 0; i < DETECTIVES.length; i++)
+			detectives[i] = new PlayerConfiguration.Builder(DETECTIVES[i])
+					.at(detectiveLocations[i]).with(detectiveTickets(DETECTIVES[i]))
+					.using(player).build();
+		return new ScotlandYardModel(rounds, graph, mrX, detectives[0],
+				Arrays.copyOfRange(detectives, 1, detectives.length));
+	}
+
+	/**
+	 * @return the nodes MrX cannot move to at the start, as a bitset of the given table
+	 */
+	long[] occupied(DestinationTable table) {
+		long[] occupied = table.newBitset();
+		for (int location : detectiveLocations) NodeBitset.add(occupied, location);
+		return occupied;
+	}
+
+}
@@ -0,0 +1,60 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.ac.bris.cs.gamekit.graph.ImmutableGraph;
+
+/**
+ * Benchmarks of loading the standard map, from text and from a {@link MapFile}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MapBenchmark {
+
+	private List<String> lines;
+	private Path file;
+
+	@Setup
+	public void setUp() throws IOException {
+		lines = StandardGame.readString("graph.txt");
+		file = Files.createTempFile("standard", ".map");
+		MapFile.write(StandardGame.standardGraph(), StandardGame.pngMapPositionEntries(),
+				null, file);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	@Benchmark
+	public ImmutableGraph<Integer, Transport> fromLines() {
+		return ScotlandYardGraphReader.fromLines(lines);
+	}
+
+	@Benchmark
+	public ImmutableGraph<Integer, Transport> mapFile() throws IOException {
+		return MapFile.open(file).graph();
+	}
+
+}
@@ -0,0 +1,131 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import uk.ac.bris.cs.gamekit.graph.ImmutableGraph;
+import uk.ac.bris.cs.scotlandyard.harness.ImmutableScotlandYardView;
+
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLACK;
+
+/**
+ * Benchmarks of the model's hot paths on the standard map, from the starting positions in
+ * {@link BenchmarkSetup}. Run with the gc profiler to see allocation rates, see the
+ * {@code benchmark} profile in the pom.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ModelBenchmark {
+
+	private static final Player FIRST_MOVE =
+			(view, location, moves, callback) -> callback.accept(moves.iterator().next());
+	private static final Player NO_MOVE = (view, location, moves, callback) -> {};
+
+	@Param
+	public BenchmarkSetup setup;
+
+	private ImmutableGraph<Integer, Transport> graph;
+	private DestinationTable table;
+	private long mrXTickets;
+	private long[] occupied;
+	private ScotlandYardModel model;
+	private ImmutableScotlandYardView snapshot;
+
+	/**
+	 * Moves played by {@link #accept(Moves)}, reported as a rate next to games per second
+	 */
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	@State(Scope.Thread)
+	public static class Moves {
+		public long moves;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			moves = 0;
+		}
+	}
+
+	@Setup
+	public void setUp() throws IOException {
+		graph = StandardGame.standardGraph();
+		table = CanonicalGraphs.destinations(CanonicalGraphs.of(graph));
+		mrXTickets = BitboardState.pack(setup.mrXTickets);
+		occupied = setup.occupied(table);
+		model = setup.newGame(graph, NO_MOVE);
+		model.startRotate();
+		snapshot = ImmutableScotlandYardView.snapshot(model);
+	}
+
+	@Benchmark
+	public ScotlandYardModel construct() {
+		return setup.newGame(graph, NO_MOVE);
+	}
+
+	// what ScotlandYardModel.genValidMoves builds for MrX, iterated as a player would
+	private void genValidMoves(boolean doubleMoves, Blackhole blackhole) {
+		for (Move move : new ValidMoveSet(table, BLACK, setup.mrXLocation, mrXTickets,
+				occupied.clone(), doubleMoves)) blackhole.consume(move);
+	}
+
+	@Benchmark
+	public void genValidMovesMrX(Blackhole blackhole) {
+		genValidMoves(true, blackhole);
+	}
+
+	@Benchmark
+	public void genValidMovesMrXWithoutDouble(Blackhole blackhole) {
+		genValidMoves(false, blackhole);
+	}
+
+	/**
+	 * Plays a whole game where everyone picks their first valid move, every move goes
+	 * through {@link ScotlandYardModel#accept(Move)}
+	 */
+	@Benchmark
+	public ScotlandYardModel accept(Moves moves) {
+		ScotlandYardModel game = setup.newGame(graph, FIRST_MOVE);
+		game.registerSpectator(new Spectator() {
+			@Override
+			public void onMoveMade(ScotlandYardView view, Move move) {
+				moves.moves++;
+			}
+		});
+		while (!game.isGameOver()) game.startRotate();
+		return game;
+	}
+
+	@Benchmark
+	public boolean isGameOver() {
+		return model.isGameOver();
+	}
+
+	@Benchmark
+	public ImmutableScotlandYardView snapshot() {
+		return ImmutableScotlandYardView.snapshot(model, null);
+	}
+
+	@Benchmark
+	public ImmutableScotlandYardView snapshotShared() {
+		return ImmutableScotlandYardView.snapshot(model, snapshot);
+	}
+
+}
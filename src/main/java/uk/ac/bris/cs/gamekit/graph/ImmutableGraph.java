@@ -7,7 +7,9 @@ import java.util.List;
 import java.util.Objects;
 
 /**
- * An immutable graph that does not allow adding new nodes or edges
+ * An immutable graph that does not allow adding new nodes or edges. A graph
+ * made with {@link #copyOf(Graph)} or {@link #freeze(UndirectedGraph)} owns
+ * its nodes and edges, so its node list and hash code are computed once.
  *
  * @param <V> the type for {@link Node} values
  * @param <D> the type for {@link Edge} data
@@ -19,9 +21,50 @@ public final class ImmutableGraph<V, D> extends AbstractGraph<V, D>
 
 	private static final long serialVersionUID = -54523690732483278L;
 	private final Graph<V, D> graph;
+	private final boolean frozen;
+	private final transient List<Node<V>> nodes;
+	private transient int hash;
 
 	public ImmutableGraph(Graph<V, D> graph) {
+		this(graph, false);
+	}
+
+	private ImmutableGraph(Graph<V, D> graph, boolean frozen) {
 		this.graph = Objects.requireNonNull(graph);
+		this.frozen = frozen;
+		this.nodes = frozen ? graph.getNodes() : null;
+	}
+
+	/**
+	 * Copies a graph into one that can never change, returning it as is if it
+	 * is already such a copy
+	 *
+	 * @param graph the graph to copy; not null
+	 * @return the frozen copy; never null
+	 */
+	public static <V, D> ImmutableGraph<V, D> copyOf(Graph<V, D> graph) {
+		if (graph instanceof ImmutableGraph && ((ImmutableGraph<V, D>) graph).frozen)
+			return (ImmutableGraph<V, D>) graph;
+		return new ImmutableGraph<>(new UndirectedGraph<>(graph), true);
+	}
+
+	/**
+	 * Freezes a graph without copying it, for a caller that has just built
+	 * the graph and hands it over
+	 *
+	 * @param graph the graph; not null, never changed afterwards
+	 * @return the frozen graph; never null
+	 */
+	public static <V, D> ImmutableGraph<V, D> freeze(UndirectedGraph<V, D> graph) {
+		return new ImmutableGraph<>(graph, true);
+	}
+
+	/**
+	 * @return whether this graph was made by {@link #copyOf(Graph)} or
+	 *         {@link #freeze(UndirectedGraph)}
+	 */
+	public boolean isFrozen() {
+		return frozen;
 	}
 
 	@Override
@@ -48,7 +91,9 @@ public final class ImmutableGraph<V, D> extends AbstractGraph<V, D>
 
 	@Override
 	public List<Node<V>> getNodes() {
-		return graph == null ? Collections.emptyList() : graph.getNodes();
+		if (graph == null) return Collections.emptyList();
+		// nodes is not restored by deserialization
+		return nodes != null ? nodes : graph.getNodes();
 	}
 
 	@Override
@@ -76,6 +121,22 @@ public final class ImmutableGraph<V, D> extends AbstractGraph<V, D>
 		return graph.size();
 	}
 
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (frozen && o instanceof ImmutableGraph && ((ImmutableGraph<?, ?>) o).frozen
+				&& hashCode() != o.hashCode()) return false;
+		return super.equals(o);
+	}
+
+	@Override
+	public int hashCode() {
+		if (!frozen) return super.hashCode();
+		int hash = this.hash;
+		if (hash == 0) this.hash = hash = super.hashCode();
+		return hash;
+	}
+
 	@Override
 	public String toString() {
 		return "ImmutableGraph{" + graph + '}';
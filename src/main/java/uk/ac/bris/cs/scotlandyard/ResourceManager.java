@@ -5,6 +5,7 @@ import static java.util.function.Function.identity;
 import static java.util.stream.Collectors.toMap;
 
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.stream.Stream;
@@ -14,8 +15,10 @@ import com.google.common.collect.ImmutableMap;
 import javafx.geometry.Point2D;
 import javafx.scene.image.Image;
 import uk.ac.bris.cs.gamekit.graph.Graph;
-import uk.ac.bris.cs.gamekit.graph.ImmutableGraph;
 import uk.ac.bris.cs.scotlandyard.ai.ResourceProvider;
+import uk.ac.bris.cs.scotlandyard.model.CanonicalGraphs;
+import uk.ac.bris.cs.scotlandyard.model.DistanceTable;
+import uk.ac.bris.cs.scotlandyard.model.MapFile;
 import uk.ac.bris.cs.scotlandyard.model.StandardGame;
 import uk.ac.bris.cs.scotlandyard.model.Ticket;
 import uk.ac.bris.cs.scotlandyard.model.Transport;
@@ -25,6 +28,19 @@ import uk.ac.bris.cs.scotlandyard.model.Transport;
  */
 public final class ResourceManager implements ResourceProvider {
 
+	/**
+	 * System property naming a file to cache the distance table in; when not
+	 * set the table is computed on every start
+	 */
+	public static final String DISTANCE_CACHE_PROPERTY = "scotlandyard.distanceCache";
+
+	/**
+	 * System property naming a binary map file to load the graph, coordinates
+	 * and distance table from, see {@link MapFile}; the file is written from
+	 * the bundled text map when it does not hold one
+	 */
+	public static final String MAP_FILE_PROPERTY = "scotlandyard.mapFile";
+
 	private final Point2D TOP_LEFT_OFFSET = new Point2D(60, 60);
 
 	public enum ImageResource {
@@ -35,6 +51,7 @@ public final class ResourceManager implements ResourceProvider {
 	private Map<Ticket, Image> ticketResources;
 	private Map<Integer, Entry<Integer, Integer>> mapCoordinates;
 	private Graph<Integer, Transport> graph;
+	private DistanceTable distances;
 
 	/**
 	 * Loads all resources into memory <br>
@@ -54,8 +71,22 @@ public final class ResourceManager implements ResourceProvider {
 				identity(),
 				ticket -> loadImage(format("/tickets/%s.png", ticket.name().toLowerCase())))));
 
-		mapCoordinates = ImmutableMap.copyOf(StandardGame.pngMapPositionEntries());
-		graph = new ImmutableGraph<>(StandardGame.standardGraph());
+		String mapFile = System.getProperty(MAP_FILE_PROPERTY);
+		if (mapFile != null) {
+			MapFile map = MapFile.standard(Paths.get(mapFile));
+			mapCoordinates = map.positions();
+			graph = map.graph();
+			if (map.distances().isPresent()) {
+				distances = map.distances().get();
+				return;
+			}
+		} else {
+			mapCoordinates = ImmutableMap.copyOf(StandardGame.pngMapPositionEntries());
+			graph = CanonicalGraphs.of(StandardGame.standardGraph());
+		}
+		String cache = System.getProperty(DISTANCE_CACHE_PROPERTY);
+		distances = cache == null ? DistanceTable.of(graph)
+				: DistanceTable.cached(graph, Paths.get(cache));
 	}
 
 	private static Image loadImage(String path) {
@@ -81,6 +112,11 @@ public final class ResourceManager implements ResourceProvider {
 		return graph;
 	}
 
+	@Override
+	public DistanceTable getDistances() {
+		return distances;
+	}
+
 	@Override
 	public Point2D coordinateAtNode(int node) {
 		Entry<Integer, Integer> entry = mapCoordinates.get(node);
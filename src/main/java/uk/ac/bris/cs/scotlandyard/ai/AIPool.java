@@ -3,32 +3,42 @@ package uk.ac.bris.cs.scotlandyard.ai;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Stream;
 
-import com.google.common.collect.ImmutableSet;
-
+import javafx.geometry.Point2D;
+import javafx.scene.image.Image;
 import javafx.scene.layout.Pane;
+import uk.ac.bris.cs.gamekit.graph.Graph;
 import uk.ac.bris.cs.scotlandyard.ResourceManager;
 import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.DistanceTable;
+import uk.ac.bris.cs.scotlandyard.model.GameEvents;
+import uk.ac.bris.cs.scotlandyard.model.GameEvents.PlayerThink;
 import uk.ac.bris.cs.scotlandyard.model.Move;
 import uk.ac.bris.cs.scotlandyard.model.Player;
 import uk.ac.bris.cs.scotlandyard.model.ScotlandYardGame;
 import uk.ac.bris.cs.scotlandyard.model.ScotlandYardView;
+import uk.ac.bris.cs.scotlandyard.model.Spectator;
+import uk.ac.bris.cs.scotlandyard.model.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
 
 /**
  * <b> Not a public API, do not use!</b> <br>
  * Internal pooling mechanism for AIs. AIs that are on the same group will share
- * a common GameFactory.
+ * a common GameFactory. Turns run as set by the {@link ExecutionMode},
+ * spectator callbacks on the game's thread, and the CPU time both use is
+ * added up per pool, i.e. per game.
  * 
  * @param <G> the group, must be stable with proper {@link Object#hashCode()}
  *        and {@link Object#equals(Object)}
@@ -38,10 +48,57 @@ public class AIPool<G> {
 	private final VisualiserSurface surface;
 	private final Consumer<Throwable> exceptionHandler;
 	private final Map<G, AIGroup> groups = new HashMap<>();
+	private final ExecutionMode mode;
+	private final DeadlineExecutor executor;
+	private final LongAdder cpuNanos = new LongAdder();
+	private volatile boolean unmeasured;
+	private Duration timeout;
+
+	private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
 
 	public AIPool(VisualiserSurface surface, Consumer<Throwable> exceptionHandler) {
+		this(surface, exceptionHandler, ExecutionMode.fromProperties());
+	}
+
+	public AIPool(VisualiserSurface surface, Consumer<Throwable> exceptionHandler,
+			ExecutionMode mode) {
 		this.surface = surface;
 		this.exceptionHandler = exceptionHandler;
+		this.mode = mode;
+		this.executor = new DeadlineExecutor(mode.executor());
+	}
+
+	public ExecutionMode mode() {
+		return mode;
+	}
+
+	/**
+	 * @return CPU time used by the turns and spectator callbacks of this
+	 *         pool's AIs so far, or empty if any of them ran on a thread the
+	 *         JVM cannot measure, such as a virtual thread. Only time spent
+	 *         before a turn's makeMove returns is counted.
+	 */
+	public Optional<Duration> cpuTime() {
+		return unmeasured ? Optional.empty() : Optional.of(Duration.ofNanos(cpuNanos.sum()));
+	}
+
+	private void timed(Runnable runnable) {
+		long start = threadCpuNanos();
+		try {
+			runnable.run();
+		} finally {
+			long end = threadCpuNanos();
+			if (start >= 0 && end >= 0) cpuNanos.add(end - start);
+			else unmeasured = true;
+		}
+	}
+
+	private static long threadCpuNanos() {
+		try {
+			return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : -1;
+		} catch (UnsupportedOperationException e) {
+			return -1;
+		}
 	}
 
 	public void addToGroup(G group, Colour colour, AI ai) {
@@ -49,9 +106,27 @@ public class AIPool<G> {
 	}
 
 	public void initialise(ResourceManager manager, ScotlandYardGame game) {
+		initialise((ResourceProvider) manager, game);
+	}
+
+	/**
+	 * Initialises the groups for a game where every move must be made within
+	 * the given timeout. Players are stopped and their best move so far is
+	 * played shortly before the timeout, see {@link DeadlineExecutor}.
+	 */
+	public void initialise(ResourceManager manager, ScotlandYardGame game, Duration timeout) {
+		initialise((ResourceProvider) manager, game, timeout);
+	}
+
+	void initialise(ResourceProvider provider, ScotlandYardGame game, Duration timeout) {
+		this.timeout = timeout;
+		initialise(new TimedResources(provider, timeout), game);
+	}
+
+	private void initialise(ResourceProvider provider, ScotlandYardGame game) {
 		groups.values().forEach(group -> {
 			try {
-				group.initialise(manager, game);
+				group.initialise(provider, game);
 			} catch (Exception e) {
 				e.printStackTrace();
 				exceptionHandler.accept(e);
@@ -99,14 +174,16 @@ public class AIPool<G> {
 			ais.put(colour, ai);
 		}
 
-		void initialise(ResourceManager manager, ScotlandYardGame game) throws Exception {
+		void initialise(ResourceProvider provider, ScotlandYardGame game) throws Exception {
 			factories = ais.values().stream()
 					.distinct()
 					.collect(toMap(Function.identity(), AI::instantiate));
 			factories.forEach((ai, factory) -> {
-				factory.createSpectators(game).forEach(game::registerSpectator);
+				factory.createSpectators(game).stream()
+						.map(AccountedSpectator::new)
+						.forEach(game::registerSpectator);
 				Pane pane = surface.onCreate(ai);
-				factory.ready(() -> pane, manager);
+				factory.ready(() -> pane, provider);
 			});
 		}
 
@@ -116,24 +193,128 @@ public class AIPool<G> {
 
 		public Optional<Player> createPlayer(Colour colour) {
 			if (!ais.containsKey(colour)) return Optional.empty();
+			Player player = factories.get(ais.get(colour)).createPlayer(colour);
 			return Optional.of(
 					new ThreadedPlayer(
-							factories.get(ais.get(colour)).createPlayer(colour),
-							exceptionHandler));
+							timed(player),
+							player.getClass(),
+							executor,
+							exceptionHandler,
+							timeout));
 		}
 
 	}
 
-	static class ThreadedPlayer implements Player {
+	private BudgetedPlayer timed(Player player) {
+		return (view, location, moves, budget, callback) -> timed(() -> {
+			if (player instanceof BudgetedPlayer)
+				((BudgetedPlayer) player).makeMove(view, location, moves, budget, callback);
+			else player.makeMove(view, location, moves, callback);
+		});
+	}
+
+	/**
+	 * Runs the callbacks of an AI's spectator on the game's thread and counts
+	 * their CPU time. Callbacks stay on the game's thread in every
+	 * {@link ExecutionMode}: the view they are given is only valid until they
+	 * return, so the game would have to wait for another thread anyway.
+	 */
+	private class AccountedSpectator implements Spectator {
+
+		private final Spectator delegate;
+
+		AccountedSpectator(Spectator delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public void onMoveMade(ScotlandYardView view, Move move) {
+			dispatch(() -> delegate.onMoveMade(view, move));
+		}
+
+		@Override
+		public void onRoundStarted(ScotlandYardView view, int round) {
+			dispatch(() -> delegate.onRoundStarted(view, round));
+		}
+
+		@Override
+		public void onRotationComplete(ScotlandYardView view) {
+			dispatch(() -> delegate.onRotationComplete(view));
+		}
+
+		@Override
+		public void onGameOver(ScotlandYardView view, Set<Colour> winningPlayers) {
+			dispatch(() -> delegate.onGameOver(view, winningPlayers));
+		}
+
+		private void dispatch(Runnable callback) {
+			timed(callback);
+		}
+	}
+
+	private static class TimedResources implements ResourceProvider {
+
+		private final ResourceProvider delegate;
+		private final Duration timeout;
 
-		final static ExecutorService service = Executors.newWorkStealingPool();
+		private TimedResources(ResourceProvider delegate, Duration timeout) {
+			this.delegate = delegate;
+			this.timeout = timeout;
+		}
+
+		@Override
+		public Image getMap() {
+			return delegate.getMap();
+		}
+
+		@Override
+		public Image getTicket(Ticket ticket) {
+			return delegate.getTicket(ticket);
+		}
+
+		@Override
+		public Graph<Integer, Transport> getGraph() {
+			return delegate.getGraph();
+		}
+
+		@Override
+		public DistanceTable getDistances() {
+			return delegate.getDistances();
+		}
+
+		@Override
+		public Optional<Duration> getMoveTimeout() {
+			return Optional.ofNullable(timeout);
+		}
+
+		@Override
+		public int getThreads() {
+			return delegate.getThreads();
+		}
+
+		@Override
+		public Point2D coordinateAtNode(int node) {
+			return delegate.coordinateAtNode(node);
+		}
+	}
+
+	static class ThreadedPlayer implements Player {
 
 		private final Player player;
+		// the AI's own player, player is a wrapper that times it
+		private final Class<?> playerClass;
+		private final DeadlineExecutor executor;
 		private final Consumer<Throwable> exceptionHandler;
+		private final Duration budget;
 
-		private ThreadedPlayer(Player player, Consumer<Throwable> exceptionHandler) {
+		private ThreadedPlayer(Player player, Class<?> playerClass, DeadlineExecutor executor,
+				Consumer<Throwable> exceptionHandler, Duration timeout) {
 			this.player = player;
+			this.playerClass = playerClass;
+			this.executor = executor;
 			this.exceptionHandler = exceptionHandler;
+			// leave a tenth of the timeout for the move to reach the game
+			this.budget = timeout == null ? null : timeout.multipliedBy(9).dividedBy(10);
 		}
 
 		@Override
@@ -141,14 +322,25 @@ public class AIPool<G> {
 				int location,
 				Set<Move> moves,
 				Consumer<Move> callback) {
-			service.submit((Callable<Void>) () -> {
+			String colour = view.getCurrentPlayer().name();
+			// only allocated while a recording wants it
+			PlayerThink think = GameEvents.isEnabled(PlayerThink.class) ? new PlayerThink() : null;
+			if (think != null) think.begin();
+			executor.makeMove(player, view, location, moves, budget).whenComplete((move, e) -> {
+				if (think != null) think.end();
+				if (think != null && think.shouldCommit()) {
+					think.player = colour;
+					think.playerClass = playerClass;
+					think.moveCount = moves.size();
+					think.commit();
+				}
 				try {
-					player.makeMove(view, location, ImmutableSet.copyOf(moves), callback);
-				} catch (Throwable e) {
-					e.printStackTrace();
-					exceptionHandler.accept(e);
+					if (e != null) throw e;
+					callback.accept(move);
+				} catch (Throwable t) {
+					t.printStackTrace();
+					exceptionHandler.accept(t);
 				}
-				return null;
 			});
 		}
 	}
@@ -0,0 +1,33 @@
+package uk.ac.bris.cs.scotlandyard.ai;
+
+import java.util.Set;
+import java.util.function.Consumer;
+
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardView;
+
+/**
+ * A {@link Player} that is told how long it may think. When run by a
+ * {@link DeadlineExecutor} the player is given the executor's
+ * {@link MoveBudget}, otherwise it gets an unbounded one.
+ */
+public interface BudgetedPlayer extends Player {
+
+	/**
+	 * Same as {@link Player#makeMove(ScotlandYardView, int, Set, Consumer)}
+	 * with a time budget
+	 *
+	 * @param budget the deadline and cancellation token of this move; never
+	 *        null
+	 */
+	void makeMove(ScotlandYardView view, int location, Set<Move> moves, MoveBudget budget,
+			Consumer<Move> callback);
+
+	@Override
+	default void makeMove(ScotlandYardView view, int location, Set<Move> moves,
+			Consumer<Move> callback) {
+		makeMove(view, location, moves, MoveBudget.unbounded(), callback);
+	}
+
+}
@@ -0,0 +1,144 @@
+package uk.ac.bris.cs.scotlandyard.ai;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import com.google.common.collect.ImmutableSet;
+
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardView;
+
+/**
+ * Runs player turns on a worker pool with a deadline. When the deadline
+ * passes before the player picks a move, the budget is cancelled, the
+ * player's thread is interrupted and the move last offered to the
+ * {@link MoveBudget} is played instead; if nothing was offered the first of
+ * the valid moves is played so the game always goes on.
+ * <br>
+ * Only the first move picked counts, a player calling back after the deadline
+ * is ignored.
+ */
+public final class DeadlineExecutor {
+
+	private static final ScheduledThreadPoolExecutor TIMER = new ScheduledThreadPoolExecutor(1,
+			runnable -> {
+				Thread thread = new Thread(runnable, "ai-deadline");
+				thread.setDaemon(true);
+				return thread;
+			});
+
+	static {
+		TIMER.setRemoveOnCancelPolicy(true);
+	}
+
+	private final ExecutorService workers;
+
+	/**
+	 * @param workers the pool players think on; not null
+	 */
+	public DeadlineExecutor(ExecutorService workers) {
+		this.workers = requireNonNull(workers);
+	}
+
+	/**
+	 * Asks a player for a move on a worker thread
+	 *
+	 * @param player the player; not null
+	 * @param view the game; not null
+	 * @param location the player's location
+	 * @param moves the valid moves; not null or empty
+	 * @param timeout time the player has, null for no deadline
+	 * @return a future completed with the move, or exceptionally with what the
+	 *         player threw before picking one; never null
+	 */
+	public CompletableFuture<Move> makeMove(Player player, ScotlandYardView view, int location,
+			Set<Move> moves, Duration timeout) {
+		requireNonNull(player);
+		requireNonNull(view);
+		if (requireNonNull(moves).isEmpty()) throw new IllegalArgumentException("No moves");
+		Set<Move> valid = ImmutableSet.copyOf(moves);
+		MoveBudget budget = timeout == null ? MoveBudget.unbounded() : MoveBudget.of(timeout);
+		CompletableFuture<Move> result = new CompletableFuture<>();
+		Turn turn = new Turn();
+		workers.execute(() -> {
+			turn.start();
+			try {
+				Consumer<Move> callback = move -> {
+					if (turn.decide()) result.complete(move);
+				};
+				if (player instanceof BudgetedPlayer)
+					((BudgetedPlayer) player).makeMove(view, location, valid, budget, callback);
+				else player.makeMove(view, location, valid, callback);
+			} catch (Throwable e) {
+				// ignored if a move was already played
+				if (turn.decide()) result.completeExceptionally(e);
+			} finally {
+				turn.finish();
+			}
+		});
+		if (timeout != null) {
+			ScheduledFuture<?> deadline = TIMER.schedule(() -> {
+				if (!turn.decide()) return;
+				Move move = budget.best().orElseGet(() -> valid.iterator().next());
+				budget.cancel();
+				turn.interrupt();
+				// the game goes on from the completion, keep it off the timer thread
+				try {
+					workers.execute(() -> result.complete(move));
+				} catch (RejectedExecutionException e) {
+					result.complete(move);
+				}
+			}, budget.remainingNanos(), TimeUnit.NANOSECONDS);
+			result.whenComplete((move, e) -> deadline.cancel(false));
+		}
+		result.whenComplete((move, e) -> budget.cancel());
+		return result;
+	}
+
+	/**
+	 * One player turn: which thread runs it, and whether its move is settled.
+	 * Pool threads are interrupted directly as not every pool's futures do so
+	 * on cancel, e.g. a {@link java.util.concurrent.ForkJoinPool}'s.
+	 */
+	private static final class Turn {
+
+		private final AtomicBoolean decided = new AtomicBoolean();
+		private Thread thread;
+		private boolean interrupted;
+
+		/**
+		 * @return true for the first caller only, whose move is played
+		 */
+		boolean decide() {
+			return decided.compareAndSet(false, true);
+		}
+
+		synchronized void start() {
+			thread = Thread.currentThread();
+			if (interrupted) thread.interrupt();
+		}
+
+		synchronized void interrupt() {
+			interrupted = true;
+			if (thread != null) thread.interrupt();
+		}
+
+		synchronized void finish() {
+			thread = null;
+			// the pool thread goes on to other work
+			if (interrupted) Thread.interrupted();
+		}
+	}
+
+}
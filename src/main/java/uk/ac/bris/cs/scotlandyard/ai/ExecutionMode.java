@@ -0,0 +1,99 @@
+package uk.ac.bris.cs.scotlandyard.ai;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * How an {@link AIPool} runs player turns. AI spectator callbacks always run
+ * on the game's thread, as the view they are given is only valid until they
+ * return.
+ * <br>
+ * The mode is picked with the {@value #PROPERTY} system property, either
+ * {@code pooled} (the default) or {@code virtual}.
+ */
+public enum ExecutionMode {
+
+	/**
+	 * Turns share one work-stealing pool sized to the number of processors
+	 */
+	POOLED,
+
+	/**
+	 * Every turn gets a thread of its own.
+	 * Virtual threads are used when the runtime has them (Java 21 and later),
+	 * their carrier parallelism can be set with {@value #CARRIERS_PROPERTY}
+	 * before the first one starts. Older runtimes fall back to short-lived
+	 * platform threads with small stacks, where carriers do not apply, so
+	 * blocking AIs never starve each other either way.
+	 */
+	VIRTUAL;
+
+	public static final String PROPERTY = "scotlandyard.ai.execution";
+	public static final String CARRIERS_PROPERTY = "scotlandyard.ai.carriers";
+
+	private static final String SCHEDULER_PARALLELISM = "jdk.virtualThreadScheduler.parallelism";
+	private static final long FALLBACK_STACK_SIZE = 256 * 1024;
+
+	/**
+	 * @return the mode named by {@value #PROPERTY}, {@link #POOLED} if unset
+	 * @throws IllegalArgumentException if the property names no mode
+	 */
+	public static ExecutionMode fromProperties() {
+		String mode = System.getProperty(PROPERTY);
+		return mode == null ? POOLED : valueOf(mode.trim().toUpperCase(Locale.ROOT));
+	}
+
+	/**
+	 * @return true if {@link #VIRTUAL} runs on virtual threads rather than the
+	 *         platform thread fallback
+	 */
+	public static boolean hasVirtualThreads() {
+		return Virtual.NATIVE;
+	}
+
+	/**
+	 * @return the shared executor turns of this mode run on; never null
+	 */
+	ExecutorService executor() {
+		return this == POOLED ? Pooled.SERVICE : Virtual.SERVICE;
+	}
+
+	private static final class Pooled {
+		static final ExecutorService SERVICE = Executors.newWorkStealingPool();
+	}
+
+	private static final class Virtual {
+		static final boolean NATIVE;
+		static final ExecutorService SERVICE;
+
+		static {
+			ExecutorService service;
+			try {
+				String carriers = System.getProperty(CARRIERS_PROPERTY);
+				if (carriers != null && System.getProperty(SCHEDULER_PARALLELISM) == null)
+					System.setProperty(SCHEDULER_PARALLELISM, carriers);
+				service = (ExecutorService) Executors.class
+						.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+			} catch (NoSuchMethodException | IllegalAccessException
+					| InvocationTargetException e) {
+				service = null;
+			}
+			NATIVE = service != null;
+			SERVICE = NATIVE ? service : fallback();
+		}
+
+		private static ExecutorService fallback() {
+			AtomicInteger threads = new AtomicInteger();
+			return Executors.newCachedThreadPool(runnable -> {
+				Thread thread = new Thread(null, runnable,
+						"ai-turn-" + threads.incrementAndGet(), FALLBACK_STACK_SIZE);
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+
+}
@@ -0,0 +1,100 @@
+package uk.ac.bris.cs.scotlandyard.ai;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import uk.ac.bris.cs.scotlandyard.model.Move;
+
+/**
+ * The time a {@link BudgetedPlayer} has to pick a move, and a cancellation
+ * token for it. Players should check {@link #remainingNanos()} or
+ * {@link #isCancelled()} while thinking and {@link #offer(Move)} the best move
+ * found so far; when the deadline passes the {@link DeadlineExecutor} plays
+ * the last offered move and interrupts the player's thread.
+ * <br>
+ * All methods are thread safe.
+ */
+public final class MoveBudget {
+
+	private static final long UNBOUNDED = Long.MAX_VALUE;
+
+	private final long deadline;
+	private volatile boolean cancelled;
+	private volatile Move best;
+
+	private MoveBudget(long deadline) {
+		this.deadline = deadline;
+	}
+
+	/**
+	 * @return a budget without a deadline, only cancelled explicitly
+	 */
+	public static MoveBudget unbounded() {
+		return new MoveBudget(UNBOUNDED);
+	}
+
+	/**
+	 * @param timeout time from now until the deadline; not null or negative
+	 * @return a budget ending after the timeout
+	 */
+	public static MoveBudget of(Duration timeout) {
+		if (requireNonNull(timeout).isNegative()) throw new IllegalArgumentException("Negative timeout");
+		return new MoveBudget(System.nanoTime() + timeout.toNanos());
+	}
+
+	/**
+	 * @return true if the budget has a deadline
+	 */
+	public boolean isBounded() {
+		return deadline != UNBOUNDED;
+	}
+
+	/**
+	 * @return nanoseconds until the deadline, zero once it has passed and
+	 *         {@link Long#MAX_VALUE} if the budget is unbounded
+	 */
+	public long remainingNanos() {
+		if (!isBounded()) return Long.MAX_VALUE;
+		return Math.max(0, deadline - System.nanoTime());
+	}
+
+	/**
+	 * @return true if the move is no longer wanted, either because the
+	 *         deadline passed or a move was already played
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Cancels the budget, a player still thinking should stop
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * Records the best move found so far, replacing any earlier offer
+	 *
+	 * @param move the move; not null, must be one of the valid moves
+	 */
+	public void offer(Move move) {
+		best = requireNonNull(move);
+	}
+
+	/**
+	 * @return the last offered move
+	 */
+	public Optional<Move> best() {
+		return Optional.ofNullable(best);
+	}
+
+	@Override
+	public String toString() {
+		return "MoveBudget{remaining=" + (isBounded() ? remainingNanos() + "ns" : "unbounded")
+				+ ", cancelled=" + cancelled + ", best=" + best + '}';
+	}
+
+}
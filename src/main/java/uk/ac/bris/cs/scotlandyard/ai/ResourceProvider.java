@@ -1,8 +1,12 @@
 package uk.ac.bris.cs.scotlandyard.ai;
 
+import java.time.Duration;
+import java.util.Optional;
+
 import javafx.geometry.Point2D;
 import javafx.scene.image.Image;
 import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.scotlandyard.model.DistanceTable;
 import uk.ac.bris.cs.scotlandyard.model.Ticket;
 import uk.ac.bris.cs.scotlandyard.model.Transport;
 
@@ -36,6 +40,38 @@ public interface ResourceProvider {
 	 */
 	Graph<Integer, Transport> getGraph();
 
+	/**
+	 * Retrieves the shortest path table of the graph returned by
+	 * {@link #getGraph()}. Providers should compute it once and share it
+	 * between calls, the default computes it every time
+	 *
+	 * @return the distance table; never null
+	 */
+	default DistanceTable getDistances() {
+		return DistanceTable.of(getGraph());
+	}
+
+	/**
+	 * Retrieves the time each player is given to make a move in the current
+	 * game, AIs that search for as long as they are allowed to should stay
+	 * well within it
+	 *
+	 * @return the timeout or empty if the game has none
+	 */
+	default Optional<Duration> getMoveTimeout() {
+		return Optional.empty();
+	}
+
+	/**
+	 * Retrieves the number of threads an AI may search on, games played side
+	 * by side share the processors between them
+	 *
+	 * @return at least one, defaults to the number of processors
+	 */
+	default int getThreads() {
+		return Runtime.getRuntime().availableProcessors();
+	}
+
 	/**
 	 * Retrieves the position of node on the map image retrieved using
 	 * {@link #getMap()}
@@ -0,0 +1,148 @@
+package uk.ac.bris.cs.scotlandyard.ai.alphabeta;
+
+import static java.util.Collections.singletonList;
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import uk.ac.bris.cs.gamekit.graph.Node;
+import uk.ac.bris.cs.scotlandyard.ai.BudgetedPlayer;
+import uk.ac.bris.cs.scotlandyard.ai.ManagedAI;
+import uk.ac.bris.cs.scotlandyard.ai.MoveBudget;
+import uk.ac.bris.cs.scotlandyard.ai.PlayerFactory;
+import uk.ac.bris.cs.scotlandyard.ai.ResourceProvider;
+import uk.ac.bris.cs.scotlandyard.ai.Visualiser;
+import uk.ac.bris.cs.scotlandyard.model.CanonicalGraphs;
+import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.DestinationTable;
+import uk.ac.bris.cs.scotlandyard.model.DistanceTable;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.MrXTracker;
+import uk.ac.bris.cs.scotlandyard.model.PackedMove;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardView;
+import uk.ac.bris.cs.scotlandyard.model.SearchState;
+import uk.ac.bris.cs.scotlandyard.model.Spectator;
+
+/**
+ * A built in AI that picks moves with {@link AlphaBetaSearcher}. MrX searches
+ * from where he is; detectives search from up to {@value #SAMPLES} of the
+ * locations a {@link MrXTracker} says MrX could be at, splitting the budget
+ * between them, and play the move chosen most often.
+ * <br>
+ * Each move is searched for three quarters of the game's move timeout, or for
+ * {@value #BUDGET_PROPERTY} milliseconds (one second by default) when the game
+ * has none, and never beyond the {@link MoveBudget} a
+ * {@link uk.ac.bris.cs.scotlandyard.ai.DeadlineExecutor} gives it. Every player
+ * of the same factory shares one transposition table.
+ */
+@ManagedAI("Alpha-Beta")
+public class AlphaBetaAI implements PlayerFactory {
+
+	public static final String BUDGET_PROPERTY = "scotlandyard.alphabeta.budget";
+
+	static final int SAMPLES = 5;
+	private static final int MAX_DEPTH = 48;
+	private static final int TABLE_CAPACITY = 1 << 18;
+
+	private Duration budget;
+	private final TranspositionTable table = new TranspositionTable(TABLE_CAPACITY);
+	private DistanceTable distances;
+	private DestinationTable destinations;
+	private MrXTracker tracker;
+
+	public AlphaBetaAI() {
+		this(Duration.ofMillis(Long.getLong(BUDGET_PROPERTY, 1000)));
+	}
+
+	/**
+	 * @param budget time to think per move when the game has no timeout; not
+	 *        null
+	 */
+	public AlphaBetaAI(Duration budget) {
+		this.budget = requireNonNull(budget);
+		if (budget.isNegative()) throw new IllegalArgumentException("Negative budget");
+	}
+
+	@Override
+	public void ready(Visualiser visualiser, ResourceProvider provider) {
+		distances = provider.getDistances();
+		provider.getMoveTimeout().ifPresent(timeout -> budget = timeout.multipliedBy(3).dividedBy(4));
+	}
+
+	@Override
+	public List<Spectator> createSpectators(ScotlandYardView view) {
+		tracker = new MrXTracker(view.getGraph());
+		return singletonList(tracker);
+	}
+
+	@Override
+	public synchronized Player createPlayer(Colour colour) {
+		requireNonNull(colour);
+		return new BudgetedPlayer() {
+			private AlphaBetaSearcher searcher;
+
+			@Override
+			public void makeMove(ScotlandYardView view, int location, Set<Move> moves,
+					MoveBudget budget, Consumer<Move> callback) {
+				if (searcher == null) searcher = new AlphaBetaSearcher(distances(view), table);
+				Move move = search(searcher, view, location, moves, budget);
+				if (!budget.isCancelled()) callback.accept(move);
+			}
+		};
+	}
+
+	private synchronized DistanceTable distances(ScotlandYardView view) {
+		// not readied by a pool, e.g. in a headless game
+		if (distances == null) distances = DistanceTable.of(view.getGraph());
+		if (destinations == null) destinations = CanonicalGraphs.destinations(view.getGraph());
+		return distances;
+	}
+
+	private Move search(AlphaBetaSearcher searcher, ScotlandYardView view, int location,
+			Set<Move> moves, MoveBudget budget) {
+		List<Move> candidates = new ArrayList<>(moves);
+		int[] packed = new int[candidates.size()];
+		for (int i = 0; i < packed.length; i++) packed[i] = PackedMove.of(candidates.get(i));
+		if (packed.length == 1) return candidates.get(0);
+		int[] samples = view.getCurrentPlayer().isMrX() ? new int[]{location} : samples(view);
+		long budgetNanos = Math.min(this.budget.toNanos(), budget.remainingNanos()) / samples.length;
+		int[] votes = new int[packed.length];
+		int best = 0;
+		for (int sample : samples) {
+			if (budget.isCancelled()) break;
+			SearchState state = new SearchState(view, sample, destinations,
+					SearchState.DEFAULT_CAPACITY);
+			int move = searcher.search(state, packed, budgetNanos, MAX_DEPTH).move();
+			for (int i = 0; i < packed.length; i++) {
+				if (packed[i] == move) votes[i]++;
+				if (votes[i] > votes[best]) best = i;
+			}
+			budget.offer(candidates.get(best));
+		}
+		return candidates.get(best);
+	}
+
+	private int[] samples(ScotlandYardView view) {
+		int[] candidates;
+		if (tracker != null && tracker.size() > 0) {
+			candidates = new int[tracker.size()];
+			int i = 0;
+			for (int node = tracker.next(0); node >= 0; node = tracker.next(node + 1))
+				candidates[i++] = node;
+		} else {
+			// not tracking this game, MrX could be anywhere
+			candidates = view.getGraph().getNodes().stream().mapToInt(Node::value).toArray();
+		}
+		if (candidates.length <= SAMPLES) return candidates;
+		// spread evenly over the candidates so the choice is repeatable
+		int[] samples = new int[SAMPLES];
+		for (int i = 0; i < SAMPLES; i++) samples[i] = candidates[i * candidates.length / SAMPLES];
+		return samples;
+	}
+
+}
@@ -0,0 +1,267 @@
+package uk.ac.bris.cs.scotlandyard.ai.alphabeta;
+
+import static java.util.Objects.requireNonNull;
+import static uk.ac.bris.cs.scotlandyard.ai.alphabeta.TranspositionTable.EXACT;
+import static uk.ac.bris.cs.scotlandyard.ai.alphabeta.TranspositionTable.LOWER;
+import static uk.ac.bris.cs.scotlandyard.ai.alphabeta.TranspositionTable.MISSING;
+import static uk.ac.bris.cs.scotlandyard.ai.alphabeta.TranspositionTable.UPPER;
+
+import uk.ac.bris.cs.scotlandyard.model.DistanceTable;
+import uk.ac.bris.cs.scotlandyard.model.MoveList;
+import uk.ac.bris.cs.scotlandyard.model.PackedMove;
+import uk.ac.bris.cs.scotlandyard.model.SearchState;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+/**
+ * Iterative deepening minimax with alpha-beta pruning over a
+ * {@link SearchState}. MrX maximises and the detectives minimise the same
+ * score; one ply is one player's move. Results are cached in a
+ * {@link TranspositionTable} which also supplies the first move to try at
+ * every node, and the search deepens one ply at a time until the deadline,
+ * returning the best move of the deepest search that completed. Interrupting
+ * the searching thread ends the search like the deadline does.
+ * <br>
+ * Leaves are scored with the shortest path from every detective to MrX using
+ * taxi, bus and underground, weighting the closest detective the most. Double
+ * moves are only considered at the root. A searcher is not thread safe but
+ * several may share a table.
+ */
+public final class AlphaBetaSearcher {
+
+	/**
+	 * Score of a position where MrX has won, detective wins score the
+	 * negation; wins found sooner score further from zero
+	 */
+	public static final int WIN = 10000;
+
+	private static final int INFINITY = WIN + 1;
+	private static final int MAX_PLY = 64;
+	private static final int CAP = 10;
+	private static final int CLOSEST_WEIGHT = 100;
+	private static final int CHECK_INTERVAL = 1024;
+	private static final int DETECTIVE_MASK = DistanceTable.mask(
+			Transport.TAXI, Transport.BUS, Transport.UNDERGROUND);
+
+	private final DistanceTable distances;
+	private final TranspositionTable table;
+	private final MoveList[] moves = new MoveList[MAX_PLY];
+
+	private SearchState state;
+	private long deadline;
+	private long nodes;
+	private boolean aborted;
+
+	/**
+	 * @param distances the distance table of the map searched; not null
+	 * @param table the table to cache results in; not null
+	 */
+	public AlphaBetaSearcher(DistanceTable distances, TranspositionTable table) {
+		this.distances = requireNonNull(distances);
+		this.table = requireNonNull(table);
+		for (int i = 0; i < moves.length; i++) moves[i] = new MoveList(256);
+	}
+
+	/**
+	 * Searches for the best of the given moves of the current player
+	 *
+	 * @param state the position; not null, returned as it was given
+	 * @param candidates the moves to choose from, encoded with
+	 *        {@link PackedMove}; not null or empty
+	 * @param budgetNanos time to search for
+	 * @param maxDepth the deepest search to start, at least one
+	 * @return the result; never null
+	 */
+	public Result search(SearchState state, int[] candidates, long budgetNanos, int maxDepth) {
+		requireNonNull(state);
+		if (requireNonNull(candidates).length == 0) throw new IllegalArgumentException("No moves");
+		if (maxDepth < 1) throw new IllegalArgumentException("maxDepth < 1");
+		this.state = state;
+		this.deadline = System.nanoTime() + budgetNanos;
+		this.nodes = 0;
+		this.aborted = false;
+		int[] root = candidates.clone();
+		boolean maximising = state.current() == 0;
+		int best = root[0];
+		int value = 0;
+		int depth = 0;
+		int base = state.depth();
+		for (int d = 1; d <= Math.min(maxDepth, MAX_PLY - 1); d++) {
+			int alpha = -INFINITY;
+			int beta = INFINITY;
+			int iterationBest = root[0];
+			for (int i = 0; i < root.length; i++) {
+				state.apply(root[i]);
+				int score = search(d - 1, 1, alpha, beta);
+				state.undo();
+				if (aborted) break;
+				if (maximising ? score > alpha : score < beta) {
+					iterationBest = root[i];
+					if (maximising) alpha = score;
+					else beta = score;
+				}
+			}
+			if (aborted) {
+				while (state.depth() > base) state.undo();
+				break;
+			}
+			best = iterationBest;
+			value = maximising ? alpha : beta;
+			depth = d;
+			// try the best move first next time
+			for (int i = 0; i < root.length; i++) {
+				if (root[i] != best) continue;
+				System.arraycopy(root, 0, root, 1, i);
+				root[0] = best;
+				break;
+			}
+			if (Math.abs(value) > WIN - MAX_PLY) break;
+		}
+		this.state = null;
+		return new Result(best, value, depth, nodes);
+	}
+
+	private int search(int depth, int ply, int alpha, int beta) {
+		if (++nodes % CHECK_INTERVAL == 0
+				&& (System.nanoTime() - deadline > 0 || Thread.currentThread().isInterrupted()))
+			aborted = true;
+		if (aborted) return 0;
+		if (state.isGameOver()) return state.isMrXWin() ? WIN - ply : -WIN + ply;
+		if (depth == 0 || ply >= MAX_PLY - 1) return evaluate();
+
+		long key = state.hash();
+		long entry = table.probe(key);
+		int hashMove = -1;
+		if (entry != MISSING) {
+			hashMove = TranspositionTable.move(entry);
+			if (TranspositionTable.depth(entry) >= depth) {
+				int score = fromTable(TranspositionTable.score(entry), ply);
+				int bound = TranspositionTable.bound(entry);
+				if (bound == EXACT
+						|| bound == LOWER && score >= beta
+						|| bound == UPPER && score <= alpha) return score;
+			}
+		}
+
+		MoveList list = moves[ply];
+		state.generateMoves(list);
+		int size = list.size();
+		if (state.current() == 0) {
+			int singles = 0;
+			while (singles < size && !PackedMove.isDouble(list.get(singles))) singles++;
+			if (singles > 0) size = singles;
+		}
+		if (hashMove != -1) {
+			for (int i = 1; i < size; i++) {
+				if (list.get(i) != hashMove) continue;
+				list.set(i, list.get(0));
+				list.set(0, hashMove);
+				break;
+			}
+		}
+
+		boolean maximising = state.current() == 0;
+		int originalAlpha = alpha;
+		int originalBeta = beta;
+		int best = maximising ? -INFINITY : INFINITY;
+		int bestMove = -1;
+		for (int i = 0; i < size; i++) {
+			int move = list.get(i);
+			state.apply(move);
+			int score = search(depth - 1, ply + 1, alpha, beta);
+			state.undo();
+			if (aborted) return 0;
+			if (maximising ? score > best : score < best) {
+				best = score;
+				bestMove = move;
+			}
+			if (maximising) alpha = Math.max(alpha, score);
+			else beta = Math.min(beta, score);
+			if (alpha >= beta) break;
+		}
+
+		int bound = best <= originalAlpha ? UPPER : best >= originalBeta ? LOWER : EXACT;
+		table.store(key, bestMove, toTable(best, ply), depth, bound);
+		return best;
+	}
+
+	// wins are stored relative to the node so they can be reused at any ply
+
+	private static int toTable(int score, int ply) {
+		if (score > WIN - MAX_PLY) return score + ply;
+		if (score < -WIN + MAX_PLY) return score - ply;
+		return score;
+	}
+
+	private static int fromTable(int score, int ply) {
+		if (score > WIN - MAX_PLY) return score - ply;
+		if (score < -WIN + MAX_PLY) return score + ply;
+		return score;
+	}
+
+	private int evaluate() {
+		int mrX = state.location(0);
+		int closest = CAP;
+		int total = 0;
+		for (int player = 1; player < state.players(); player++) {
+			int distance = distances.distance(state.location(player), mrX, DETECTIVE_MASK);
+			if (distance == DistanceTable.UNREACHABLE || distance > CAP) distance = CAP;
+			closest = Math.min(closest, distance);
+			total += distance;
+		}
+		return CLOSEST_WEIGHT * closest + total;
+	}
+
+	/**
+	 * The outcome of a search
+	 */
+	public static final class Result {
+
+		private final int move;
+		private final int value;
+		private final int depth;
+		private final long nodes;
+
+		Result(int move, int value, int depth, long nodes) {
+			this.move = move;
+			this.value = value;
+			this.depth = depth;
+			this.nodes = nodes;
+		}
+
+		/**
+		 * @return the chosen move, encoded with {@link PackedMove}
+		 */
+		public int move() {
+			return move;
+		}
+
+		/**
+		 * @return the score of the chosen move from MrX's point of view
+		 */
+		public int value() {
+			return value;
+		}
+
+		/**
+		 * @return the deepest search that completed, zero if the budget ran out
+		 *         before the first; the first candidate is chosen then
+		 */
+		public int depth() {
+			return depth;
+		}
+
+		/**
+		 * @return number of positions visited
+		 */
+		public long nodes() {
+			return nodes;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s (value %d, depth %d, %d nodes)",
+					PackedMove.toString(move), value, depth, nodes);
+		}
+	}
+
+}
@@ -0,0 +1,136 @@
+package uk.ac.bris.cs.scotlandyard.ai.alphabeta;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed size hash table of search results keyed by
+ * {@link uk.ac.bris.cs.scotlandyard.model.SearchState#hash()}. Each entry is
+ * two longs, the key XORed with the data and the data itself, so an entry torn
+ * by concurrent writers simply fails to match on probe and the table can be
+ * shared without locking.
+ * <br>
+ * The data packs, from the least significant bit, 32 bits of
+ * {@link uk.ac.bris.cs.scotlandyard.model.PackedMove}, a 16 bit signed score,
+ * an 8 bit depth and a 2 bit bound. An entry is replaced unless it holds the
+ * same position searched to a greater depth.
+ */
+public final class TranspositionTable {
+
+	/**
+	 * The score is exact
+	 */
+	public static final int EXACT = 1;
+	/**
+	 * The score is a lower bound, the search failed high
+	 */
+	public static final int LOWER = 2;
+	/**
+	 * The score is an upper bound, the search failed low
+	 */
+	public static final int UPPER = 3;
+
+	/**
+	 * Returned by {@link #probe(long)} when the position is not in the table
+	 */
+	public static final long MISSING = 0;
+
+	private final AtomicLongArray entries;
+	private final int mask;
+
+	/**
+	 * @param capacity number of entries, rounded up to a power of two
+	 */
+	public TranspositionTable(int capacity) {
+		if (capacity < 1 || capacity > 1 << 28)
+			throw new IllegalArgumentException("Capacity " + capacity + " out of range");
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity) size <<= 1;
+		this.entries = new AtomicLongArray(size * 2);
+		this.mask = size - 1;
+	}
+
+	/**
+	 * @return number of entries
+	 */
+	public int capacity() {
+		return mask + 1;
+	}
+
+	/**
+	 * Looks up a position
+	 *
+	 * @param key the hash of the position
+	 * @return the packed data or {@link #MISSING}
+	 */
+	public long probe(long key) {
+		int i = index(key);
+		long data = entries.get(i + 1);
+		return (entries.get(i) ^ data) == key ? data : MISSING;
+	}
+
+	/**
+	 * Stores a search result
+	 *
+	 * @param key the hash of the position
+	 * @param move the best move found, encoded with
+	 *        {@link uk.ac.bris.cs.scotlandyard.model.PackedMove}, or -1
+	 * @param score the score, must fit in a short
+	 * @param depth the remaining depth searched, 0 to 255
+	 * @param bound one of {@link #EXACT}, {@link #LOWER} or {@link #UPPER}
+	 */
+	public void store(long key, int move, int score, int depth, int bound) {
+		if (score < Short.MIN_VALUE || score > Short.MAX_VALUE)
+			throw new IllegalArgumentException("Score " + score + " out of range");
+		if (depth < 0 || depth > 0xFF) throw new IllegalArgumentException("Depth " + depth + " out of range");
+		if (bound < EXACT || bound > UPPER) throw new IllegalArgumentException("Bad bound " + bound);
+		int i = index(key);
+		long existing = entries.get(i + 1);
+		if ((entries.get(i) ^ existing) == key && depth(existing) > depth) return;
+		long data = (move & 0xFFFFFFFFL)
+				| (score & 0xFFFFL) << 32
+				| (long) depth << 48
+				| (long) bound << 56;
+		entries.set(i, key ^ data);
+		entries.set(i + 1, data);
+	}
+
+	/**
+	 * Empties the table
+	 */
+	public void clear() {
+		for (int i = 0; i < entries.length(); i++) entries.set(i, 0);
+	}
+
+	private int index(long key) {
+		return ((int) (key ^ key >>> 32) & mask) << 1;
+	}
+
+	/**
+	 * @return the move of probed data, -1 if none was stored
+	 */
+	public static int move(long data) {
+		return (int) data;
+	}
+
+	/**
+	 * @return the score of probed data
+	 */
+	public static int score(long data) {
+		return (short) (data >>> 32);
+	}
+
+	/**
+	 * @return the depth of probed data
+	 */
+	public static int depth(long data) {
+		return (int) (data >>> 48) & 0xFF;
+	}
+
+	/**
+	 * @return the bound of probed data
+	 */
+	public static int bound(long data) {
+		return (int) (data >>> 56) & 0x3;
+	}
+
+}
@@ -0,0 +1,153 @@
+package uk.ac.bris.cs.scotlandyard.ai.montecarlo;
+
+import static java.util.Collections.singletonList;
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import uk.ac.bris.cs.gamekit.graph.Node;
+import uk.ac.bris.cs.scotlandyard.ai.BudgetedPlayer;
+import uk.ac.bris.cs.scotlandyard.ai.ManagedAI;
+import uk.ac.bris.cs.scotlandyard.ai.MoveBudget;
+import uk.ac.bris.cs.scotlandyard.ai.PlayerFactory;
+import uk.ac.bris.cs.scotlandyard.ai.ResourceProvider;
+import uk.ac.bris.cs.scotlandyard.ai.Visualiser;
+import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.MrXTracker;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardView;
+import uk.ac.bris.cs.scotlandyard.model.Spectator;
+
+/**
+ * A built in AI that picks moves with {@link MonteCarloEngine}. Detectives
+ * sample MrX's location from a {@link MrXTracker}, MrX knows where he is.
+ * <br>
+ * The time budget per move and the number of threads default to one second
+ * and {@link ResourceProvider#getThreads()} and can be changed with the
+ * {@value #BUDGET_PROPERTY} (milliseconds) and {@value #THREADS_PROPERTY}
+ * system properties; a {@link MoveBudget} with less time left shortens the
+ * search. How much it searched is available from {@link #moves()},
+ * {@link #playouts()} and {@link #playoutsPerSecond()}.
+ */
+@ManagedAI("Monte Carlo")
+public class MonteCarloAI implements PlayerFactory {
+
+	public static final String BUDGET_PROPERTY = "scotlandyard.montecarlo.budget";
+	public static final String THREADS_PROPERTY = "scotlandyard.montecarlo.threads";
+
+	private final Duration budget;
+	// zero to take the number from the resource provider
+	private final int threads;
+	private int providedThreads = Runtime.getRuntime().availableProcessors();
+	private MonteCarloEngine engine;
+	private MrXTracker tracker;
+	private long moves;
+	private long playouts;
+	private long elapsedNanos;
+
+	public MonteCarloAI() {
+		this(Duration.ofMillis(Long.getLong(BUDGET_PROPERTY, 1000)),
+				Integer.getInteger(THREADS_PROPERTY, 0));
+	}
+
+	/**
+	 * @param budget time to think per move; not null
+	 * @param threads number of threads to run playouts on, or zero for as
+	 *        many as {@link ResourceProvider#getThreads()} allows
+	 */
+	public MonteCarloAI(Duration budget, int threads) {
+		this.budget = requireNonNull(budget);
+		if (budget.isNegative()) throw new IllegalArgumentException("Negative budget");
+		if (threads < 0) throw new IllegalArgumentException("threads < 0");
+		this.threads = threads;
+	}
+
+	@Override
+	public List<Spectator> createSpectators(ScotlandYardView view) {
+		tracker = new MrXTracker(view.getGraph());
+		return singletonList(tracker);
+	}
+
+	@Override
+	public synchronized void ready(Visualiser visualiser, ResourceProvider provider) {
+		providedThreads = provider.getThreads();
+	}
+
+	@Override
+	public synchronized Player createPlayer(Colour colour) {
+		requireNonNull(colour);
+		if (engine == null) engine = new MonteCarloEngine(
+				threads > 0 ? threads : providedThreads, System.nanoTime());
+		return (BudgetedPlayer) this::makeMove;
+	}
+
+	private void makeMove(ScotlandYardView view, int location, Set<Move> moves,
+			MoveBudget budget, Consumer<Move> callback) {
+		MonteCarloEngine engine;
+		synchronized (this) {
+			engine = this.engine;
+		}
+		if (engine == null) throw new IllegalStateException("AI has finished");
+		int[] mrXLocations = view.getCurrentPlayer().isMrX() ? new int[]{location} : candidates(view);
+		MonteCarloEngine.Result result;
+		try {
+			result = engine.search(view, moves, mrXLocations,
+					Math.min(this.budget.toNanos(), budget.remainingNanos()));
+		} catch (InterruptedException e) {
+			// still answer so the game is not left waiting for this player
+			Thread.currentThread().interrupt();
+			callback.accept(moves.iterator().next());
+			return;
+		}
+		synchronized (this) {
+			this.moves++;
+			this.playouts += result.playouts();
+			this.elapsedNanos += result.elapsedNanos();
+		}
+		callback.accept(result.move());
+	}
+
+	private int[] candidates(ScotlandYardView view) {
+		if (tracker != null && tracker.size() > 0) {
+			int[] candidates = new int[tracker.size()];
+			int i = 0;
+			for (int node = tracker.next(0); node >= 0; node = tracker.next(node + 1))
+				candidates[i++] = node;
+			return candidates;
+		}
+		// not tracking this game, MrX could be anywhere
+		return view.getGraph().getNodes().stream().mapToInt(Node::value).toArray();
+	}
+
+	/**
+	 * @return number of moves searched so far
+	 */
+	public synchronized long moves() {
+		return moves;
+	}
+
+	/**
+	 * @return number of playouts over every move made so far
+	 */
+	public synchronized long playouts() {
+		return playouts;
+	}
+
+	/**
+	 * @return playouts per second over every move made so far
+	 */
+	public synchronized double playoutsPerSecond() {
+		return elapsedNanos == 0 ? 0 : playouts * 1e9 / elapsedNanos;
+	}
+
+	@Override
+	public synchronized void finish() {
+		if (engine != null) engine.close();
+		engine = null;
+	}
+
+}
@@ -0,0 +1,258 @@
+package uk.ac.bris.cs.scotlandyard.ai.montecarlo;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import uk.ac.bris.cs.scotlandyard.model.CanonicalGraphs;
+import uk.ac.bris.cs.scotlandyard.model.DestinationTable;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.MoveList;
+import uk.ac.bris.cs.scotlandyard.model.PackedMove;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardView;
+import uk.ac.bris.cs.scotlandyard.model.SearchState;
+
+/**
+ * Flat Monte Carlo search over {@link SearchState}. Every worker thread owns a
+ * copy of the game and repeatedly picks a candidate move with UCB1, plays the
+ * game out with random moves and undoes back to the root, so playouts do not
+ * allocate. When MrX's location is not known each playout starts from one of
+ * the given candidate locations at random. The move visited most often
+ * across all workers is chosen when the time budget runs out.
+ * <br>
+ * Playouts never use double moves other than as the candidate move, which
+ * keeps MrX from spending them all in the first few rounds.
+ */
+public final class MonteCarloEngine implements AutoCloseable {
+
+	private static final double EXPLORATION = Math.sqrt(2);
+	private static final AtomicInteger ENGINES = new AtomicInteger();
+
+	private final int threads;
+	private final ExecutorService executor;
+	private final SplittableRandom seeds;
+
+	/**
+	 * @param threads number of worker threads, at least one
+	 * @param seed seed of the random playouts
+	 */
+	public MonteCarloEngine(int threads, long seed) {
+		if (threads < 1) throw new IllegalArgumentException("threads < 1");
+		this.threads = threads;
+		this.seeds = new SplittableRandom(seed);
+		int engine = ENGINES.incrementAndGet();
+		AtomicInteger workers = new AtomicInteger();
+		ThreadFactory factory = runnable -> {
+			Thread thread = new Thread(runnable,
+					"montecarlo-" + engine + "-" + workers.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+		this.executor = Executors.newFixedThreadPool(threads, factory);
+	}
+
+	/**
+	 * @return number of worker threads
+	 */
+	public int threads() {
+		return threads;
+	}
+
+	/**
+	 * Searches for the best move of the current player, blocking until the
+	 * budget is used up
+	 *
+	 * @param view the game; not null
+	 * @param moves the valid moves of the current player; not null or empty
+	 * @param mrXLocations where MrX could be, a single location if it is known;
+	 *        not null or empty
+	 * @param budgetNanos time to search for
+	 * @return the result; never null
+	 * @throws InterruptedException if the calling thread was interrupted, the
+	 *         workers are stopped first
+	 */
+	public Result search(ScotlandYardView view, Set<Move> moves, int[] mrXLocations,
+			long budgetNanos) throws InterruptedException {
+		requireNonNull(view);
+		if (requireNonNull(moves).isEmpty()) throw new IllegalArgumentException("No moves");
+		if (requireNonNull(mrXLocations).length == 0)
+			throw new IllegalArgumentException("No MrX locations");
+		long start = System.nanoTime();
+		long deadline = start + budgetNanos;
+		List<Move> candidates = new ArrayList<>(moves);
+		int[] packed = new int[candidates.size()];
+		for (int i = 0; i < packed.length; i++) packed[i] = PackedMove.of(candidates.get(i));
+		boolean mrX = view.getCurrentPlayer().isMrX();
+		DestinationTable table = CanonicalGraphs.destinations(view.getGraph());
+
+		List<Future<long[]>> futures = new ArrayList<>(threads);
+		for (int i = 0; i < threads; i++) {
+			SplittableRandom random;
+			synchronized (seeds) {
+				random = seeds.split();
+			}
+			Worker worker = new Worker(new SearchState(view, mrXLocations[0], table,
+					SearchState.DEFAULT_CAPACITY), packed, mrXLocations, mrX, random);
+			futures.add(executor.submit(() -> worker.run(deadline)));
+		}
+		long[] wins = new long[packed.length];
+		long[] visits = new long[packed.length];
+		try {
+			for (Future<long[]> future : futures) {
+				long[] result = future.get();
+				for (int i = 0; i < packed.length; i++) {
+					wins[i] += result[i * 2];
+					visits[i] += result[i * 2 + 1];
+				}
+			}
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Playout failed", e.getCause());
+		} finally {
+			for (Future<long[]> future : futures) future.cancel(true);
+		}
+		int best = 0;
+		long playouts = 0;
+		for (int i = 0; i < packed.length; i++) {
+			playouts += visits[i];
+			if (visits[i] > visits[best]) best = i;
+		}
+		double score = visits[best] == 0 ? 0 : (double) wins[best] / visits[best];
+		return new Result(candidates.get(best), score, playouts, System.nanoTime() - start);
+	}
+
+	/**
+	 * Stops the worker threads, searches in progress are interrupted
+	 */
+	@Override
+	public void close() {
+		executor.shutdownNow();
+	}
+
+	private static final class Worker {
+
+		private final SearchState state;
+		private final int[] moves;
+		private final int[] mrXLocations;
+		private final boolean mrX;
+		private final SplittableRandom random;
+		private final MoveList buffer = new MoveList(256);
+		// wins and visits interleaved per candidate
+		private final long[] stats;
+
+		Worker(SearchState state, int[] moves, int[] mrXLocations, boolean mrX,
+				SplittableRandom random) {
+			this.state = state;
+			this.moves = moves;
+			this.mrXLocations = mrXLocations;
+			this.mrX = mrX;
+			this.random = random;
+			this.stats = new long[moves.length * 2];
+		}
+
+		long[] run(long deadline) {
+			long total = 0;
+			while (System.nanoTime() < deadline && !Thread.currentThread().isInterrupted()) {
+				int candidate = select(total);
+				if (mrXLocations.length > 1)
+					state.mrXLocation(mrXLocations[random.nextInt(mrXLocations.length)]);
+				state.apply(moves[candidate]);
+				boolean mrXWin = playout();
+				while (state.depth() > 0) state.undo();
+				if (mrXWin == mrX) stats[candidate * 2]++;
+				stats[candidate * 2 + 1]++;
+				total++;
+			}
+			return stats;
+		}
+
+		private int select(long total) {
+			if (total < moves.length) return (int) total;
+			double log = Math.log(total);
+			int best = 0;
+			double bestValue = Double.NEGATIVE_INFINITY;
+			for (int i = 0; i < moves.length; i++) {
+				double visits = stats[i * 2 + 1];
+				double value = stats[i * 2] / visits + EXPLORATION * Math.sqrt(log / visits);
+				if (value > bestValue) {
+					bestValue = value;
+					best = i;
+				}
+			}
+			return best;
+		}
+
+		private boolean playout() {
+			while (!state.isGameOver()) {
+				state.generateMoves(buffer);
+				int size = buffer.size();
+				if (state.current() == 0) {
+					int singles = 0;
+					while (singles < size && !PackedMove.isDouble(buffer.get(singles))) singles++;
+					if (singles > 0) size = singles;
+				}
+				state.apply(buffer.get(random.nextInt(size)));
+			}
+			return state.isMrXWin();
+		}
+	}
+
+	/**
+	 * The outcome of a search
+	 */
+	public static final class Result {
+
+		private final Move move;
+		private final double score;
+		private final long playouts;
+		private final long elapsedNanos;
+
+		Result(Move move, double score, long playouts, long elapsedNanos) {
+			this.move = move;
+			this.score = score;
+			this.playouts = playouts;
+			this.elapsedNanos = elapsedNanos;
+		}
+
+		/**
+		 * @return the chosen move; never null
+		 */
+		public Move move() {
+			return move;
+		}
+
+		/**
+		 * @return fraction of the chosen move's playouts won by the player
+		 */
+		public double score() {
+			return score;
+		}
+
+		public long playouts() {
+			return playouts;
+		}
+
+		public long elapsedNanos() {
+			return elapsedNanos;
+		}
+
+		public double playoutsPerSecond() {
+			return elapsedNanos == 0 ? 0 : playouts * 1e9 / elapsedNanos;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s (score %.3f, %d playouts, %.0f playouts/s)",
+					move, score, playouts, playoutsPerSecond());
+		}
+	}
+
+}
@@ -9,6 +9,8 @@ import java.util.Set;
 import java.util.function.Function;
 
 import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.GameEvents;
+import uk.ac.bris.cs.scotlandyard.model.GameEvents.PlayerThink;
 import uk.ac.bris.cs.scotlandyard.model.Move;
 import uk.ac.bris.cs.scotlandyard.model.PlayerConfiguration;
 import uk.ac.bris.cs.scotlandyard.model.PlayerConfiguration.Builder;
@@ -60,19 +62,36 @@ public final class CodeGenRecorder {
 		PlayerConfiguration configuration = new Builder(that.colour)
 				.at(that.location)
 				.with(that.tickets)
-				.using((view, location, moves, callback) -> that.player.makeMove(view,
-						location,
-						moves,
-						// pass on null in case downstream expects it for testing
-						callback == null ? null : (Move picked) -> {
-							codeGens.forEach(v -> v.movePicked(seed, view, location, moves,
-									picked));
-							callback.accept(picked);
-						})).build();
+				.using((view, location, moves, callback) -> {
+					PlayerThink think = GameEvents.isEnabled(PlayerThink.class) ?
+							new PlayerThink() : null;
+					if (think != null) think.begin();
+					that.player.makeMove(view,
+							location,
+							moves,
+							// pass on null in case downstream expects it for testing
+							callback == null ? null : (Move picked) -> {
+								thought(think, that, moves);
+								codeGens.forEach(v -> v.movePicked(seed, view, location, moves,
+										picked));
+								callback.accept(picked);
+							});
+				}).build();
 		configs.put(that.colour, configuration);
 		return configuration;
 	}
 
+	private static void thought(PlayerThink think, PlayerConfiguration that, Set<Move> moves) {
+		if (think == null) return;
+		think.end();
+		if (think.shouldCommit()) {
+			think.player = that.colour.name();
+			think.playerClass = that.player.getClass();
+			think.moveCount = moves.size();
+			think.commit();
+		}
+	}
+
 	public final Spectator createSpectator() {
 		List<Spectator> spectators = codeGens.stream()
 				.map(v -> v.mkSpectator(seed))
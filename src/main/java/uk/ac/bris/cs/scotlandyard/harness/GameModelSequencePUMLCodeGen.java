@@ -34,12 +34,20 @@ public class GameModelSequencePUMLCodeGen implements CodeGen {
 	private int maxRound = 0;
 	private List<String> interactions = new ArrayList<>();
 
+	// the last snapshot taken, later ones share what has not changed with it
+	private ImmutableScotlandYardView last;
+
+	private ImmutableScotlandYardView snapshot(ImmutableScotlandYardView seed,
+	                                           ScotlandYardView view) {
+		return last = ImmutableScotlandYardView.snapshot(view, last == null ? seed : last);
+	}
+
 	@Override public String name() { return "GameModelSequencePUMLCodeGen"; }
 	@Override
 	public void movePicked(ImmutableScotlandYardView seed,
 	                       ScotlandYardView view, int location, Set<Move> moves, Move picked) {
 
-		ImmutableScotlandYardView now = ImmutableScotlandYardView.snapshot(view);
+		ImmutableScotlandYardView now = snapshot(seed, view);
 
 		String current = named(now.getCurrentPlayer());
 
@@ -64,7 +72,7 @@ public class GameModelSequencePUMLCodeGen implements CodeGen {
 	@Override public Spectator mkSpectator(ImmutableScotlandYardView seed) {
 		return new Spectator() {
 			@Override public void onMoveMade(ScotlandYardView view, Move move) {
-				ImmutableScotlandYardView now = ImmutableScotlandYardView.snapshot(view);
+				ImmutableScotlandYardView now = snapshot(seed, view);
 				if (move.colour().isDetective() || move instanceof DoubleMove)
 					appendViewRNote(now, "");
 				interactions.add(format(
@@ -72,7 +80,7 @@ public class GameModelSequencePUMLCodeGen implements CodeGen {
 
 			}
 			@Override public void onRoundStarted(ScotlandYardView view, int round) {
-				ImmutableScotlandYardView now = ImmutableScotlandYardView.snapshot(view);
+				ImmutableScotlandYardView now = snapshot(seed, view);
 				if (previousPlayer(now).isMrX()) appendViewRNote(now, "");
 				interactions.add(format(
 						"ScotlandYardModel->Spectator: onRoundStarted(V, %d)", round));
@@ -83,7 +91,7 @@ public class GameModelSequencePUMLCodeGen implements CodeGen {
 				interactions.add("end");
 			}
 			@Override public void onGameOver(ScotlandYardView view, Set<Colour> winningPlayers) {
-				ImmutableScotlandYardView now = ImmutableScotlandYardView.snapshot(view);
+				ImmutableScotlandYardView now = snapshot(seed, view);
 				interactions.add(format("ScotlandYardModel->Spectator: onGameOver(V, [%s])",
 						now.players.stream().map(v -> named(v.colour)).collect(joining(","))));
 				appendViewRNote(now, ", GameOver=true");
@@ -3,10 +3,13 @@ package uk.ac.bris.cs.scotlandyard.harness;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
 
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
@@ -15,7 +18,6 @@ import java.util.stream.Stream;
 
 import uk.ac.bris.cs.gamekit.graph.Graph;
 import uk.ac.bris.cs.gamekit.graph.ImmutableGraph;
-import uk.ac.bris.cs.gamekit.graph.UndirectedGraph;
 import uk.ac.bris.cs.scotlandyard.model.Colour;
 import uk.ac.bris.cs.scotlandyard.model.DoubleMove;
 import uk.ac.bris.cs.scotlandyard.model.Move;
@@ -42,8 +44,10 @@ import static uk.ac.bris.cs.scotlandyard.model.Ticket.TAXI;
 import static uk.ac.bris.cs.scotlandyard.model.Ticket.UNDERGROUND;
 
 /**
- * This is an internal class designed only for use with the test harness. This class is not
- * stable and may change anytime without notice.
+ * An immutable copy of a {@link ScotlandYardView}, taken by the test harness and by
+ * {@link uk.ac.bris.cs.scotlandyard.model.SpectatorBus}. Apart from the snapshot methods this
+ * is an internal class designed only for use with the test harness. It is not stable and may
+ * change anytime without notice.
  */
 public final class ImmutableScotlandYardView implements ScotlandYardView {
 
@@ -89,8 +93,64 @@ public final class ImmutableScotlandYardView implements ScotlandYardView {
 	final Colour currentPlayer;
 	final int currentRound;
 
+	/**
+	 * Takes a full immutable copy of a view. Callers that take snapshots of the same game
+	 * repeatedly should keep the last one and use {@link #snapshot(ScotlandYardView,
+	 * ImmutableScotlandYardView)} instead.
+	 */
 	public static ImmutableScotlandYardView snapshot(ScotlandYardView view) {
-		return new ImmutableScotlandYardView(view);
+		return snapshot(view, null);
+	}
+
+	/**
+	 * Takes an immutable copy of a view, sharing what has not changed with a previous snapshot
+	 * of the same game. The graph, rounds and players of a game are fixed when it is created so
+	 * they are taken from the previous snapshot as they are.
+	 *
+	 * @param view the view to copy
+	 * @param previous an earlier snapshot of the same game, may be null
+	 */
+	public static ImmutableScotlandYardView snapshot(ScotlandYardView view,
+	                                                 ImmutableScotlandYardView previous) {
+		if (view instanceof ImmutableScotlandYardView) return (ImmutableScotlandYardView) view;
+		if (previous == null) return new ImmutableScotlandYardView(view);
+		ImmutableList<ImmutablePlayer> players = previous.players;
+		ImmutableList.Builder<ImmutablePlayer> changed = null;
+		for (int i = 0; i < players.size(); i++) {
+			ImmutablePlayer last = players.get(i);
+			ImmutablePlayer now = player(view, last.colour, last);
+			if (changed == null && now != last) {
+				changed = ImmutableList.builder();
+				changed.addAll(players.subList(0, i));
+			}
+			if (changed != null) changed.add(now);
+		}
+		if (changed != null) players = changed.build();
+		// models settle the winners when asked whether the game is over, so ask that first
+		boolean gameOver = view.isGameOver();
+		Set<Colour> winners = view.getWinningPlayers();
+		ImmutableSet<Colour> winning = previous.winning.equals(winners) ?
+				previous.winning : ImmutableSet.copyOf(winners);
+		Colour currentPlayer = view.getCurrentPlayer();
+		int currentRound = view.getCurrentRound();
+		if (players == previous.players && winning == previous.winning
+				&& gameOver == previous.gameOver && currentPlayer == previous.currentPlayer
+				&& currentRound == previous.currentRound) return previous;
+		return new ImmutableScotlandYardView(previous.colours, previous.rounds, previous.graph,
+				players, winning, gameOver, currentPlayer, currentRound);
+	}
+
+	private static ImmutablePlayer player(ScotlandYardView view, Colour colour,
+	                                      ImmutablePlayer previous) {
+		int location = view.getPlayerLocation(colour).orElseThrow(AssertionError::new);
+		boolean same = previous != null && previous.location == location;
+		EnumMap<Ticket, Integer> tickets = new EnumMap<>(Ticket.class);
+		for (Ticket ticket : Ticket.values()) {
+			Integer count = view.getPlayerTickets(colour, ticket).orElseThrow(AssertionError::new);
+			same = same && count.equals(previous.tickets.get(ticket));
+			tickets.put(ticket, count);
+		}
+		return same ? previous : new ImmutablePlayer(colour, location, Maps.immutableEnumMap(tickets));
 	}
 
 	private ImmutableScotlandYardView(
@@ -110,24 +170,17 @@ public final class ImmutableScotlandYardView implements ScotlandYardView {
 		this.currentRound = currentRound;
 	}
 	private ImmutableScotlandYardView(ScotlandYardView view) {
-//		Thread.dumpStack();
 		players = view.getPlayers()
 				.stream()
-				.map(p -> {
-					Integer location = view.getPlayerLocation(p).orElseThrow(AssertionError::new);
-					ImmutableMap<Ticket, Integer> tickets = Stream.of(Ticket.values())
-							.collect(ImmutableMap.toImmutableMap(identity(), t -> view
-									.getPlayerTickets(p, t)
-									.orElseThrow(AssertionError::new)));
-					return new ImmutablePlayer(p, location, tickets);
-				}).collect(ImmutableList.toImmutableList());
+				.map(p -> player(view, p, null))
+				.collect(ImmutableList.toImmutableList());
 		colours = ImmutableList.copyOf(view.getPlayers());
-		winning = ImmutableSet.copyOf(view.getWinningPlayers());
 		gameOver = view.isGameOver();
+		winning = ImmutableSet.copyOf(view.getWinningPlayers());
 		currentRound = view.getCurrentRound();
 		currentPlayer = view.getCurrentPlayer();
 		rounds = ImmutableList.copyOf((view.getRounds()));
-		graph = new ImmutableGraph<>(new UndirectedGraph<>(view.getGraph()));
+		graph = ImmutableGraph.copyOf(view.getGraph());
 	}
 
 	@Override public List<Colour> getPlayers() { return colours; }
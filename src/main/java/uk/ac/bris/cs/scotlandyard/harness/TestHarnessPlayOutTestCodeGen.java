@@ -41,12 +41,20 @@ public class TestHarnessPlayOutTestCodeGen implements CodeGen {
 
 	private final List<String> interactions = new ArrayList<>();
 
+	// the last snapshot taken, later ones share what has not changed with it
+	private ImmutableScotlandYardView last;
+
+	private ImmutableScotlandYardView snapshot(ImmutableScotlandYardView seed,
+	                                           ScotlandYardView view) {
+		return last = ImmutableScotlandYardView.snapshot(view, last == null ? seed : last);
+	}
+
 	@Override public String name() { return "PlayOutTestCodeGen"; }
 
 	@Override public void movePicked(ImmutableScotlandYardView seed,
 	                                 ScotlandYardView view, int location, Set<Move> moves,
 	                                 Move picked) {
-		ImmutableScotlandYardView now = ImmutableScotlandYardView.snapshot(view);
+		ImmutableScotlandYardView now = snapshot(seed, view);
 		interactions.add(format("player(%s).makeMove()" +
 						"\n\t.givenGameState(eq(%s))" +
 						"\n\t.givenLocation(eq(%d))" +
@@ -61,21 +69,21 @@ public class TestHarnessPlayOutTestCodeGen implements CodeGen {
 	@Override public Spectator mkSpectator(ImmutableScotlandYardView seed) {
 		return new Spectator() {
 			@Override public void onMoveMade(ScotlandYardView view, Move move) {
-				ImmutableScotlandYardView now = ImmutableScotlandYardView.snapshot(view);
+				ImmutableScotlandYardView now = snapshot(seed, view);
 				interactions.add(format("spectator().onMoveMade()" +
 								"\t\n.givenGameState(eq(%s))" +
 								"\t\n.givenMove(eq(%s))",
 						mkView(seedV, seed, now), mkMove(move)));
 			}
 			@Override public void onRoundStarted(ScotlandYardView view, int round) {
-				ImmutableScotlandYardView now = ImmutableScotlandYardView.snapshot(view);
+				ImmutableScotlandYardView now = snapshot(seed, view);
 				interactions.add(format("spectator().onRoundStarted()" +
 								"\t\n.givenGameState(eq(%s))" +
 								"\t\n.givenRound(eq(%d))",
 						mkView(seedV, seed, now), round));
 			}
 			@Override public void onRotationComplete(ScotlandYardView view) {
-				ImmutableScotlandYardView now = ImmutableScotlandYardView.snapshot(view);
+				ImmutableScotlandYardView now = snapshot(seed, view);
 				interactions.add(format("spectator().onRotationComplete()" +
 								"\t\n.givenGameState(eq(%s))" +
 								"\t\n.respondWith(startRotate(%s))",
@@ -83,7 +91,7 @@ public class TestHarnessPlayOutTestCodeGen implements CodeGen {
 			}
 			@Override
 			public void onGameOver(ScotlandYardView view, Set<Colour> winningPlayers) {
-				ImmutableScotlandYardView now = ImmutableScotlandYardView.snapshot(view);
+				ImmutableScotlandYardView now = snapshot(seed, view);
 				interactions.add(format("spectator().onGameOver()" +
 								"\t\n.givenGameState(eq(%s))" +
 								"\t\n.givenWinners(eq(ImmutableSet.of(%s)))",
@@ -0,0 +1,154 @@
+package uk.ac.bris.cs.scotlandyard.headless;
+
+import static java.lang.String.format;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Aggregated results of a batch of headless games, see {@link GameFarm}
+ */
+public final class FarmReport {
+
+	private long games;
+	private long mrXWins;
+	private long failures;
+	private long rounds;
+	private long moves;
+	private long[] lengths = new long[0];
+	private GameResult firstFailure;
+	private long elapsedNanos;
+
+	FarmReport() {}
+
+	void add(GameResult result) {
+		games++;
+		rounds += result.rounds();
+		moves += result.moves();
+		if (result.failure().isPresent()) {
+			failures++;
+			if (firstFailure == null) firstFailure = result;
+			return;
+		}
+		if (result.mrXWon()) mrXWins++;
+		if (result.rounds() >= lengths.length)
+			lengths = Arrays.copyOf(lengths, result.rounds() + 1);
+		lengths[result.rounds()]++;
+	}
+
+	FarmReport merge(FarmReport that) {
+		games += that.games;
+		mrXWins += that.mrXWins;
+		failures += that.failures;
+		rounds += that.rounds;
+		moves += that.moves;
+		if (that.lengths.length > lengths.length)
+			lengths = Arrays.copyOf(lengths, that.lengths.length);
+		for (int i = 0; i < that.lengths.length; i++) lengths[i] += that.lengths[i];
+		if (that.firstFailure != null && (firstFailure == null
+				|| that.firstFailure.seed() < firstFailure.seed())) firstFailure = that.firstFailure;
+		return this;
+	}
+
+	void elapsedNanos(long elapsedNanos) {
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	/**
+	 * @return number of games played, including failed ones
+	 */
+	public long games() {
+		return games;
+	}
+
+	/**
+	 * @return number of games that completed without an exception
+	 */
+	public long completed() {
+		return games - failures;
+	}
+
+	public long mrXWins() {
+		return mrXWins;
+	}
+
+	public long detectiveWins() {
+		return completed() - mrXWins;
+	}
+
+	public long failures() {
+		return failures;
+	}
+
+	/**
+	 * @return the failed game with the lowest seed, if any
+	 */
+	public Optional<GameResult> firstFailure() {
+		return Optional.ofNullable(firstFailure);
+	}
+
+	/**
+	 * @return MrX wins over completed games, 0 if none completed
+	 */
+	public double mrXWinRate() {
+		return completed() == 0 ? 0 : (double) mrXWins / completed();
+	}
+
+	/**
+	 * @return mean number of rounds over all games
+	 */
+	public double averageRounds() {
+		return games == 0 ? 0 : (double) rounds / games;
+	}
+
+	/**
+	 * @param rounds the game length
+	 * @return number of completed games that ended after the given number of
+	 *         rounds
+	 */
+	public long gamesLasting(int rounds) {
+		return rounds >= 0 && rounds < lengths.length ? lengths[rounds] : 0;
+	}
+
+	/**
+	 * @return number of moves accepted over all games
+	 */
+	public long moves() {
+		return moves;
+	}
+
+	/**
+	 * @return wall clock time of the whole batch in nanoseconds
+	 */
+	public long elapsedNanos() {
+		return elapsedNanos;
+	}
+
+	public double movesPerSecond() {
+		return elapsedNanos == 0 ? 0 : moves * 1e9 / elapsedNanos;
+	}
+
+	public double gamesPerSecond() {
+		return elapsedNanos == 0 ? 0 : games * 1e9 / elapsedNanos;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(format("games:       %d (%d failed)%n", games, failures));
+		sb.append(format("MrX wins:    %d (%.2f%%)%n", mrXWins, mrXWinRate() * 100));
+		sb.append(format("Det. wins:   %d (%.2f%%)%n", detectiveWins(),
+				completed() == 0 ? 0 : (100.0 * detectiveWins()) / completed()));
+		sb.append(format("avg rounds:  %.2f%n", averageRounds()));
+		sb.append(format("elapsed:     %.3fs%n", elapsedNanos / 1e9));
+		sb.append(format("games/s:     %.1f%n", gamesPerSecond()));
+		sb.append(format("moves/s:     %.1f%n", movesPerSecond()));
+		sb.append("rounds histogram:").append(format("%n"));
+		for (int i = 0; i < lengths.length; i++) {
+			if (lengths[i] != 0) sb.append(format("  %3d: %d%n", i, lengths[i]));
+		}
+		firstFailure().ifPresent(f -> sb.append("first failure: ").append(f).append(format("%n")));
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,356 @@
+package uk.ac.bris.cs.scotlandyard.headless;
+
+import static java.util.Objects.requireNonNull;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLACK;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Stream;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.scotlandyard.ai.AI;
+import uk.ac.bris.cs.scotlandyard.ai.DeadlineExecutor;
+import uk.ac.bris.cs.scotlandyard.ai.PlayerFactory;
+import uk.ac.bris.cs.scotlandyard.ai.ResourceProvider;
+import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.MapFile;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardModel;
+import uk.ac.bris.cs.scotlandyard.model.Spectator;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+/**
+ * Plays batches of games between two AIs without a UI. Every game is set up
+ * from a {@link Scenario} and games are spread over a {@link ForkJoinPool};
+ * every game gets its own {@link ScotlandYardModel} and its own
+ * {@link PlayerFactory} instance per side, so games never share state unless
+ * the AI itself does.
+ * <br>
+ * Players run on the thread of the game they are in and must pick their move
+ * before {@link Player#makeMove} returns. When a move timeout is set players
+ * instead think on a separate thread under a {@link DeadlineExecutor} while
+ * the game waits, so a slow or stuck AI cannot hold up the batch.
+ */
+public final class GameFarm {
+
+	private final AI mrX;
+	private final AI detectives;
+	private final ScenarioGenerator scenarios;
+	private final int parallelism;
+	private final int threshold;
+	private final Graph<Integer, Transport> graph;
+	private final ResourceProvider resources;
+	private final Duration moveTimeout;
+	private final GameMetrics metrics;
+
+	private static final DeadlineExecutor TURNS = new DeadlineExecutor(
+			Executors.newCachedThreadPool(runnable -> {
+				Thread thread = new Thread(runnable, "farm-turn");
+				thread.setDaemon(true);
+				return thread;
+			}));
+
+	private GameFarm(Builder builder) {
+		this.mrX = builder.mrX;
+		this.detectives = builder.detectives;
+		this.scenarios = builder.scenarios;
+		this.parallelism = builder.parallelism;
+		this.threshold = builder.threshold;
+		this.graph = builder.graph;
+		this.resources = builder.resources;
+		this.moveTimeout = builder.moveTimeout;
+		this.metrics = builder.metrics;
+	}
+
+	/**
+	 * Plays the scenarios of consecutive seeds starting at {@code firstSeed}
+	 * and blocks until all of them are finished. A game that throws is recorded as
+	 * failed and does not stop the others.
+	 *
+	 * @param firstSeed seed of the first game
+	 * @param games number of games to play
+	 * @return the aggregated report; never null
+	 */
+	public FarmReport play(long firstSeed, int games) {
+		if (games < 0) throw new IllegalArgumentException("games < 0");
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			long start = System.nanoTime();
+			FarmReport report = pool.invoke(new GameRange(firstSeed, games));
+			report.elapsedNanos(System.nanoTime() - start);
+			return report;
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Plays the given scenarios and blocks until all of them are finished.
+	 * The stream is run in parallel on this farm's pool, so how much of it is
+	 * held at once depends on how it splits: a sized stream such as
+	 * {@link ScenarioGenerator#stream(long, long)} is split by index and
+	 * creates each scenario only when a worker plays it, while a stream of
+	 * unknown size is copied into batches as it is split.
+	 *
+	 * @param scenarios the scenarios; not null
+	 * @return the aggregated report; never null
+	 */
+	public FarmReport play(Stream<Scenario> scenarios) {
+		requireNonNull(scenarios);
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			long start = System.nanoTime();
+			FarmReport report = pool.submit(() -> scenarios.parallel().map(this::playOne)
+					.collect(FarmReport::new, FarmReport::add, FarmReport::merge)).join();
+			report.elapsedNanos(System.nanoTime() - start);
+			return report;
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Plays the scenario for a seed on the calling thread
+	 *
+	 * @param seed the scenario seed, see {@link ScenarioGenerator#generate(long)}
+	 * @return the result; never null
+	 */
+	public GameResult playOne(long seed) {
+		return playOne(scenarios.generate(seed));
+	}
+
+	/**
+	 * Plays a single game on the calling thread
+	 *
+	 * @param scenario the game setup; not null
+	 * @return the result; never null
+	 */
+	public GameResult playOne(Scenario scenario) {
+		int[] moves = {0};
+		ScotlandYardModel model = null;
+		List<PlayerFactory> factories = new ArrayList<>();
+		try {
+			PlayerFactory mrXFactory = mrX.instantiate();
+			PlayerFactory detectiveFactory = detectives.instantiate();
+			factories.add(mrXFactory);
+			factories.add(detectiveFactory);
+
+			// players are created once the factories have seen the game
+			Map<Colour, Player> players = new EnumMap<>(Colour.class);
+			model = scenario.newGame(graph, colour -> synchronous(colour, players, moves));
+			if (metrics != null) model.registerSpectator(metrics);
+			for (PlayerFactory factory : factories) {
+				for (Spectator spectator : factory.createSpectators(model))
+					model.registerSpectator(metrics == null ? spectator : metrics.spectator(spectator));
+				factory.ready(HeadlessResources.noVisualiser(), resources);
+			}
+			for (Colour colour : scenario.colours()) {
+				Player player = (colour.isMrX() ? mrXFactory : detectiveFactory).createPlayer(colour);
+				players.put(colour, metrics == null ? player : metrics.player(player));
+			}
+
+			while (!model.isGameOver()) model.startRotate();
+			return GameResult.finished(scenario.seed(), model.getWinningPlayers().contains(BLACK),
+					model.getCurrentRound(), moves[0]);
+		} catch (RuntimeException | Error e) {
+			return GameResult.failed(scenario.seed(),
+					model == null ? 0 : model.getCurrentRound(), moves[0], e);
+		} finally {
+			for (PlayerFactory factory : factories) {
+				try {
+					factory.finish();
+				} catch (RuntimeException ignored) {
+					// the game result is already decided
+				}
+			}
+		}
+	}
+
+	private Player synchronous(Colour colour, Map<Colour, Player> players, int[] moves) {
+		return (view, location, valid, callback) -> {
+			if (moveTimeout != null) {
+				// rethrows what the player threw, wrapped
+				Move move = TURNS.makeMove(players.get(colour), view, location, valid, moveTimeout)
+						.join();
+				moves[0]++;
+				callback.accept(move);
+				return;
+			}
+			boolean[] picked = {false};
+			players.get(colour).makeMove(view, location, valid, move -> {
+				if (picked[0]) throw new IllegalStateException(colour + " picked more than one move");
+				picked[0] = true;
+				moves[0]++;
+				callback.accept(move);
+			});
+			if (!picked[0]) throw new IllegalStateException(
+					colour + " did not pick a move before makeMove returned");
+		};
+	}
+
+	private final class GameRange extends RecursiveTask<FarmReport> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final long firstSeed;
+		private final int games;
+
+		GameRange(long firstSeed, int games) {
+			this.firstSeed = firstSeed;
+			this.games = games;
+		}
+
+		@Override
+		protected FarmReport compute() {
+			if (games <= threshold) {
+				FarmReport report = new FarmReport();
+				for (int i = 0; i < games; i++) report.add(playOne(firstSeed + i));
+				return report;
+			}
+			int half = games / 2;
+			GameRange left = new GameRange(firstSeed, half);
+			left.fork();
+			FarmReport right = new GameRange(firstSeed + half, games - half).compute();
+			return left.join().merge(right);
+		}
+	}
+
+	/**
+	 * A builder for {@link GameFarm}
+	 */
+	public static class Builder {
+		private final AI mrX;
+		private final AI detectives;
+		private ScenarioGenerator scenarios = ScenarioGenerator.standard();
+		private int parallelism = Runtime.getRuntime().availableProcessors();
+		private int threshold = 4;
+		private Graph<Integer, Transport> graph;
+		private MapFile map;
+		private ResourceProvider resources;
+		private Duration moveTimeout;
+		private GameMetrics metrics;
+
+		/**
+		 * @param mrX the AI playing MrX; not null
+		 * @param detectives the AI playing all detectives; not null
+		 */
+		public Builder(AI mrX, AI detectives) {
+			this.mrX = requireNonNull(mrX);
+			this.detectives = requireNonNull(detectives);
+		}
+
+		/**
+		 * @param scenarios generates the setup of each game from its seed;
+		 *        defaults to {@link ScenarioGenerator#standard()}
+		 * @return the builder for chaining; never null
+		 */
+		public Builder scenarios(ScenarioGenerator scenarios) {
+			this.scenarios = requireNonNull(scenarios);
+			return this;
+		}
+
+		/**
+		 * @param parallelism number of worker threads; defaults to the number
+		 *        of processors
+		 * @return the builder for chaining; never null
+		 */
+		public Builder parallelism(int parallelism) {
+			if (parallelism < 1) throw new IllegalArgumentException("parallelism < 1");
+			this.parallelism = parallelism;
+			return this;
+		}
+
+		/**
+		 * @param threshold number of games a task plays without splitting;
+		 *        defaults to 4
+		 * @return the builder for chaining; never null
+		 */
+		public Builder batch(int threshold) {
+			if (threshold < 1) throw new IllegalArgumentException("threshold < 1");
+			this.threshold = threshold;
+			return this;
+		}
+
+		/**
+		 * @param graph the map to play on, AIs are given no node coordinates
+		 *        for it; defaults to {@link StandardGame#standardGraph()}
+		 * @return the builder for chaining; never null
+		 */
+		public Builder on(Graph<Integer, Transport> graph) {
+			this.graph = requireNonNull(graph);
+			return this;
+		}
+
+		/**
+		 * @param map the map to play on, its distance table is given to AIs
+		 *        instead of being computed; replaces {@link #on(Graph)}
+		 * @return the builder for chaining; never null
+		 */
+		public Builder on(MapFile map) {
+			this.map = requireNonNull(map);
+			this.graph = map.graph();
+			return this;
+		}
+
+		/**
+		 * @param timeout time each player has to pick a move, after which its
+		 *        best move so far is played; by default players have no
+		 *        deadline and must pick before makeMove returns
+		 * @return the builder for chaining; never null
+		 */
+		public Builder moveTimeout(Duration timeout) {
+			if (requireNonNull(timeout).isNegative() || timeout.isZero())
+				throw new IllegalArgumentException("Timeout must be positive");
+			this.moveTimeout = timeout;
+			return this;
+		}
+
+		/**
+		 * @param metrics records the players and AI spectators of every game;
+		 *        by default nothing is recorded
+		 * @return the builder for chaining; never null
+		 */
+		public Builder metrics(GameMetrics metrics) {
+			this.metrics = requireNonNull(metrics);
+			return this;
+		}
+
+		/**
+		 * @return the farm; never null
+		 * @throws UncheckedIOException if the standard map cannot be
+		 *         loaded
+		 */
+		public GameFarm build() {
+			// every worker plays a game, so AIs split the processors between them
+			int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / parallelism);
+			try {
+				if (map != null && graph == map.graph()) {
+					resources = new HeadlessResources(map, moveTimeout, threads);
+				} else if (graph == null) {
+					graph = StandardGame.standardGraph();
+					resources = new HeadlessResources(graph,
+							StandardGame.pngMapPositionEntries(), moveTimeout, threads);
+				} else {
+					// only the standard map has known coordinates
+					resources = new HeadlessResources(graph, Collections.emptyMap(),
+							moveTimeout, threads);
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return new GameFarm(this);
+		}
+	}
+
+}
@@ -0,0 +1,363 @@
+package uk.ac.bris.cs.scotlandyard.headless;
+
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardView;
+import uk.ac.bris.cs.scotlandyard.model.Spectator;
+
+/**
+ * Latency and size histograms of games, for watching a farm or a live game
+ * without a profiler. Players and spectators are measured by wrapping them
+ * with {@link #player(Player)} and {@link #spectator(Spectator)}, and the
+ * metrics themselves are a {@link Spectator} that counts moves and games.
+ * One instance can be shared by any number of concurrent games.
+ * <br>
+ * Recorded are:
+ * <ul>
+ * <li>think time per colour, from {@link Player#makeMove} until the player
+ * picks its move</li>
+ * <li>move generation time, spent producing every valid move given to a
+ * player; {@code ScotlandYardModel} only works out double moves once the
+ * moves are used, so this happens before the player is asked and is not
+ * counted as thinking</li>
+ * <li>the number of valid moves given to a player</li>
+ * <li>time spent in each spectator callback</li>
+ * </ul>
+ * Times are in nanoseconds. {@link #snapshot()} copies all of them, and
+ * {@link #dumpEvery(Path, Duration)} writes that copy to a file as text or
+ * JSON.
+ */
+public final class GameMetrics implements Spectator {
+
+	private final Map<Colour, Histogram> think = new EnumMap<>(Colour.class);
+	private final Histogram moveGeneration = new Histogram();
+	private final Histogram validMoves = new Histogram();
+	private final Histogram spectatorCallbacks = new Histogram();
+	private final LongAdder moves = new LongAdder();
+	private final LongAdder games = new LongAdder();
+	private final LongAdder mrXWins = new LongAdder();
+
+	private static final ScheduledExecutorService DUMPS = Executors
+			.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "metrics-dump");
+				thread.setDaemon(true);
+				return thread;
+			});
+
+	public GameMetrics() {
+		for (Colour colour : Colour.values()) think.put(colour, new Histogram());
+	}
+
+	/**
+	 * @param player the player to measure; not null
+	 * @return a player that makes the same moves and records its think time,
+	 *         the number of valid moves it is given and the time taken to
+	 *         generate them
+	 */
+	public Player player(Player player) {
+		requireNonNull(player);
+		return (view, location, valid, callback) -> {
+			Colour colour = view.getCurrentPlayer();
+			long start = System.nanoTime();
+			int size = valid.size();
+			long asked = System.nanoTime();
+			moveGeneration.record(asked - start);
+			validMoves.record(size);
+			boolean[] picked = {false};
+			player.makeMove(view, location, valid, callback == null ? null : move -> {
+				if (!picked[0]) {
+					picked[0] = true;
+					think.get(colour).record(System.nanoTime() - asked);
+				}
+				callback.accept(move);
+			});
+		};
+	}
+
+	/**
+	 * @param spectator the spectator to measure; not null
+	 * @return a spectator that passes every callback on and records how long
+	 *         each took
+	 */
+	public Spectator spectator(Spectator spectator) {
+		requireNonNull(spectator);
+		return new Spectator() {
+			@Override
+			public void onMoveMade(ScotlandYardView view, Move move) {
+				timed(() -> spectator.onMoveMade(view, move));
+			}
+
+			@Override
+			public void onRoundStarted(ScotlandYardView view, int round) {
+				timed(() -> spectator.onRoundStarted(view, round));
+			}
+
+			@Override
+			public void onRotationComplete(ScotlandYardView view) {
+				timed(() -> spectator.onRotationComplete(view));
+			}
+
+			@Override
+			public void onGameOver(ScotlandYardView view, Set<Colour> winningPlayers) {
+				timed(() -> spectator.onGameOver(view, winningPlayers));
+			}
+		};
+	}
+
+	private void timed(Runnable callback) {
+		long start = System.nanoTime();
+		try {
+			callback.run();
+		} finally {
+			spectatorCallbacks.record(System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public void onMoveMade(ScotlandYardView view, Move move) {
+		moves.increment();
+	}
+
+	@Override
+	public void onGameOver(ScotlandYardView view, Set<Colour> winningPlayers) {
+		games.increment();
+		if (winningPlayers.contains(Colour.BLACK)) mrXWins.increment();
+	}
+
+	/**
+	 * @return a copy of everything recorded so far; never null
+	 */
+	public Snapshot snapshot() {
+		Map<Colour, Histogram.Snapshot> thinking = new EnumMap<>(Colour.class);
+		think.forEach((colour, histogram) -> thinking.put(colour, histogram.snapshot()));
+		return new Snapshot(moves.sum(), games.sum(), mrXWins.sum(),
+				Collections.unmodifiableMap(thinking), moveGeneration.snapshot(),
+				validMoves.snapshot(), spectatorCallbacks.snapshot());
+	}
+
+	/**
+	 * Writes a snapshot to a file, replacing it atomically so a reader never
+	 * sees half of it. The file is JSON if its name ends with {@code .json} and
+	 * text otherwise.
+	 *
+	 * @param file the file; not null
+	 * @throws IOException if the file cannot be written
+	 */
+	public void dump(Path file) throws IOException {
+		Snapshot snapshot = snapshot();
+		String content = file.getFileName().toString().endsWith(".json")
+				? snapshot.toJson()
+				: snapshot.toString();
+		Path parent = file.toAbsolutePath().getParent();
+		Files.createDirectories(parent);
+		Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+		try {
+			Files.write(temp, content.getBytes(StandardCharsets.UTF_8));
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * Calls {@link #dump(Path)} periodically on a background thread until the
+	 * returned future is cancelled. Failed writes are reported to the
+	 * handler and do not stop later ones.
+	 *
+	 * @param file the file; not null
+	 * @param period time between writes; positive
+	 * @param exceptionHandler receives failed writes; not null
+	 * @return the future of the periodic dump; never null
+	 */
+	public ScheduledFuture<?> dumpEvery(Path file, Duration period,
+			Consumer<IOException> exceptionHandler) {
+		requireNonNull(file);
+		requireNonNull(exceptionHandler);
+		if (requireNonNull(period).isNegative() || period.isZero())
+			throw new IllegalArgumentException("Period must be positive");
+		long nanos = period.toNanos();
+		return DUMPS.scheduleAtFixedRate(() -> {
+			try {
+				dump(file);
+			} catch (IOException e) {
+				exceptionHandler.accept(e);
+			}
+		}, nanos, nanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * {@link #dumpEvery(Path, Duration, Consumer)} that prints failed writes
+	 */
+	public ScheduledFuture<?> dumpEvery(Path file, Duration period) {
+		return dumpEvery(file, period, Throwable::printStackTrace);
+	}
+
+	/**
+	 * An immutable copy of {@link GameMetrics}
+	 */
+	public static final class Snapshot {
+
+		private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+		private final long moves;
+		private final long games;
+		private final long mrXWins;
+		private final Map<Colour, Histogram.Snapshot> think;
+		private final Histogram.Snapshot moveGeneration;
+		private final Histogram.Snapshot validMoves;
+		private final Histogram.Snapshot spectatorCallbacks;
+
+		private Snapshot(long moves, long games, long mrXWins,
+				Map<Colour, Histogram.Snapshot> think, Histogram.Snapshot moveGeneration,
+				Histogram.Snapshot validMoves, Histogram.Snapshot spectatorCallbacks) {
+			this.moves = moves;
+			this.games = games;
+			this.mrXWins = mrXWins;
+			this.think = think;
+			this.moveGeneration = moveGeneration;
+			this.validMoves = validMoves;
+			this.spectatorCallbacks = spectatorCallbacks;
+		}
+
+		/**
+		 * @return moves seen by the metrics as a spectator
+		 */
+		public long moves() {
+			return moves;
+		}
+
+		/**
+		 * @return games seen ending by the metrics as a spectator
+		 */
+		public long games() {
+			return games;
+		}
+
+		public long mrXWins() {
+			return mrXWins;
+		}
+
+		/**
+		 * @param colour the colour; not null
+		 * @return think times in nanoseconds of the players of the colour
+		 */
+		public Histogram.Snapshot think(Colour colour) {
+			return think.get(requireNonNull(colour));
+		}
+
+		/**
+		 * @return time in nanoseconds to generate the moves given to players
+		 */
+		public Histogram.Snapshot moveGeneration() {
+			return moveGeneration;
+		}
+
+		/**
+		 * @return number of valid moves given to players
+		 */
+		public Histogram.Snapshot validMoves() {
+			return validMoves;
+		}
+
+		/**
+		 * @return time in nanoseconds of each spectator callback
+		 */
+		public Histogram.Snapshot spectatorCallbacks() {
+			return spectatorCallbacks;
+		}
+
+		private void histograms(HistogramWriter writer) {
+			for (Entry<Colour, Histogram.Snapshot> entry : think.entrySet()) {
+				if (entry.getValue().count() != 0)
+					writer.write("think." + entry.getKey().name().toLowerCase(Locale.ENGLISH),
+							"ms", entry.getValue());
+			}
+			writer.write("moveGeneration", "ms", moveGeneration);
+			writer.write("validMoves", "", validMoves);
+			writer.write("spectatorCallbacks", "ms", spectatorCallbacks);
+		}
+
+		private interface HistogramWriter {
+			void write(String name, String unit, Histogram.Snapshot histogram);
+		}
+
+		private static String value(String unit, double value) {
+			return unit.isEmpty()
+					? format(Locale.ENGLISH, "%.0f", value)
+					: format(Locale.ENGLISH, "%.3f", value / 1e6);
+		}
+
+		/**
+		 * @return the snapshot as a JSON object, with times in milliseconds
+		 */
+		public String toJson() {
+			StringBuilder sb = new StringBuilder();
+			sb.append(format("{\"moves\": %d, \"games\": %d, \"mrXWins\": %d, \"histograms\": {",
+					moves, games, mrXWins));
+			boolean[] first = {true};
+			histograms((name, unit, histogram) -> {
+				if (!first[0]) sb.append(",");
+				first[0] = false;
+				sb.append(format("%n  \"%s\": {\"unit\": \"%s\", \"count\": %d, \"mean\": %s",
+						name, unit, histogram.count(), value(unit, histogram.mean())));
+				for (double percentile : PERCENTILES)
+					sb.append(format(Locale.ENGLISH, ", \"p%s\": %s", label(percentile),
+							value(unit, histogram.percentile(percentile))));
+				sb.append(format(", \"max\": %s}", value(unit, histogram.max())));
+			});
+			sb.append(format("%n}}%n"));
+			return sb.toString();
+		}
+
+		private static String label(double percentile) {
+			return percentile == Math.rint(percentile)
+					? String.valueOf((long) percentile)
+					: String.valueOf(percentile).replace(".", "");
+		}
+
+		/**
+		 * @return the snapshot as a table, with times in milliseconds
+		 */
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder();
+			sb.append(format("moves: %d  games: %d  MrX wins: %d%n", moves, games, mrXWins));
+			sb.append(format("%-20s %-3s %10s %10s", "", "", "count", "mean"));
+			for (double percentile : PERCENTILES) sb.append(format(" %10s", "p" + label(percentile)));
+			sb.append(format(" %10s%n", "max"));
+			histograms((name, unit, histogram) -> {
+				sb.append(format("%-20s %-3s %10d %10s", name, unit, histogram.count(),
+						value(unit, histogram.mean())));
+				for (double percentile : PERCENTILES)
+					sb.append(format(" %10s", value(unit, histogram.percentile(percentile))));
+				sb.append(format(" %10s%n", value(unit, histogram.max())));
+			});
+			return sb.toString();
+		}
+	}
+
+}
@@ -0,0 +1,75 @@
+package uk.ac.bris.cs.scotlandyard.headless;
+
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * The outcome of a single headless game
+ */
+public final class GameResult {
+
+	private final long seed;
+	private final boolean mrXWon;
+	private final int rounds;
+	private final int moves;
+	private final Throwable failure;
+
+	private GameResult(long seed, boolean mrXWon, int rounds, int moves, Throwable failure) {
+		this.seed = seed;
+		this.mrXWon = mrXWon;
+		this.rounds = rounds;
+		this.moves = moves;
+		this.failure = failure;
+	}
+
+	static GameResult finished(long seed, boolean mrXWon, int rounds, int moves) {
+		return new GameResult(seed, mrXWon, rounds, moves, null);
+	}
+
+	static GameResult failed(long seed, int rounds, int moves, Throwable failure) {
+		return new GameResult(seed, false, rounds, moves, Objects.requireNonNull(failure));
+	}
+
+	/**
+	 * @return the seed the game was set up with
+	 */
+	public long seed() {
+		return seed;
+	}
+
+	/**
+	 * @return true if MrX won; false if the detectives won or the game failed
+	 */
+	public boolean mrXWon() {
+		return mrXWon;
+	}
+
+	/**
+	 * @return the number of rounds played
+	 */
+	public int rounds() {
+		return rounds;
+	}
+
+	/**
+	 * @return the number of moves accepted, a double move counts as one
+	 */
+	public int moves() {
+		return moves;
+	}
+
+	/**
+	 * @return the exception that aborted the game, if any
+	 */
+	public Optional<Throwable> failure() {
+		return Optional.ofNullable(failure);
+	}
+
+	@Override
+	public String toString() {
+		return "GameResult{seed=" + seed
+				+ (failure != null ? ", failed=" + failure : ", winner=" + (mrXWon ? "MrX" : "detectives"))
+				+ ", rounds=" + rounds + ", moves=" + moves + '}';
+	}
+
+}
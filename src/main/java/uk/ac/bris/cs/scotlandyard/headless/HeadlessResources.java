@@ -0,0 +1,153 @@
+package uk.ac.bris.cs.scotlandyard.headless;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Optional;
+
+import javafx.geometry.Point2D;
+import javafx.scene.image.Image;
+import javafx.scene.image.WritableImage;
+import javafx.scene.layout.Pane;
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.scotlandyard.ai.ResourceProvider;
+import uk.ac.bris.cs.scotlandyard.ai.Visualiser;
+import uk.ac.bris.cs.scotlandyard.model.CanonicalGraphs;
+import uk.ac.bris.cs.scotlandyard.model.DistanceTable;
+import uk.ac.bris.cs.scotlandyard.model.MapFile;
+import uk.ac.bris.cs.scotlandyard.model.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+/**
+ * A {@link ResourceProvider} for games without a UI. The graph and, when
+ * given, node coordinates are available. Images are not loaded, a blank image
+ * stands in for the map and every ticket.
+ */
+public final class HeadlessResources implements ResourceProvider {
+
+	private final Graph<Integer, Transport> graph;
+	private final DistanceTable distances;
+	private final Map<Integer, Entry<Integer, Integer>> coordinates;
+	private final Duration moveTimeout;
+	private final int threads;
+	private volatile Image blank;
+
+	/**
+	 * @param graph the game graph, no node has coordinates; not null
+	 */
+	public HeadlessResources(Graph<Integer, Transport> graph) {
+		this(graph, null);
+	}
+
+	/**
+	 * @param graph the game graph, no node has coordinates; not null
+	 * @param moveTimeout the time players have per move, null for none
+	 */
+	public HeadlessResources(Graph<Integer, Transport> graph, Duration moveTimeout) {
+		this(graph, Collections.emptyMap(), moveTimeout);
+	}
+
+	/**
+	 * @param graph the game graph; not null
+	 * @param coordinates the position of each node, see
+	 *        {@link uk.ac.bris.cs.scotlandyard.model.StandardGame#pngMapPositionEntries()};
+	 *        not null
+	 * @param moveTimeout the time players have per move, null for none
+	 */
+	public HeadlessResources(Graph<Integer, Transport> graph,
+	                         Map<Integer, Entry<Integer, Integer>> coordinates, Duration moveTimeout) {
+		this(graph, coordinates, moveTimeout, Runtime.getRuntime().availableProcessors());
+	}
+
+	HeadlessResources(Graph<Integer, Transport> graph,
+	                  Map<Integer, Entry<Integer, Integer>> coordinates, Duration moveTimeout,
+	                  int threads) {
+		this.moveTimeout = moveTimeout;
+		this.threads = threads;
+		this.graph = CanonicalGraphs.of(Objects.requireNonNull(graph));
+		this.distances = DistanceTable.of(this.graph);
+		this.coordinates = Objects.requireNonNull(coordinates);
+	}
+
+	/**
+	 * @param map the map to take the graph, coordinates and distances from;
+	 *        not null, distances are computed if the file has none
+	 * @param moveTimeout the time players have per move, null for none
+	 */
+	public HeadlessResources(MapFile map, Duration moveTimeout) {
+		this(map, moveTimeout, Runtime.getRuntime().availableProcessors());
+	}
+
+	HeadlessResources(MapFile map, Duration moveTimeout, int threads) {
+		this.moveTimeout = moveTimeout;
+		this.threads = threads;
+		this.graph = map.graph();
+		this.distances = map.distances().orElseGet(() -> DistanceTable.of(graph));
+		this.coordinates = map.positions();
+	}
+
+	/**
+	 * Creates a visualiser for an AI that runs without a UI. Its surface is
+	 * created when first asked for and never displayed.
+	 *
+	 * @return the visualiser; never null
+	 */
+	public static Visualiser noVisualiser() {
+		return new Visualiser() {
+			private Pane surface;
+
+			@Override
+			public synchronized Pane surface() {
+				if (surface == null) surface = new Pane();
+				return surface;
+			}
+		};
+	}
+
+	@Override
+	public Image getMap() {
+		return blank();
+	}
+
+	@Override
+	public Image getTicket(Ticket ticket) {
+		return blank();
+	}
+
+	// created on demand, so the graphics toolkit is only loaded for AIs that
+	// ask for images
+	private Image blank() {
+		Image image = blank;
+		if (image == null) blank = image = new WritableImage(1, 1);
+		return image;
+	}
+
+	@Override
+	public Graph<Integer, Transport> getGraph() {
+		return graph;
+	}
+
+	@Override
+	public DistanceTable getDistances() {
+		return distances;
+	}
+
+	@Override
+	public Optional<Duration> getMoveTimeout() {
+		return Optional.ofNullable(moveTimeout);
+	}
+
+	@Override
+	public int getThreads() {
+		return threads;
+	}
+
+	@Override
+	public Point2D coordinateAtNode(int node) {
+		Entry<Integer, Integer> entry = coordinates.get(node);
+		return entry == null ? null : new Point2D(entry.getKey(), entry.getValue());
+	}
+
+}
@@ -0,0 +1,102 @@
+package uk.ac.bris.cs.scotlandyard.headless;
+
+import static java.util.stream.Collectors.joining;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+
+import uk.ac.bris.cs.scotlandyard.ai.AI;
+import uk.ac.bris.cs.scotlandyard.model.MapFile;
+
+/**
+ * Command line entry point for headless self-play, e.g.
+ *
+ * <pre>
+ * java uk.ac.bris.cs.scotlandyard.headless.HeadlessRunner \
+ *     --mrx "My AI" --detectives "My AI" --games 100000 --threads 16 --seed 0
+ * </pre>
+ *
+ * AIs are looked up by their {@link uk.ac.bris.cs.scotlandyard.ai.ManagedAI}
+ * name using {@link AI#scanClasspath()}.
+ */
+public final class HeadlessRunner {
+
+	private static final Duration METRICS_PERIOD = Duration.ofSeconds(10);
+
+	private HeadlessRunner() {}
+
+	public static void main(String[] args) throws IOException {
+		Map<String, String> options = parse(args);
+		List<AI> ais = AI.scanClasspath();
+		String available = ais.stream().map(AI::getName).collect(joining(", ", "[", "]"));
+		if (!options.containsKey("mrx") || !options.containsKey("detectives")) {
+			System.err.println("Usage: HeadlessRunner --mrx NAME --detectives NAME [--games N]"
+					+ " [--threads N] [--seed N] [--players N] [--variance N] [--timeout MS]"
+					+ " [--map FILE] [--metrics FILE]");
+			System.err.println("Available AIs: " + available);
+			System.exit(2);
+			return;
+		}
+		AI mrX = find(ais, options.get("mrx"), available);
+		AI detectives = find(ais, options.get("detectives"), available);
+		int games = Integer.parseInt(options.getOrDefault("games", "1000"));
+		long seed = Long.parseLong(options.getOrDefault("seed", "0"));
+
+		GameFarm.Builder builder = new GameFarm.Builder(mrX, detectives);
+		if (options.containsKey("threads"))
+			builder.parallelism(Integer.parseInt(options.get("threads")));
+		if (options.containsKey("timeout"))
+			builder.moveTimeout(Duration.ofMillis(Long.parseLong(options.get("timeout"))));
+		if (options.containsKey("map")) builder.on(MapFile.standard(Paths.get(options.get("map"))));
+		ScenarioGenerator.Builder scenarios = new ScenarioGenerator.Builder();
+		if (options.containsKey("players")) {
+			int detectiveCount = Integer.parseInt(options.get("players")) - 1;
+			scenarios.detectives(detectiveCount, detectiveCount);
+		}
+		if (options.containsKey("variance"))
+			scenarios.ticketVariance(Integer.parseInt(options.get("variance")));
+		builder.scenarios(scenarios.build());
+		// metrics are written while the games run and once more at the end
+		GameMetrics metrics = new GameMetrics();
+		Path metricsFile = options.containsKey("metrics") ? Paths.get(options.get("metrics")) : null;
+		if (metricsFile != null) builder.metrics(metrics);
+		ScheduledFuture<?> dumps = metricsFile == null ? null
+				: metrics.dumpEvery(metricsFile, METRICS_PERIOD);
+		FarmReport report;
+		try {
+			report = builder.build().play(seed, games);
+		} finally {
+			if (dumps != null) dumps.cancel(false);
+		}
+		if (metricsFile != null) metrics.dump(metricsFile);
+
+		System.out.println("MrX:         " + mrX.getName());
+		System.out.println("Detectives:  " + detectives.getName());
+		System.out.print(report);
+		if (metricsFile != null) System.out.print(metrics.snapshot());
+		report.firstFailure().flatMap(GameResult::failure).ifPresent(Throwable::printStackTrace);
+	}
+
+	private static AI find(List<AI> ais, String name, String available) {
+		return ais.stream().filter(ai -> ai.getName().equals(name)).findFirst()
+				.orElseThrow(() -> new IllegalArgumentException(
+						"No AI named " + name + ", available: " + available));
+	}
+
+	private static Map<String, String> parse(String[] args) {
+		Map<String, String> options = new HashMap<>();
+		for (int i = 0; i < args.length; i++) {
+			if (!args[i].startsWith("--") || i + 1 == args.length)
+				throw new IllegalArgumentException("Expected --option value but got " + args[i]);
+			options.put(args[i].substring(2), args[++i]);
+		}
+		return options;
+	}
+
+}
@@ -0,0 +1,151 @@
+package uk.ac.bris.cs.scotlandyard.headless;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.PlayerConfiguration;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardModel;
+import uk.ac.bris.cs.scotlandyard.model.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+/**
+ * A complete, immutable game setup: rounds, player colours, starting locations
+ * and tickets. Scenarios are produced by a {@link ScenarioGenerator} and are
+ * fully determined by the generator's settings and {@link #seed()}.
+ */
+public final class Scenario {
+
+	private final long seed;
+	private final List<Boolean> rounds;
+	private final List<Colour> colours;
+	private final int[] locations;
+	private final List<Map<Ticket, Integer>> tickets;
+
+	Scenario(long seed, List<Boolean> rounds, List<Colour> colours, int[] locations,
+			List<Map<Ticket, Integer>> tickets) {
+		this.seed = seed;
+		this.rounds = ImmutableList.copyOf(rounds);
+		this.colours = ImmutableList.copyOf(colours);
+		this.locations = locations.clone();
+		ImmutableList.Builder<Map<Ticket, Integer>> copies = ImmutableList.builder();
+		for (Map<Ticket, Integer> map : tickets) copies.add(ImmutableMap.copyOf(map));
+		this.tickets = copies.build();
+	}
+
+	/**
+	 * @return the seed this scenario was generated from
+	 */
+	public long seed() {
+		return seed;
+	}
+
+	/**
+	 * @return the rounds, true for reveal rounds; immutable
+	 */
+	public List<Boolean> rounds() {
+		return rounds;
+	}
+
+	/**
+	 * @return player colours, MrX first; immutable
+	 */
+	public List<Colour> colours() {
+		return colours;
+	}
+
+	/**
+	 * @return the starting location of the player
+	 * @throws IllegalArgumentException if the colour is not playing
+	 */
+	public int location(Colour colour) {
+		return locations[indexOf(colour)];
+	}
+
+	/**
+	 * @return the starting tickets of the player; immutable
+	 * @throws IllegalArgumentException if the colour is not playing
+	 */
+	public Map<Ticket, Integer> tickets(Colour colour) {
+		return tickets.get(indexOf(colour));
+	}
+
+	private int indexOf(Colour colour) {
+		int index = colours.indexOf(requireNonNull(colour));
+		if (index < 0) throw new IllegalArgumentException(colour + " is not playing");
+		return index;
+	}
+
+	/**
+	 * Creates player configurations for this scenario
+	 *
+	 * @param players supplies the player of each colour; not null
+	 * @return configurations in the order of {@link #colours()}
+	 */
+	public List<PlayerConfiguration> configurations(Function<Colour, Player> players) {
+		List<PlayerConfiguration> configurations = new ArrayList<>(colours.size());
+		for (int i = 0; i < colours.size(); i++) {
+			Colour colour = colours.get(i);
+			configurations.add(new PlayerConfiguration.Builder(colour)
+					.using(players.apply(colour))
+					.with(tickets.get(i))
+					.at(locations[i])
+					.build());
+		}
+		return configurations;
+	}
+
+	/**
+	 * Creates a game for this scenario
+	 *
+	 * @param graph the map; not null
+	 * @param players supplies the player of each colour; not null
+	 * @return a new game; never null
+	 */
+	public ScotlandYardModel newGame(Graph<Integer, Transport> graph,
+			Function<Colour, Player> players) {
+		List<PlayerConfiguration> configurations = configurations(players);
+		return new ScotlandYardModel(rounds, graph, configurations.get(0), configurations.get(1),
+				configurations.subList(2, configurations.size()).toArray(new PlayerConfiguration[0]));
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+		Scenario that = (Scenario) o;
+		return seed == that.seed
+				&& rounds.equals(that.rounds)
+				&& colours.equals(that.colours)
+				&& Arrays.equals(locations, that.locations)
+				&& tickets.equals(that.tickets);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(seed, rounds, colours, Arrays.hashCode(locations), tickets);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("Scenario{seed=").append(seed)
+				.append(", rounds=").append(rounds.size());
+		for (int i = 0; i < colours.size(); i++) {
+			sb.append(", ").append(colours.get(i)).append('@').append(locations[i])
+					.append(tickets.get(i));
+		}
+		return sb.append('}').toString();
+	}
+
+}
@@ -0,0 +1,257 @@
+package uk.ac.bris.cs.scotlandyard.headless;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import com.google.common.collect.ImmutableList;
+
+import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Ticket;
+
+/**
+ * Turns 64-bit seeds into complete game setups. The same generator settings
+ * and seed always produce an equal {@link Scenario}, on any machine, so seeds
+ * can be logged, replayed and sharded. The random sequence is SplitMix64
+ * seeded with the scenario seed, which unlike {@link java.util.Random} uses all
+ * 64 bits.
+ * <br>
+ * Scenarios are created on demand, {@link #stream(long, long)} does not hold
+ * them in memory.
+ */
+public final class ScenarioGenerator {
+
+	private static final Colour[] DETECTIVE_COLOURS = {
+			Colour.BLUE, Colour.GREEN, Colour.RED, Colour.WHITE, Colour.YELLOW};
+
+	private final List<Boolean> rounds;
+	private final int minDetectives;
+	private final int maxDetectives;
+	private final int[] mrXLocations;
+	private final int[] detectiveLocations;
+	private final Map<Ticket, Integer> mrXTickets;
+	private final Map<Ticket, Integer> detectiveTickets;
+	private final int ticketVariance;
+
+	private ScenarioGenerator(Builder builder) {
+		this.rounds = ImmutableList.copyOf(builder.rounds);
+		this.minDetectives = builder.minDetectives;
+		this.maxDetectives = builder.maxDetectives;
+		this.mrXLocations = builder.mrXLocations.stream().mapToInt(Integer::intValue).toArray();
+		this.detectiveLocations = builder.detectiveLocations.stream().mapToInt(Integer::intValue)
+				.toArray();
+		this.mrXTickets = new EnumMap<>(builder.mrXTickets);
+		this.detectiveTickets = new EnumMap<>(builder.detectiveTickets);
+		this.ticketVariance = builder.ticketVariance;
+	}
+
+	/**
+	 * @return a generator for standard games with five detectives
+	 */
+	public static ScenarioGenerator standard() {
+		return new Builder().build();
+	}
+
+	/**
+	 * Generates the scenario for a seed
+	 *
+	 * @param seed any seed
+	 * @return the scenario; never null
+	 */
+	public Scenario generate(long seed) {
+		SplitMix64 random = new SplitMix64(seed);
+		int detectives = minDetectives + random.nextInt(maxDetectives - minDetectives + 1);
+
+		List<Colour> colours = new ArrayList<>(detectives + 1);
+		colours.add(Colour.BLACK);
+		for (int i = 0; i < detectives; i++) colours.add(DETECTIVE_COLOURS[i]);
+
+		int[] locations = new int[detectives + 1];
+		locations[0] = mrXLocations[random.nextInt(mrXLocations.length)];
+		// partial Fisher-Yates over the candidates, skipping MrX's location
+		int[] candidates = detectiveLocations.clone();
+		int remaining = candidates.length;
+		for (int i = 1; i <= detectives; i++) {
+			int location;
+			do {
+				if (remaining == 0) throw new IllegalStateException(
+						"Not enough detective locations for " + detectives + " detectives");
+				int pick = random.nextInt(remaining);
+				location = candidates[pick];
+				candidates[pick] = candidates[--remaining];
+			} while (location == locations[0]);
+			locations[i] = location;
+		}
+
+		List<Map<Ticket, Integer>> tickets = new ArrayList<>(detectives + 1);
+		tickets.add(vary(mrXTickets, random));
+		for (int i = 0; i < detectives; i++) tickets.add(vary(detectiveTickets, random));
+		return new Scenario(seed, rounds, colours, locations, tickets);
+	}
+
+	private Map<Ticket, Integer> vary(Map<Ticket, Integer> base, SplitMix64 random) {
+		Map<Ticket, Integer> tickets = new EnumMap<>(Ticket.class);
+		for (Ticket ticket : Ticket.values()) {
+			int count = base.get(ticket);
+			// tickets a side does not have at all stay at zero
+			if (ticketVariance > 0 && count > 0)
+				count = Math.max(0, count + random.nextInt(2 * ticketVariance + 1) - ticketVariance);
+			tickets.put(ticket, count);
+		}
+		return tickets;
+	}
+
+	/**
+	 * Lazily generates the scenarios for {@code count} consecutive seeds
+	 *
+	 * @param firstSeed the first seed
+	 * @param count number of scenarios
+	 * @return a sized, splittable stream; never null
+	 */
+	public Stream<Scenario> stream(long firstSeed, long count) {
+		if (count < 0) throw new IllegalArgumentException("count < 0");
+		return LongStream.range(0, count).mapToObj(i -> generate(firstSeed + i));
+	}
+
+	/**
+	 * Lazily generates one shard of {@link #stream(long, long)}, seeds are
+	 * dealt round robin so shards of a run do not overlap and together cover
+	 * all of it
+	 *
+	 * @param firstSeed the first seed of the whole run
+	 * @param count number of scenarios in the whole run
+	 * @param shard index of this shard, from 0
+	 * @param shards total number of shards
+	 * @return the scenarios of this shard; never null
+	 */
+	public Stream<Scenario> shard(long firstSeed, long count, int shard, int shards) {
+		if (shards < 1 || shard < 0 || shard >= shards)
+			throw new IllegalArgumentException("Shard " + shard + " of " + shards);
+		if (count < 0) throw new IllegalArgumentException("count < 0");
+		long size = count <= shard ? 0 : (count - shard + shards - 1) / shards;
+		return LongStream.range(0, size).mapToObj(i -> generate(firstSeed + shard + i * shards));
+	}
+
+	/**
+	 * The SplitMix64 generator, small and fully specified so scenarios do not
+	 * depend on the JDK's random implementations
+	 */
+	static final class SplitMix64 {
+		private long state;
+
+		SplitMix64(long seed) {
+			this.state = seed;
+		}
+
+		long nextLong() {
+			long z = (state += 0x9E3779B97F4A7C15L);
+			z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+			z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+			return z ^ (z >>> 31);
+		}
+
+		int nextInt(int bound) {
+			return (int) (((nextLong() >>> 32) * bound) >>> 32);
+		}
+	}
+
+	/**
+	 * A builder for {@link ScenarioGenerator}, defaults to the standard game
+	 * described in {@link StandardGame}
+	 */
+	public static class Builder {
+		private List<Boolean> rounds = StandardGame.ROUNDS;
+		private int minDetectives = DETECTIVE_COLOURS.length;
+		private int maxDetectives = DETECTIVE_COLOURS.length;
+		private List<Integer> mrXLocations = StandardGame.MRX_LOCATIONS;
+		private List<Integer> detectiveLocations = StandardGame.DETECTIVE_LOCATIONS;
+		private Map<Ticket, Integer> mrXTickets = StandardGame.generateMrXTickets();
+		private Map<Ticket, Integer> detectiveTickets = StandardGame.generateDetectiveTickets();
+		private int ticketVariance;
+
+		/**
+		 * @param rounds the rounds of every scenario; not null or empty
+		 * @return the builder for chaining; never null
+		 */
+		public Builder rounds(List<Boolean> rounds) {
+			if (requireNonNull(rounds).isEmpty()) throw new IllegalArgumentException("No rounds");
+			this.rounds = rounds;
+			return this;
+		}
+
+		/**
+		 * @param min the fewest detectives, at least 1
+		 * @param max the most detectives, at most 5
+		 * @return the builder for chaining; never null
+		 */
+		public Builder detectives(int min, int max) {
+			if (min < 1 || max > DETECTIVE_COLOURS.length || min > max)
+				throw new IllegalArgumentException("Detectives must be within [1, "
+						+ DETECTIVE_COLOURS.length + "], got [" + min + ", " + max + "]");
+			this.minDetectives = min;
+			this.maxDetectives = max;
+			return this;
+		}
+
+		/**
+		 * @param mrX possible starting locations of MrX; not empty
+		 * @param detectives possible starting locations of detectives; not
+		 *        empty
+		 * @return the builder for chaining; never null
+		 */
+		public Builder locations(List<Integer> mrX, List<Integer> detectives) {
+			if (requireNonNull(mrX).isEmpty() || requireNonNull(detectives).isEmpty())
+				throw new IllegalArgumentException("No starting locations");
+			this.mrXLocations = ImmutableList.copyOf(mrX);
+			this.detectiveLocations = ImmutableList.copyOf(detectives);
+			return this;
+		}
+
+		/**
+		 * @param mrX MrX's tickets, must contain every ticket; not null
+		 * @param detectives each detective's tickets, must contain every
+		 *        ticket and no {@link Ticket#DOUBLE} or {@link Ticket#SECRET}
+		 *        tickets; not null
+		 * @return the builder for chaining; never null
+		 */
+		public Builder tickets(Map<Ticket, Integer> mrX, Map<Ticket, Integer> detectives) {
+			for (Ticket ticket : Ticket.values()) {
+				if (!mrX.containsKey(ticket) || !detectives.containsKey(ticket))
+					throw new IllegalArgumentException("Missing " + ticket + " ticket");
+			}
+			for (Ticket ticket : new Ticket[]{Ticket.DOUBLE, Ticket.SECRET}) {
+				if (detectives.get(ticket) > 0)
+					throw new IllegalArgumentException("Detectives cannot have " + ticket + " tickets");
+			}
+			this.mrXTickets = mrX;
+			this.detectiveTickets = detectives;
+			return this;
+		}
+
+		/**
+		 * @param variance every non zero ticket count is moved by a uniformly
+		 *        chosen amount in {@code [-variance, variance]}, never below
+		 *        zero; defaults to 0
+		 * @return the builder for chaining; never null
+		 */
+		public Builder ticketVariance(int variance) {
+			if (variance < 0) throw new IllegalArgumentException("variance < 0");
+			this.ticketVariance = variance;
+			return this;
+		}
+
+		/**
+		 * @return the generator; never null
+		 */
+		public ScenarioGenerator build() {
+			return new ScenarioGenerator(this);
+		}
+	}
+
+}
@@ -0,0 +1,261 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static java.util.Objects.requireNonNull;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLACK;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.DOUBLE;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.SECRET;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.gamekit.graph.ImmutableGraph;
+
+/**
+ * A {@link ScotlandYardGame} that behaves exactly like
+ * {@link ScotlandYardModel} but keeps the whole game in a
+ * {@link BitboardState} instead of a list of {@link ScotlandYardPlayer} with a
+ * ticket map each. Use {@link #state()} to obtain cheap copies for search.
+ */
+public class BitboardModel implements ScotlandYardGame, Consumer<Move> {
+
+	private final List<Boolean> rounds;
+	private final ImmutableGraph<Integer, Transport> graph;
+	private final MoveGenerator generator;
+	private final MoveList moves = new MoveList();
+	private final Colour[] colours;
+	private final Player[] players;
+	private final BitboardState state;
+	private Set<Move> validMoves = Collections.emptySet();
+	private Set<Colour> winningPlayers = new HashSet<>();
+	private final Set<Spectator> spectators = new LinkedHashSet<>();
+
+	public BitboardModel(List<Boolean> rounds, Graph<Integer, Transport> graph,
+			PlayerConfiguration mrX, PlayerConfiguration firstDetective,
+			PlayerConfiguration... restOfTheDetectives) {
+		this.rounds = requireNonNull(rounds);
+		this.graph = CanonicalGraphs.of(requireNonNull(graph));
+		if (rounds.isEmpty()) throw new IllegalArgumentException("Rounds is empty");
+		if (graph.isEmpty()) throw new IllegalArgumentException("Graph is empty");
+		requireNonNull(mrX, "MrX is null");
+		if (!mrX.colour.isMrX()) throw new IllegalArgumentException("MrX should be Black");
+
+		List<PlayerConfiguration> configurations = new ArrayList<>();
+		configurations.add(mrX);
+		configurations.add(requireNonNull(firstDetective, "First detective is null"));
+		for (PlayerConfiguration detective : requireNonNull(restOfTheDetectives))
+			configurations.add(requireNonNull(detective, "Detective is null"));
+
+		DestinationTable table = CanonicalGraphs.destinations(this.graph);
+		this.colours = new Colour[configurations.size()];
+		this.players = new Player[configurations.size()];
+
+		int[] locations = new int[configurations.size()];
+		long[] tickets = new long[configurations.size()];
+		Set<Colour> seenColours = new HashSet<>();
+		Set<Integer> seenLocations = new HashSet<>();
+		for (int i = 0; i < configurations.size(); i++) {
+			PlayerConfiguration config = configurations.get(i);
+			if (!seenColours.add(config.colour))
+				throw new IllegalArgumentException("Duplicate colour " + config.colour);
+			if (!seenLocations.add(config.location))
+				throw new IllegalArgumentException("Duplicate location " + config.location);
+			if (config.location < 0 || config.location >= table.words() * Long.SIZE)
+				throw new IllegalArgumentException("Location " + config.location + " is not on the map");
+			for (Ticket ticket : Ticket.values()) {
+				if (!config.tickets.containsKey(ticket))
+					throw new IllegalArgumentException(config.colour + " is missing " + ticket);
+			}
+			if (config.colour.isDetective()) {
+				if (config.tickets.get(DOUBLE) > 0)
+					throw new IllegalArgumentException(config.colour + " has double tickets");
+				if (config.tickets.get(SECRET) > 0)
+					throw new IllegalArgumentException(config.colour + " has secret tickets");
+			}
+			colours[i] = config.colour;
+			players[i] = config.player;
+			locations[i] = config.location;
+			tickets[i] = BitboardState.pack(config.tickets);
+		}
+		this.state = new BitboardState(locations, tickets, table.words());
+		this.generator = new MoveGenerator(table, colours, rounds.size());
+	}
+
+	/**
+	 * @return an independent copy of the current game state
+	 */
+	public BitboardState state() {
+		return state.copy();
+	}
+
+	@Override
+	public void registerSpectator(Spectator spectator) {
+		if (!spectators.add(requireNonNull(spectator)))
+			throw new IllegalArgumentException("Spectator already registered");
+	}
+
+	@Override
+	public void unregisterSpectator(Spectator spectator) {
+		if (!spectators.remove(requireNonNull(spectator)))
+			throw new IllegalArgumentException("Spectator is not registered");
+	}
+
+	@Override
+	public Collection<Spectator> getSpectators() {
+		return Collections.unmodifiableCollection(spectators);
+	}
+
+	@Override
+	public void startRotate() {
+		if (isGameOver()) {
+			if (state.round() == NOT_STARTED)
+				throw new IllegalStateException("Game over at start of game");
+			return;
+		}
+		int current = state.current();
+		validMoves = genValidMoves();
+		players[current].makeMove(this, state.location(current), validMoves, this);
+	}
+
+	@Override
+	public void accept(Move move) {
+		requireNonNull(move, "Move is null");
+		if (!validMoves.contains(move)) throw new IllegalArgumentException("Invalid move " + move);
+		move.visit(new PlayMoveVisitor());
+		if (state.current() != 0) startRotate();
+	}
+
+	private class PlayMoveVisitor implements MoveVisitor {
+
+		private final int player;
+
+		PlayMoveVisitor() {
+			player = state.current();
+			state.current((player + 1) % players.length);
+		}
+
+		@Override
+		public void visit(TicketMove move) {
+			state.removeTicket(player, move.ticket());
+			if (player != 0) state.addTicket(0, move.ticket());
+			state.location(player, move.destination());
+			TicketMove announced = move;
+			if (player == 0) {
+				if (rounds.get(state.round())) state.revealedLocation(move.destination());
+				else announced = new TicketMove(move.colour(), move.ticket(), state.revealedLocation());
+				state.round(state.round() + 1);
+			}
+			for (Spectator spectator : spectators) {
+				if (state.current() == 1) spectator.onRoundStarted(BitboardModel.this, state.round());
+				isGameOver();
+				spectator.onMoveMade(BitboardModel.this, announced);
+				if (isGameOver()) spectator.onGameOver(BitboardModel.this, getWinningPlayers());
+				else if (state.current() == 0) spectator.onRotationComplete(BitboardModel.this);
+			}
+		}
+
+		@Override
+		public void visit(DoubleMove move) {
+			state.removeTicket(player, DOUBLE);
+			int round = state.round();
+			TicketMove first = rounds.get(round) ? move.firstMove()
+					: new TicketMove(move.colour(), move.firstMove().ticket(), state.revealedLocation());
+			TicketMove second = rounds.get(round + 1) ? move.secondMove()
+					: new TicketMove(move.colour(), move.secondMove().ticket(), first.destination());
+			for (Spectator spectator : spectators)
+				spectator.onMoveMade(BitboardModel.this, new DoubleMove(move.colour(), first, second));
+			visit(move.firstMove());
+			visit(move.secondMove());
+		}
+
+		@Override
+		public void visit(PassMove move) {
+			for (Spectator spectator : spectators) spectator.onMoveMade(BitboardModel.this, move);
+		}
+	}
+
+	private Set<Move> genValidMoves() {
+		generator.generate(state, moves);
+		return ValidMoveSet.copyOf(moves);
+	}
+
+	@Override
+	public boolean isGameOver() {
+		boolean detectivesHaveTickets = false;
+		for (int i = 1; i < players.length; i++) {
+			if (state.location(i) == state.location(0)) return gameOver(false);
+			if (state.tickets(i) != 0) detectivesHaveTickets = true;
+		}
+		if (!detectivesHaveTickets) return gameOver(true);
+		if (state.current() == 0) {
+			if (state.round() == rounds.size()) return gameOver(true);
+			if (!generator.hasMoves(state)) return gameOver(false);
+		}
+		return false;
+	}
+
+	private boolean gameOver(boolean mrXWins) {
+		winningPlayers = new HashSet<>();
+		if (mrXWins) winningPlayers.add(BLACK);
+		else for (int i = 1; i < colours.length; i++) winningPlayers.add(colours[i]);
+		return true;
+	}
+
+	private int indexOf(Colour colour) {
+		for (int i = 0; i < colours.length; i++) if (colours[i] == colour) return i;
+		return -1;
+	}
+
+	@Override
+	public List<Colour> getPlayers() {
+		List<Colour> list = new ArrayList<>(colours.length);
+		Collections.addAll(list, colours);
+		return Collections.unmodifiableList(list);
+	}
+
+	@Override
+	public Set<Colour> getWinningPlayers() {
+		return Collections.unmodifiableSet(winningPlayers);
+	}
+
+	@Override
+	public Optional<Integer> getPlayerLocation(Colour colour) {
+		if (colour == BLACK) return Optional.of(state.revealedLocation());
+		int index = indexOf(colour);
+		return index < 0 ? Optional.empty() : Optional.of(state.location(index));
+	}
+
+	@Override
+	public Optional<Integer> getPlayerTickets(Colour colour, Ticket ticket) {
+		int index = indexOf(colour);
+		return index < 0 ? Optional.empty() : Optional.of(state.tickets(index, ticket));
+	}
+
+	@Override
+	public Colour getCurrentPlayer() {
+		return colours[state.current()];
+	}
+
+	@Override
+	public int getCurrentRound() {
+		return state.round();
+	}
+
+	@Override
+	public List<Boolean> getRounds() {
+		return Collections.unmodifiableList(rounds);
+	}
+
+	@Override
+	public Graph<Integer, Transport> getGraph() {
+		return graph;
+	}
+
+}
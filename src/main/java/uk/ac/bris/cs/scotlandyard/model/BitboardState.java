@@ -0,0 +1,239 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * The mutable state of a Scotland Yard game packed into a handful of
+ * primitive fields: player locations as an int array, tickets as one packed
+ * long per player and detective occupancy as a {@link NodeBitset}. Player
+ * index 0 is always MrX. Anything that does not change during a game(player
+ * colours, rounds, the map) is not part of the state so copies only cost a few
+ * hundred bytes.
+ */
+public final class BitboardState {
+
+	/**
+	 * Bits used per ticket in a packed ticket long
+	 */
+	public static final int TICKET_BITS = 12;
+
+	/**
+	 * The largest ticket count a packed ticket long can hold
+	 */
+	public static final int MAX_TICKETS = (1 << TICKET_BITS) - 1;
+
+	private final int[] locations;
+	private final long[] tickets;
+	private final long[] occupancy;
+	private int current;
+	private int round;
+	private int revealedLocation;
+
+	/**
+	 * Creates a state at the start of a game
+	 *
+	 * @param locations player locations, MrX first; the array is copied
+	 * @param tickets packed tickets(see {@link #pack(Map)}), MrX first; the
+	 *        array is copied
+	 * @param words bitset length, see {@link NodeBitset#words(int)}
+	 */
+	public BitboardState(int[] locations, long[] tickets, int words) {
+		if (locations.length < 1) throw new IllegalArgumentException("No players");
+		if (locations.length != tickets.length)
+			throw new IllegalArgumentException("locations.length != tickets.length");
+		this.locations = locations.clone();
+		this.tickets = tickets.clone();
+		this.occupancy = new long[words];
+		for (int i = 1; i < locations.length; i++) NodeBitset.add(occupancy, locations[i]);
+	}
+
+	private BitboardState(BitboardState that) {
+		this.locations = that.locations.clone();
+		this.tickets = that.tickets.clone();
+		this.occupancy = that.occupancy.clone();
+		this.current = that.current;
+		this.round = that.round;
+		this.revealedLocation = that.revealedLocation;
+	}
+
+	/**
+	 * @return an independent copy of this state
+	 */
+	public BitboardState copy() {
+		return new BitboardState(this);
+	}
+
+	/**
+	 * Overwrites this state with another one of the same shape without
+	 * allocating
+	 *
+	 * @param that the state to copy from; not null
+	 */
+	public void copyFrom(BitboardState that) {
+		if (that.locations.length != locations.length || that.occupancy.length != occupancy.length)
+			throw new IllegalArgumentException("States have different shapes");
+		System.arraycopy(that.locations, 0, locations, 0, locations.length);
+		System.arraycopy(that.tickets, 0, tickets, 0, tickets.length);
+		System.arraycopy(that.occupancy, 0, occupancy, 0, occupancy.length);
+		current = that.current;
+		round = that.round;
+		revealedLocation = that.revealedLocation;
+	}
+
+	/**
+	 * Packs a ticket map into a single long
+	 *
+	 * @param tickets the tickets; missing tickets count as zero
+	 * @return the packed tickets
+	 * @throws IllegalArgumentException if any count is negative or larger than
+	 *         {@link #MAX_TICKETS}
+	 */
+	public static long pack(Map<Ticket, Integer> tickets) {
+		long packed = 0;
+		for (Ticket ticket : Ticket.values()) {
+			int count = tickets.getOrDefault(ticket, 0);
+			if (count < 0 || count > MAX_TICKETS) throw new IllegalArgumentException(
+					"Ticket count for " + ticket + " must be in [0, " + MAX_TICKETS + "]");
+			packed |= (long) count << shift(ticket);
+		}
+		return packed;
+	}
+
+	/**
+	 * Reads a ticket count from a packed ticket long
+	 */
+	public static int count(long packed, Ticket ticket) {
+		return (int) (packed >>> shift(ticket)) & MAX_TICKETS;
+	}
+
+	private static int shift(Ticket ticket) {
+		return ticket.ordinal() * TICKET_BITS;
+	}
+
+	public int players() {
+		return locations.length;
+	}
+
+	public int location(int player) {
+		return locations[player];
+	}
+
+	/**
+	 * Moves a player, keeping the detective occupancy in sync
+	 */
+	public void location(int player, int location) {
+		if (player != 0) {
+			NodeBitset.remove(occupancy, locations[player]);
+			NodeBitset.add(occupancy, location);
+		}
+		locations[player] = location;
+	}
+
+	/**
+	 * @return the packed tickets of a player, see {@link #count(long, Ticket)}
+	 */
+	public long tickets(int player) {
+		return tickets[player];
+	}
+
+	public void tickets(int player, long packed) {
+		tickets[player] = packed;
+	}
+
+	public int tickets(int player, Ticket ticket) {
+		return count(tickets[player], ticket);
+	}
+
+	public boolean hasTicket(int player, Ticket ticket) {
+		return tickets(player, ticket) > 0;
+	}
+
+	public void addTicket(int player, Ticket ticket) {
+		if (tickets(player, ticket) == MAX_TICKETS)
+			throw new IllegalStateException("Too many " + ticket + " tickets for player " + player);
+		tickets[player] += 1L << shift(ticket);
+	}
+
+	public void removeTicket(int player, Ticket ticket) {
+		if (tickets(player, ticket) == 0)
+			throw new IllegalStateException("No " + ticket + " tickets left for player " + player);
+		tickets[player] -= 1L << shift(ticket);
+	}
+
+	/**
+	 * @return the detective occupancy bitset; callers must not modify it
+	 */
+	public long[] occupancy() {
+		return occupancy;
+	}
+
+	/**
+	 * @return the index of the player whose turn it is
+	 */
+	public int current() {
+		return current;
+	}
+
+	public void current(int current) {
+		this.current = current;
+	}
+
+	public int round() {
+		return round;
+	}
+
+	public void round(int round) {
+		this.round = round;
+	}
+
+	/**
+	 * @return MrX's last revealed location or 0 if never revealed
+	 */
+	public int revealedLocation() {
+		return revealedLocation;
+	}
+
+	public void revealedLocation(int revealedLocation) {
+		this.revealedLocation = revealedLocation;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+		BitboardState that = (BitboardState) o;
+		return current == that.current
+				&& round == that.round
+				&& revealedLocation == that.revealedLocation
+				&& Arrays.equals(locations, that.locations)
+				&& Arrays.equals(tickets, that.tickets);
+	}
+
+	@Override
+	public int hashCode() {
+		int result = Arrays.hashCode(locations);
+		result = 31 * result + Arrays.hashCode(tickets);
+		result = 31 * result + current;
+		result = 31 * result + round;
+		result = 31 * result + revealedLocation;
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder("BitboardState{");
+		sb.append("locations=").append(Arrays.toString(locations));
+		sb.append(", tickets=[");
+		for (int i = 0; i < tickets.length; i++) {
+			if (i != 0) sb.append(", ");
+			for (Ticket ticket : Ticket.values())
+				sb.append(ticket.name().charAt(0)).append(count(tickets[i], ticket));
+		}
+		sb.append("], current=").append(current);
+		sb.append(", round=").append(round);
+		sb.append(", revealedLocation=").append(revealedLocation);
+		sb.append('}');
+		return sb.toString();
+	}
+}
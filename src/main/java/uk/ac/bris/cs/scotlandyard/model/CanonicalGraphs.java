@@ -0,0 +1,48 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.gamekit.graph.ImmutableGraph;
+
+/**
+ * One frozen {@link ImmutableGraph} per distinct map, shared by every game
+ * played on it, along with its {@link DestinationTable}. Models hand the same
+ * instance out of {@code getGraph()} so views of games on the same map
+ * compare their graphs by identity or by the cached hash. Resource providers
+ * take their graph from here too, so games started from it are not copied
+ * again.
+ */
+public final class CanonicalGraphs {
+
+	private static final Interner<ImmutableGraph<Integer, Transport>> GRAPHS =
+			Interners.newWeakInterner();
+	// keyed by the canonical graph, which compares by identity first
+	private static final Map<ImmutableGraph<Integer, Transport>, DestinationTable> TABLES =
+			Collections.synchronizedMap(new WeakHashMap<>());
+
+	private CanonicalGraphs() {}
+
+	/**
+	 * @param graph the map; not null
+	 * @return the shared frozen graph equal to it; never null
+	 */
+	public static ImmutableGraph<Integer, Transport> of(Graph<Integer, Transport> graph) {
+		return GRAPHS.intern(ImmutableGraph.copyOf(graph));
+	}
+
+	/**
+	 * @param graph the map, cheapest when it is the graph of a model's view;
+	 *        not null
+	 * @return the shared destination table of the map; never null
+	 */
+	public static DestinationTable destinations(Graph<Integer, Transport> graph) {
+		return TABLES.computeIfAbsent(of(graph), DestinationTable::of);
+	}
+
+}
@@ -0,0 +1,294 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import uk.ac.bris.cs.gamekit.graph.AbstractGraph;
+import uk.ac.bris.cs.gamekit.graph.Edge;
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.gamekit.graph.Node;
+
+/**
+ * An immutable Scotland Yard map packed into primitive arrays in compressed
+ * sparse row form. Nodes are addressed by a dense index in insertion order,
+ * the edges leaving node {@code i} occupy the range
+ * {@code [edgeStart(i), edgeEnd(i))} and each edge stores its destination
+ * index and transport ordinal.
+ * <br>
+ * The {@link Graph} methods are backed by edges materialised once at
+ * construction so they never allocate; prefer the int indexed methods in hot
+ * loops. {@link #getEdges()} keeps the order of the source graph, so a
+ * compact graph equals, and hashes like, the graph it was packed from.
+ */
+public final class CompactGraph extends AbstractGraph<Integer, Transport>
+		implements
+		Graph<Integer, Transport>,
+		PackedMap,
+		Serializable {
+
+	private static final long serialVersionUID = 2938475023874650123L;
+	private static final Transport[] TRANSPORTS = Transport.values();
+
+	private final int[] values;
+	private final int[] indices;
+	private final int[] offsets;
+	private final int[] destinations;
+	private final byte[] transports;
+
+	private final List<Node<Integer>> nodes;
+	private final List<Edge<Integer, Transport>> edges;
+	private final List<List<Edge<Integer, Transport>>> edgesFrom;
+	private final List<List<Edge<Integer, Transport>>> edgesTo;
+
+	private CompactGraph(Graph<Integer, Transport> graph) {
+		List<Node<Integer>> sourceNodes = graph.getNodes();
+		int size = sourceNodes.size();
+		values = new int[size];
+		int max = -1;
+		for (int i = 0; i < size; i++) {
+			int value = sourceNodes.get(i).value();
+			if (value < 0)
+				throw new IllegalArgumentException("Negative node " + value + " is not supported");
+			values[i] = value;
+			max = Math.max(max, value);
+		}
+		indices = new int[max + 1];
+		Arrays.fill(indices, -1);
+		for (int i = 0; i < size; i++) indices[values[i]] = i;
+
+		offsets = new int[size + 1];
+		for (int i = 0; i < size; i++)
+			offsets[i + 1] = offsets[i] + graph.getEdgesFrom(sourceNodes.get(i)).size();
+		destinations = new int[offsets[size]];
+		transports = new byte[offsets[size]];
+
+		List<Node<Integer>> nodes = new ArrayList<>(size);
+		for (int value : values) nodes.add(new Node<>(value));
+		List<Edge<Integer, Transport>> edges = new ArrayList<>(offsets[size]);
+		int[] incoming = new int[size];
+		int edge = 0;
+		for (int i = 0; i < size; i++) {
+			for (Edge<Integer, Transport> e : graph.getEdgesFrom(sourceNodes.get(i))) {
+				int destination = indexOf(e.destination().value());
+				if (destination < 0) throw new IllegalArgumentException(
+						"destination of edge(" + e.destination() + ") is not in the graph");
+				destinations[edge] = destination;
+				transports[edge] = (byte) e.data().ordinal();
+				edges.add(new Edge<>(nodes.get(i), nodes.get(destination), e.data()));
+				incoming[destination]++;
+				edge++;
+			}
+		}
+
+		List<List<Edge<Integer, Transport>>> edgesFrom = new ArrayList<>(size);
+		List<List<Edge<Integer, Transport>>> edgesTo = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			edgesFrom.add(Collections.unmodifiableList(
+					new ArrayList<>(edges.subList(offsets[i], offsets[i + 1]))));
+			edgesTo.add(new ArrayList<>(incoming[i]));
+		}
+		for (Edge<Integer, Transport> e : edges)
+			edgesTo.get(indexOf(e.destination().value())).add(e);
+		edgesTo.replaceAll(Collections::unmodifiableList);
+
+		this.nodes = Collections.unmodifiableList(nodes);
+		this.edges = Collections.unmodifiableList(inSourceOrder(graph, edgesFrom));
+		this.edgesFrom = edgesFrom;
+		this.edgesTo = edgesTo;
+	}
+
+	// the same edge instances as edgesFrom, in the order the source lists them, so that
+	// equals and hashCode agree with the source graph
+	private List<Edge<Integer, Transport>> inSourceOrder(Graph<Integer, Transport> graph,
+			List<List<Edge<Integer, Transport>>> edgesFrom) {
+		Collection<Edge<Integer, Transport>> source = graph.getEdges();
+		if (source.size() != edgeCount()) throw new IllegalArgumentException(
+				"graph lists " + source.size() + " edges but has " + edgeCount() + " from its nodes");
+		List<Edge<Integer, Transport>> edges = new ArrayList<>(source.size());
+		for (Edge<Integer, Transport> e : source) {
+			int index = indexOf(e.source().value());
+			Edge<Integer, Transport> packed = null;
+			if (index >= 0) for (Edge<Integer, Transport> candidate : edgesFrom.get(index)) {
+				if (candidate.equals(e)) {
+					packed = candidate;
+					break;
+				}
+			}
+			if (packed == null)
+				throw new IllegalArgumentException(e + " is not among the edges of its source");
+			edges.add(packed);
+		}
+		return edges;
+	}
+
+	/**
+	 * Packs the given graph, returning it as is if it is already compact
+	 *
+	 * @param graph the graph to pack; not null
+	 * @return the compact graph; never null
+	 */
+	public static CompactGraph of(Graph<Integer, Transport> graph) {
+		Objects.requireNonNull(graph);
+		if (graph instanceof CompactGraph) return (CompactGraph) graph;
+		return new CompactGraph(graph);
+	}
+
+	/**
+	 * @return number of nodes, indices range from 0 inclusive to this value
+	 *         exclusive
+	 */
+	public int nodeCount() {
+		return values.length;
+	}
+
+	/**
+	 * @return number of directed edges, edge ids range from 0 inclusive to
+	 *         this value exclusive
+	 */
+	public int edgeCount() {
+		return destinations.length;
+	}
+
+	/**
+	 * @return the largest node value in this graph or -1 if empty
+	 */
+	public int maxValue() {
+		return indices.length - 1;
+	}
+
+	/**
+	 * Finds the dense index of a node value
+	 *
+	 * @param value the node value
+	 * @return the index or -1 if the node is not in the graph
+	 */
+	public int indexOf(int value) {
+		return value >= 0 && value < indices.length ? indices[value] : -1;
+	}
+
+	/**
+	 * @param index the node index
+	 * @return the node value at the given index
+	 */
+	public int valueAt(int index) {
+		return values[index];
+	}
+
+	/**
+	 * @param index the node index
+	 * @return the first edge id leaving the node
+	 */
+	public int edgeStart(int index) {
+		return offsets[index];
+	}
+
+	/**
+	 * @param index the node index
+	 * @return one past the last edge id leaving the node
+	 */
+	public int edgeEnd(int index) {
+		return offsets[index + 1];
+	}
+
+	/**
+	 * @param edge the edge id
+	 * @return the destination node index of the edge
+	 */
+	public int destination(int edge) {
+		return destinations[edge];
+	}
+
+	/**
+	 * @param edge the edge id
+	 * @return the destination node value of the edge
+	 */
+	public int destinationValue(int edge) {
+		return values[destinations[edge]];
+	}
+
+	/**
+	 * @param edge the edge id
+	 * @return the {@link Transport#ordinal()} of the edge
+	 */
+	public int transportOrdinal(int edge) {
+		return transports[edge];
+	}
+
+	/**
+	 * @param edge the edge id
+	 * @return the transport of the edge; never null
+	 */
+	public Transport transport(int edge) {
+		return TRANSPORTS[transports[edge]];
+	}
+
+	@Override
+	public void addNode(Node<Integer> node) {
+		throw new UnsupportedOperationException(
+				"Adding node is not supported in a CompactGraph");
+	}
+
+	@Override
+	public void addEdge(Edge<Integer, Transport> edge) {
+		throw new UnsupportedOperationException(
+				"Adding edge is not supported in a CompactGraph");
+	}
+
+	@Override
+	public Node<Integer> getNode(Integer value) {
+		int index = indexOf(value);
+		return index < 0 ? null : nodes.get(index);
+	}
+
+	@Override
+	public boolean containsNode(Integer value) {
+		return indexOf(value) >= 0;
+	}
+
+	@Override
+	public List<Node<Integer>> getNodes() {
+		return nodes;
+	}
+
+	@Override
+	public Collection<Edge<Integer, Transport>> getEdges() {
+		return edges;
+	}
+
+	@Override
+	public Collection<Edge<Integer, Transport>> getEdgesFrom(Node<Integer> source) {
+		return edgesFrom.get(requireIndex(source));
+	}
+
+	@Override
+	public Collection<Edge<Integer, Transport>> getEdgesTo(Node<Integer> destination) {
+		return edgesTo.get(requireIndex(destination));
+	}
+
+	private int requireIndex(Node<Integer> node) {
+		int index = indexOf(Objects.requireNonNull(node).value());
+		if (index < 0) throw new IllegalArgumentException(node + " is not in the graph");
+		return index;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return values.length == 0;
+	}
+
+	@Override
+	public int size() {
+		return values.length;
+	}
+
+	@Override
+	public String toString() {
+		return "CompactGraph{" + "nodes=" + values.length + ", edges=" + destinations.length + '}';
+	}
+
+}
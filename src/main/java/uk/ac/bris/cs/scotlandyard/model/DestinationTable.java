@@ -0,0 +1,156 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import java.util.Objects;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+
+/**
+ * A precomputed table of destination bitsets(see {@link NodeBitset}) for every
+ * node and {@link Transport} of a map, plus a merged bitset of all transports
+ * which is what a {@link Ticket#SECRET} ticket can reach. Computing the legal
+ * destinations of a ticket is then a single AND-NOT against an occupancy
+ * bitset.
+ */
+public final class DestinationTable {
+
+	private static final int ANY = Transport.values().length;
+	private static final int SLOTS = ANY + 1;
+
+	private final int words;
+	private final int nodes;
+	private final long[] masks;
+
+	private DestinationTable(CompactGraph graph) {
+		words = NodeBitset.words(Math.max(graph.maxValue(), 0));
+		nodes = graph.maxValue() + 1;
+		masks = new long[nodes * SLOTS * words];
+		for (int node = 0; node < graph.nodeCount(); node++) {
+			int value = graph.valueAt(node);
+			for (int edge = graph.edgeStart(node); edge < graph.edgeEnd(node); edge++) {
+				int destination = graph.destinationValue(edge);
+				int word = destination >>> 6;
+				long bit = 1L << destination;
+				masks[offset(value, graph.transportOrdinal(edge)) + word] |= bit;
+				masks[offset(value, ANY) + word] |= bit;
+			}
+		}
+	}
+
+	/**
+	 * Builds the table for the given map
+	 *
+	 * @param graph the map; not null
+	 * @return the table; never null
+	 */
+	public static DestinationTable of(Graph<Integer, Transport> graph) {
+		return new DestinationTable(CompactGraph.of(Objects.requireNonNull(graph)));
+	}
+
+	/**
+	 * @return the length of bitsets accepted by this table
+	 */
+	public int words() {
+		return words;
+	}
+
+	/**
+	 * @return a new, empty bitset sized for this table
+	 */
+	public long[] newBitset() {
+		return new long[words];
+	}
+
+	private int offset(int node, int slot) {
+		return (node * SLOTS + slot) * words;
+	}
+
+	private static int slotOf(Ticket ticket) {
+		switch (ticket) {
+			case TAXI:
+				return Transport.TAXI.ordinal();
+			case BUS:
+				return Transport.BUS.ordinal();
+			case UNDERGROUND:
+				return Transport.UNDERGROUND.ordinal();
+			case SECRET:
+				return ANY;
+			default:
+				return -1;
+		}
+	}
+
+	/**
+	 * Computes the nodes reachable from {@code node} with the given transport
+	 * that are not in {@code excluded}
+	 *
+	 * @param node the source node
+	 * @param transport the transport; not null
+	 * @param excluded nodes that must not be included, e.g. occupied nodes
+	 * @param out the bitset to write to, may alias {@code excluded}
+	 */
+	public void destinations(int node, Transport transport, long[] excluded, long[] out) {
+		apply(node, transport.ordinal(), excluded, out);
+	}
+
+	/**
+	 * Computes the nodes reachable from {@code node} with a single ticket that
+	 * are not in {@code excluded}. {@link Ticket#SECRET} reaches nodes of any
+	 * transport and {@link Ticket#DOUBLE} reaches nothing on its own.
+	 *
+	 * @param node the source node
+	 * @param ticket the ticket; not null
+	 * @param excluded nodes that must not be included, e.g. occupied nodes
+	 * @param out the bitset to write to, may alias {@code excluded}
+	 */
+	public void destinations(int node, Ticket ticket, long[] excluded, long[] out) {
+		int slot = slotOf(ticket);
+		if (slot < 0) NodeBitset.clear(out);
+		else apply(node, slot, excluded, out);
+	}
+
+	/**
+	 * Checks whether {@code destination} is reachable from {@code node} with a
+	 * single ticket, ignoring occupancy
+	 *
+	 * @param node the source node
+	 * @param ticket the ticket; not null
+	 * @param destination the destination node
+	 * @return true if there is an edge the ticket can be used on; false for
+	 *         nodes that are not on the map
+	 */
+	public boolean reaches(int node, Ticket ticket, int destination) {
+		int slot = slotOf(ticket);
+		if (slot < 0 || node < 0 || node >= nodes
+				|| destination < 0 || destination >= words * Long.SIZE) return false;
+		return (masks[offset(node, slot) + (destination >>> 6)] & 1L << destination) != 0;
+	}
+
+	/**
+	 * Computes the nodes reachable from any node in {@code from} with a single
+	 * ticket that are not in {@code excluded}, see
+	 * {@link #destinations(int, Ticket, long[], long[])}
+	 *
+	 * @param from the source nodes
+	 * @param ticket the ticket; not null
+	 * @param excluded nodes that must not be included, e.g. occupied nodes
+	 * @param out the bitset to write to, must not alias {@code from}
+	 */
+	public void expand(long[] from, Ticket ticket, long[] excluded, long[] out) {
+		if (from == out) throw new IllegalArgumentException("out must not alias from");
+		NodeBitset.clear(out);
+		int slot = slotOf(ticket);
+		if (slot < 0) return;
+		for (int node = NodeBitset.nextSetBit(from, 0); node >= 0 && node < nodes;
+				node = NodeBitset.nextSetBit(from, node + 1)) {
+			int offset = offset(node, slot);
+			for (int i = 0; i < words; i++) out[i] |= masks[offset + i];
+		}
+		for (int i = 0; i < words; i++) out[i] &= ~excluded[i];
+	}
+
+	private void apply(int node, int slot, long[] excluded, long[] out) {
+		int offset = offset(node, slot);
+		for (int i = 0; i < words; i++) out[i] = masks[offset + i] & ~excluded[i];
+	}
+
+}
@@ -0,0 +1,440 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+
+/**
+ * Immutable all pairs shortest path table of a map. For every subset of
+ * {@link Transport}s there is one matrix of byte sized move counts, computed
+ * with one breadth first search per node and subset in parallel. Subsets are
+ * given as masks of {@code 1 << transport.ordinal()}, see {@link #mask}.
+ * <br>
+ * Building the table for the standard map takes a few milliseconds, tables
+ * can also be written to and read back from disk, see {@link #cached(Graph,
+ * Path)}.
+ */
+public final class DistanceTable {
+
+	/**
+	 * Returned by every query when the destination cannot be reached
+	 */
+	public static final int UNREACHABLE = -1;
+
+	/**
+	 * Mask of every transport
+	 */
+	public static final int ALL = (1 << Transport.values().length) - 1;
+
+	private static final int SUBSETS = ALL + 1;
+	private static final int MAX_DISTANCE = 0xFE;
+	private static final int NONE = 0xFF;
+	private static final int MAGIC = 0x53594454;
+	private static final int VERSION = 1;
+	private static final Ticket[] SINGLE_TICKETS = {
+			Ticket.TAXI, Ticket.BUS, Ticket.UNDERGROUND, Ticket.SECRET};
+
+	private final int nodes;
+	// node value at each index and index of each node value, -1 if absent
+	private final int[] values;
+	private final int[] indices;
+	private final long fingerprint;
+	// on the heap when computed, a view of the mapped file when read from one
+	private final ByteBuffer distances;
+	private final Supplier<? extends Graph<Integer, Transport>> map;
+	private volatile CompactGraph graph;
+	private volatile DestinationTable destinations;
+
+	private DistanceTable(CompactGraph graph, long fingerprint, byte[] distances) {
+		this(graph, () -> graph, fingerprint, ByteBuffer.wrap(distances));
+		this.graph = graph;
+	}
+
+	private DistanceTable(PackedMap packed, Supplier<? extends Graph<Integer, Transport>> map,
+			long fingerprint, ByteBuffer distances) {
+		this.nodes = packed.nodeCount();
+		this.values = new int[nodes];
+		int max = -1;
+		for (int i = 0; i < nodes; i++) max = Math.max(max, values[i] = packed.valueAt(i));
+		this.indices = new int[max + 1];
+		Arrays.fill(indices, -1);
+		for (int i = 0; i < nodes; i++) indices[values[i]] = i;
+		this.map = map;
+		this.fingerprint = fingerprint;
+		this.distances = distances;
+	}
+
+	/**
+	 * Computes the table for the given map
+	 *
+	 * @param graph the map; not null
+	 * @return the table; never null
+	 * @throws IllegalArgumentException if the map has a shortest path longer
+	 *         than 254 moves
+	 */
+	public static DistanceTable of(Graph<Integer, Transport> graph) {
+		CompactGraph compact = CompactGraph.of(requireNonNull(graph));
+		int n = compact.nodeCount();
+		byte[] distances = new byte[SUBSETS * n * n];
+		IntStream.range(0, SUBSETS * n).parallel()
+				.forEach(job -> search(compact, job / n, job % n, distances));
+		return new DistanceTable(compact, fingerprint(compact), distances);
+	}
+
+	private static void search(CompactGraph graph, int mask, int source, byte[] distances) {
+		int n = graph.nodeCount();
+		int row = (mask * n + source) * n;
+		for (int i = 0; i < n; i++) distances[row + i] = (byte) NONE;
+		int[] queue = new int[n];
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = source;
+		distances[row + source] = 0;
+		while (head < tail) {
+			int node = queue[head++];
+			int next = (distances[row + node] & 0xFF) + 1;
+			for (int edge = graph.edgeStart(node); edge < graph.edgeEnd(node); edge++) {
+				if ((mask & 1 << graph.transportOrdinal(edge)) == 0) continue;
+				int destination = graph.destination(edge);
+				if ((distances[row + destination] & 0xFF) != NONE) continue;
+				if (next > MAX_DISTANCE)
+					throw new IllegalArgumentException("Shortest path longer than " + MAX_DISTANCE);
+				distances[row + destination] = (byte) next;
+				queue[tail++] = destination;
+			}
+		}
+	}
+
+	private static long fingerprint(PackedMap graph) {
+		long hash = 1125899906842597L;
+		for (int node = 0; node < graph.nodeCount(); node++) {
+			hash = 31 * hash + graph.valueAt(node);
+			for (int edge = graph.edgeStart(node); edge < graph.edgeEnd(node); edge++) {
+				hash = 31 * hash + graph.valueAt(graph.destination(edge));
+				hash = 31 * hash + graph.transportOrdinal(edge);
+			}
+		}
+		return hash;
+	}
+
+	/**
+	 * Reads the table of the given map from {@code file} if it holds one,
+	 * otherwise computes the table and writes it to {@code file}. An empty or
+	 * truncated file is treated as holding no table.
+	 *
+	 * @param graph the map; not null
+	 * @param file the cache file; not null, parent directories are created
+	 * @return the table; never null
+	 * @throws IOException if the cache cannot be read or written
+	 */
+	public static DistanceTable cached(Graph<Integer, Transport> graph, Path file)
+			throws IOException {
+		CompactGraph compact = CompactGraph.of(requireNonNull(graph));
+		requireNonNull(file);
+		if (Files.isRegularFile(file)) {
+			try (InputStream in = Files.newInputStream(file)) {
+				DistanceTable table = read(compact, in);
+				if (table != null) return table;
+			} catch (EOFException e) {
+				// cut short outside of this method, compute it again
+			}
+		}
+		DistanceTable table = of(compact);
+		Path parent = file.toAbsolutePath().getParent();
+		if (parent != null) Files.createDirectories(parent);
+		Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+		try {
+			try (OutputStream out = Files.newOutputStream(temp)) {
+				table.write(out);
+			}
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+		return table;
+	}
+
+	/**
+	 * Reads a table written with {@link #write(OutputStream)}
+	 *
+	 * @param graph the map the table was computed for; not null
+	 * @param in the stream to read from; not null, not closed
+	 * @return the table or null if the stream holds a table of another map or
+	 *         format version
+	 * @throws IOException if the stream cannot be read
+	 */
+	public static DistanceTable read(Graph<Integer, Transport> graph, InputStream in)
+			throws IOException {
+		CompactGraph compact = CompactGraph.of(requireNonNull(graph));
+		DataInputStream data = new DataInputStream(new BufferedInputStream(requireNonNull(in)));
+		if (data.readInt() != MAGIC || data.readInt() != VERSION) return null;
+		long fingerprint = data.readLong();
+		int n = data.readInt();
+		if (fingerprint != fingerprint(compact) || n != compact.nodeCount()) return null;
+		byte[] distances = new byte[SUBSETS * n * n];
+		data.readFully(distances);
+		return new DistanceTable(compact, fingerprint, distances);
+	}
+
+	/**
+	 * Reads a table written with {@link #write(OutputStream)} from a buffer
+	 * without copying it, leaving the buffer positioned after it
+	 *
+	 * @param packed the map the table was computed for; not null
+	 * @param map the same map as a graph, asked for only when needed; not null
+	 * @param buffer the buffer to read from; not null, big endian, not changed
+	 *        afterwards
+	 * @return the table or null if the buffer holds a table of another map or
+	 *         format version
+	 */
+	static DistanceTable read(PackedMap packed, Supplier<? extends Graph<Integer, Transport>> map,
+			ByteBuffer buffer) {
+		requireNonNull(packed);
+		requireNonNull(map);
+		if (buffer.remaining() < 20 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+			return null;
+		long fingerprint = buffer.getLong();
+		int n = buffer.getInt();
+		if (fingerprint != fingerprint(packed) || n != packed.nodeCount()
+				|| buffer.remaining() < SUBSETS * n * n) return null;
+		ByteBuffer distances = buffer.slice();
+		distances.limit(SUBSETS * n * n);
+		buffer.position(buffer.position() + SUBSETS * n * n);
+		return new DistanceTable(packed, map, fingerprint, distances);
+	}
+
+	/**
+	 * Writes this table so it can be read back with
+	 * {@link #read(Graph, InputStream)}
+	 *
+	 * @param out the stream to write to; not null, flushed but not closed
+	 * @throws IOException if the stream cannot be written
+	 */
+	public void write(OutputStream out) throws IOException {
+		DataOutputStream data = new DataOutputStream(new BufferedOutputStream(requireNonNull(out)));
+		data.writeInt(MAGIC);
+		data.writeInt(VERSION);
+		data.writeLong(fingerprint);
+		data.writeInt(nodes);
+		Channels.newChannel(data).write(distances.duplicate());
+		data.flush();
+	}
+
+	/**
+	 * @param transports the transports; not null
+	 * @return the mask of the given transports
+	 */
+	public static int mask(Transport... transports) {
+		int mask = 0;
+		for (Transport transport : transports) mask |= 1 << transport.ordinal();
+		return mask;
+	}
+
+	/**
+	 * @param ticket the ticket; not null
+	 * @return the mask of transports a ticket can be used on, {@link #ALL} for
+	 *         {@link Ticket#SECRET} and 0 for {@link Ticket#DOUBLE}
+	 */
+	public static int mask(Ticket ticket) {
+		switch (requireNonNull(ticket)) {
+			case TAXI:
+				return mask(Transport.TAXI);
+			case BUS:
+				return mask(Transport.BUS);
+			case UNDERGROUND:
+				return mask(Transport.UNDERGROUND);
+			case SECRET:
+				return ALL;
+			default:
+				return 0;
+		}
+	}
+
+	/**
+	 * @return the least number of moves from one node to another with any
+	 *         transport, or {@link #UNREACHABLE}
+	 */
+	public int distance(int from, int to) {
+		return distance(from, to, ALL);
+	}
+
+	/**
+	 * @param from the source node
+	 * @param to the destination node
+	 * @param mask the transports that may be used, see {@link #mask}
+	 * @return the least number of moves from one node to another using only
+	 *         the given transports, or {@link #UNREACHABLE} if there is no such
+	 *         path or either node is not on the map
+	 */
+	public int distance(int from, int to, int mask) {
+		if (mask < 0 || mask > ALL) throw new IllegalArgumentException("Invalid mask " + mask);
+		int source = indexOf(from);
+		int destination = indexOf(to);
+		if (source < 0 || destination < 0) return UNREACHABLE;
+		int distance = distances.get((mask * nodes + source) * nodes + destination) & 0xFF;
+		return distance == NONE ? UNREACHABLE : distance;
+	}
+
+	/**
+	 * Computes the least number of moves from one node to another where every
+	 * move spends one of the given tickets. Double move tickets are ignored,
+	 * a double move is two moves here.
+	 *
+	 * @param from the source node
+	 * @param to the destination node
+	 * @param tickets the tickets available; not null, missing tickets count
+	 *        as zero
+	 * @return the number of moves or {@link #UNREACHABLE}
+	 */
+	public int distance(int from, int to, Map<Ticket, Integer> tickets) {
+		requireNonNull(tickets);
+		int[] counts = new int[SINGLE_TICKETS.length];
+		int available = 0;
+		for (int i = 0; i < counts.length; i++) {
+			Integer count = tickets.get(SINGLE_TICKETS[i]);
+			if (count == null || count <= 0) continue;
+			counts[i] = Math.min(count, nodes - 1);
+			available |= 1 << i;
+		}
+		int bound = distance(from, to, transports(available));
+		if (bound <= 0) return bound;
+		// a shortest path over tickets that each cover its whole length never
+		// runs out, the best of those is an upper bound
+		int limit = Integer.MAX_VALUE;
+		for (int subset = available; subset != 0; subset = (subset - 1) & available) {
+			int distance = distance(from, to, transports(subset));
+			if (distance == UNREACHABLE || distance >= limit) continue;
+			boolean enough = true;
+			for (int i = 0; i < counts.length; i++)
+				if ((subset & 1 << i) != 0 && counts[i] < distance) enough = false;
+			if (enough) limit = distance;
+		}
+		if (limit == bound) return bound;
+		int total = counts[0] + counts[1] + counts[2] + counts[3];
+		for (int budget = bound; budget < limit && budget <= total; budget++)
+			if (constrained(from, to, counts, transports(available), budget)) return budget;
+		return limit == Integer.MAX_VALUE ? UNREACHABLE : limit;
+	}
+
+	private static int transports(int tickets) {
+		int mask = 0;
+		for (int i = 0; i < SINGLE_TICKETS.length; i++)
+			if ((tickets & 1 << i) != 0) mask |= mask(SINGLE_TICKETS[i]);
+		return mask;
+	}
+
+	/**
+	 * Checks whether a player with the given tickets could get from one node
+	 * to another within a number of moves
+	 *
+	 * @see #distance(int, int, Map)
+	 */
+	public boolean canReach(int from, int to, Map<Ticket, Integer> tickets, int moves) {
+		int distance = distance(from, to, tickets);
+		return distance != UNREACHABLE && distance <= moves;
+	}
+
+	// nodes reachable by spending exactly the tickets of each count vector,
+	// visited in order of moves; nodes that are too far from the destination
+	// to reach it within the budget are dropped, which keeps the sets small
+	private boolean constrained(int from, int to, int[] counts, int mask, int budget) {
+		DestinationTable table = destinations();
+		int[] stride = new int[counts.length];
+		int vectors = 1;
+		for (int i = counts.length - 1; i >= 0; i--) {
+			stride[i] = vectors;
+			vectors *= counts[i] + 1;
+		}
+		long[][] within = new long[budget + 1][];
+		for (int k = 0; k <= budget; k++) within[k] = table.newBitset();
+		int destination = indexOf(to);
+		for (int node = 0; node < nodes; node++) {
+			int distance = distances.get((mask * nodes + node) * nodes + destination) & 0xFF;
+			for (int k = distance; k <= budget; k++) NodeBitset.add(within[k], values[node]);
+		}
+		long[][] reached = new long[vectors][];
+		long[] none = table.newBitset();
+		long[] scratch = table.newBitset();
+		reached[0] = table.newBitset();
+		NodeBitset.add(reached[0], from);
+		for (int moves = 1; moves <= budget; moves++) {
+			boolean any = false;
+			for (int t = 0; t <= Math.min(counts[0], moves); t++)
+				for (int b = 0; b <= Math.min(counts[1], moves - t); b++)
+					for (int u = 0; u <= Math.min(counts[2], moves - t - b); u++) {
+						int s = moves - t - b - u;
+						if (s > counts[3]) continue;
+						int vector = t * stride[0] + b * stride[1] + u * stride[2] + s;
+						long[] bits = null;
+						for (int i = 0; i < counts.length; i++) {
+							int used = i == 0 ? t : i == 1 ? b : i == 2 ? u : s;
+							long[] previous = used == 0 ? null : reached[vector - stride[i]];
+							if (previous == null) continue;
+							table.expand(previous, SINGLE_TICKETS[i], none, scratch);
+							NodeBitset.and(scratch, within[budget - moves], scratch);
+							if (NodeBitset.isEmpty(scratch)) continue;
+							if (bits == null) bits = table.newBitset();
+							NodeBitset.or(bits, scratch, bits);
+						}
+						reached[vector] = bits;
+						if (bits == null) continue;
+						any = true;
+						if (NodeBitset.contains(bits, to)) return true;
+					}
+			if (!any) return false;
+		}
+		return false;
+	}
+
+	private DestinationTable destinations() {
+		DestinationTable table = destinations;
+		if (table == null) destinations = table = DestinationTable.of(graph());
+		return table;
+	}
+
+	private int indexOf(int value) {
+		return value >= 0 && value < indices.length ? indices[value] : -1;
+	}
+
+	/**
+	 * @return number of nodes on the map
+	 */
+	public int nodes() {
+		return nodes;
+	}
+
+	/**
+	 * @return the map this table was computed for, packed on first use for
+	 *         tables read from a {@link MapFile}
+	 */
+	public CompactGraph graph() {
+		CompactGraph graph = this.graph;
+		if (graph == null) this.graph = graph = CompactGraph.of(map.get());
+		return graph;
+	}
+
+	@Override
+	public String toString() {
+		return "DistanceTable{nodes=" + nodes + ", subsets=" + SUBSETS + '}';
+	}
+
+}
@@ -0,0 +1,89 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder events of a game. They cost next to nothing unless a
+ * recording has them enabled, e.g.
+ * {@code -XX:StartFlightRecording=settings=profile,filename=game.jfr}, and all
+ * of them are in the "Scotland Yard" category of the recording. Callers check
+ * {@link #isEnabled(Class)} before creating an event so nothing is allocated
+ * per move while no recording is running.
+ */
+public final class GameEvents {
+
+	private static final String CATEGORY = "Scotland Yard";
+	private static final String PREFIX = "uk.ac.bris.cs.scotlandyard.";
+
+	private static final ClassValue<EventType> TYPES = new ClassValue<>() {
+		@Override
+		protected EventType computeValue(Class<?> type) {
+			return EventType.getEventType(type.asSubclass(Event.class));
+		}
+	};
+
+	private GameEvents() {
+		// nope
+	}
+
+	/**
+	 * @param type one of the events of this class
+	 * @return true if a running recording has the event enabled
+	 */
+	public static boolean isEnabled(Class<? extends Event> type) {
+		return TYPES.get(type).isEnabled();
+	}
+
+	@Name(PREFIX + "MoveGenerated")
+	@Label("Move Generated")
+	@Category(CATEGORY)
+	@Description("Valid moves generated for a player's turn")
+	public static final class MoveGenerated extends Event {
+		@Label("Player") public String player;
+		@Label("Location") public int location;
+		@Label("Move Count") public int moveCount;
+	}
+
+	@Name(PREFIX + "MoveAccepted")
+	@Label("Move Accepted")
+	@Category(CATEGORY)
+	@Description("A move played and announced to the spectators")
+	public static final class MoveAccepted extends Event {
+		@Label("Player") public String player;
+		@Label("Move") public String move;
+		@Label("Round") public int round;
+	}
+
+	@Name(PREFIX + "SpectatorDispatch")
+	@Label("Spectator Dispatch")
+	@Category(CATEGORY)
+	@Description("Callbacks of one spectator for one move")
+	public static final class SpectatorDispatch extends Event {
+		@Label("Spectator") public Class<?> spectator;
+	}
+
+	@Name(PREFIX + "PlayerThink")
+	@Label("Player Think")
+	@Category(CATEGORY)
+	@Description("Time from asking a player for a move until its callback is called")
+	public static final class PlayerThink extends Event {
+		@Label("Player") public String player;
+		@Label("Player Class") public Class<?> playerClass;
+		@Label("Move Count") public int moveCount;
+	}
+
+	@Name(PREFIX + "GameOver")
+	@Label("Game Over")
+	@Category(CATEGORY)
+	@Description("A game that has ended")
+	public static final class GameOver extends Event {
+		@Label("Round") public int round;
+		@Label("Winners") public String winners;
+	}
+
+}
@@ -0,0 +1,371 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+
+import uk.ac.bris.cs.gamekit.graph.Edge;
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.gamekit.graph.ImmutableGraph;
+import uk.ac.bris.cs.gamekit.graph.Node;
+import uk.ac.bris.cs.gamekit.graph.UndirectedGraph;
+
+/**
+ * A Scotland Yard map in a binary form that is memory mapped instead of
+ * parsed. The file holds the nodes, the edges in compressed sparse row form
+ * (see {@link CompactGraph}), the png map coordinates of the nodes and
+ * optionally the {@link DistanceTable} of the map. The edge accessors read
+ * the mapped file directly, and so does the table from {@link #distances()};
+ * {@link #graph()} and {@link #positions()} are built from it on first use.
+ * <br>
+ * All values are big endian, the layout is:
+ * <pre>
+ * int magic, version, nodes N, edges M, links L, positions P, distance bytes D
+ * int[N]     node values
+ * int[N + 1] offsets, edges leaving node i are [offsets[i], offsets[i + 1])
+ * int[M]     destination index of each edge
+ * int[2L]    source and destination index of each link, in the order they
+ *            were added to the graph; each link is an edge and its reverse
+ * int[3P]    node value, x and y of each position
+ * byte[M]    transport ordinal of each edge
+ * byte[L]    transport ordinal of each link
+ * padding to a multiple of 4 bytes
+ * byte[D]    distance table as written by {@link DistanceTable#write}
+ * </pre>
+ * Use {@link #main(String[])} to convert {@code graph.txt} and
+ * {@code pos.txt}.
+ */
+public final class MapFile implements PackedMap {
+
+	private static final int MAGIC = 0x53594D50;
+	private static final int VERSION = 1;
+	private static final int HEADER = 7 * Integer.BYTES;
+	private static final Transport[] TRANSPORTS = Transport.values();
+
+	private final ByteBuffer buffer;
+	private final int nodes;
+	private final int edges;
+	private final int links;
+	private final int positionCount;
+	private final int distanceBytes;
+	private final int values;
+	private final int offsets;
+	private final int destinations;
+	private final int linkNodes;
+	private final int positionValues;
+	private final int transports;
+	private final int linkTransports;
+	private final int distanceTable;
+
+	private ImmutableGraph<Integer, Transport> graph;
+	private Map<Integer, Entry<Integer, Integer>> positions;
+	private Optional<DistanceTable> distances;
+
+	private MapFile(ByteBuffer buffer, int nodes, int edges, int links, int positions,
+			int distanceBytes) {
+		this.buffer = buffer;
+		this.nodes = nodes;
+		this.edges = edges;
+		this.links = links;
+		this.positionCount = positions;
+		this.distanceBytes = distanceBytes;
+		this.values = HEADER;
+		this.offsets = values + nodes * Integer.BYTES;
+		this.destinations = offsets + (nodes + 1) * Integer.BYTES;
+		this.linkNodes = destinations + edges * Integer.BYTES;
+		this.positionValues = linkNodes + 2 * links * Integer.BYTES;
+		this.transports = positionValues + 3 * positions * Integer.BYTES;
+		this.linkTransports = transports + edges;
+		this.distanceTable = align(linkTransports + links);
+	}
+
+	private static int align(int offset) {
+		return (offset + Integer.BYTES - 1) & -Integer.BYTES;
+	}
+
+	private static long size(int nodes, int edges, int links, int positions, int distanceBytes) {
+		long ints = nodes + (nodes + 1L) + edges + 2L * links + 3L * positions;
+		long bytes = HEADER + ints * Integer.BYTES + edges + links;
+		return ((bytes + Integer.BYTES - 1) & -Integer.BYTES) + distanceBytes;
+	}
+
+	/**
+	 * Memory maps a map file
+	 *
+	 * @param file the file; not null
+	 * @return the map; never null
+	 * @throws IOException if the file cannot be read or is not a map file of
+	 *         this version
+	 */
+	public static MapFile open(Path file) throws IOException {
+		MapFile map = read(requireNonNull(file));
+		if (map == null) throw new IOException(file + " is not a version " + VERSION + " map file");
+		return map;
+	}
+
+	// null if the file is not a complete map file of this version
+	private static MapFile read(Path file) throws IOException {
+		ByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() < HEADER || channel.size() > Integer.MAX_VALUE) return null;
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) return null;
+		int nodes = buffer.getInt(8);
+		int edges = buffer.getInt(12);
+		int links = buffer.getInt(16);
+		int positions = buffer.getInt(20);
+		int distanceBytes = buffer.getInt(24);
+		if ((nodes | edges | links | positions | distanceBytes) < 0) return null;
+		if (size(nodes, edges, links, positions, distanceBytes) != buffer.capacity()) return null;
+		return new MapFile(buffer, nodes, edges, links, positions, distanceBytes);
+	}
+
+	/**
+	 * Opens the standard map from a file, converting the bundled
+	 * {@code graph.txt} and {@code pos.txt} with distances into the file
+	 * first if it does not hold a map of this version
+	 *
+	 * @param file the file; not null, parent directories are created
+	 * @return the map; never null
+	 * @throws IOException if the file or the bundled map cannot be read, or
+	 *         the file cannot be written
+	 */
+	public static MapFile standard(Path file) throws IOException {
+		requireNonNull(file);
+		if (Files.isRegularFile(file)) {
+			MapFile map = read(file);
+			if (map != null) return map;
+		}
+		ImmutableGraph<Integer, Transport> graph = StandardGame.standardGraph();
+		write(graph, StandardGame.pngMapPositionEntries(), DistanceTable.of(graph), file);
+		return open(file);
+	}
+
+	/**
+	 * Writes a map file
+	 *
+	 * @param graph the map; not null, built by adding undirected edges as
+	 *        {@link ScotlandYardGraphReader} does
+	 * @param positions the png map coordinates of nodes; not null
+	 * @param distances the distance table of the map, null to leave it out
+	 * @param file the file to write; not null, replaced atomically
+	 * @throws IOException if the file cannot be written
+	 * @throws IllegalArgumentException if the edges of the graph do not come
+	 *         in pairs of an edge and its reverse
+	 */
+	public static void write(Graph<Integer, Transport> graph,
+			Map<Integer, Entry<Integer, Integer>> positions, DistanceTable distances, Path file)
+			throws IOException {
+		CompactGraph compact = CompactGraph.of(requireNonNull(graph));
+		requireNonNull(positions);
+		requireNonNull(file);
+		List<Edge<Integer, Transport>> all = new ArrayList<>(graph.getEdges());
+		if (all.size() % 2 != 0) throw new IllegalArgumentException("Graph is not undirected");
+		for (int i = 0; i < all.size(); i += 2)
+			if (!all.get(i).swap().equals(all.get(i + 1)))
+				throw new IllegalArgumentException("Edge " + all.get(i) + " is not followed by its reverse");
+		byte[] table = new byte[0];
+		if (distances != null) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			distances.write(out);
+			table = out.toByteArray();
+		}
+		int nodes = compact.nodeCount();
+		int edges = compact.edgeCount();
+		int links = all.size() / 2;
+		long size = size(nodes, edges, links, positions.size(), table.length);
+		if (size > Integer.MAX_VALUE) throw new IllegalArgumentException("Map is too large");
+
+		ByteBuffer buffer = ByteBuffer.allocate((int) size);
+		buffer.putInt(MAGIC).putInt(VERSION).putInt(nodes).putInt(edges).putInt(links)
+				.putInt(positions.size()).putInt(table.length);
+		for (int node = 0; node < nodes; node++) buffer.putInt(compact.valueAt(node));
+		for (int node = 0; node <= nodes; node++)
+			buffer.putInt(node < nodes ? compact.edgeStart(node) : edges);
+		for (int edge = 0; edge < edges; edge++) buffer.putInt(compact.destination(edge));
+		for (int i = 0; i < all.size(); i += 2) {
+			buffer.putInt(compact.indexOf(all.get(i).source().value()));
+			buffer.putInt(compact.indexOf(all.get(i).destination().value()));
+		}
+		for (Entry<Integer, Entry<Integer, Integer>> position : positions.entrySet())
+			buffer.putInt(position.getKey())
+					.putInt(position.getValue().getKey())
+					.putInt(position.getValue().getValue());
+		for (int edge = 0; edge < edges; edge++) buffer.put((byte) compact.transportOrdinal(edge));
+		for (int i = 0; i < all.size(); i += 2) buffer.put((byte) all.get(i).data().ordinal());
+		buffer.position(align(buffer.position()));
+		buffer.put(table);
+
+		Path parent = file.toAbsolutePath().getParent();
+		if (parent != null) Files.createDirectories(parent);
+		Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+		try {
+			Files.write(temp, buffer.array());
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * @return number of nodes, indices range from 0 inclusive to this value
+	 *         exclusive
+	 */
+	public int nodeCount() {
+		return nodes;
+	}
+
+	/**
+	 * @return number of directed edges, edge ids range from 0 inclusive to
+	 *         this value exclusive
+	 */
+	public int edgeCount() {
+		return edges;
+	}
+
+	/**
+	 * @return the value of the node at the given index
+	 */
+	public int valueAt(int index) {
+		return buffer.getInt(values + check(index, nodes) * Integer.BYTES);
+	}
+
+	/**
+	 * @return id of the first edge leaving the node at the given index
+	 */
+	public int edgeStart(int index) {
+		return buffer.getInt(offsets + check(index, nodes) * Integer.BYTES);
+	}
+
+	/**
+	 * @return id after the last edge leaving the node at the given index
+	 */
+	public int edgeEnd(int index) {
+		return buffer.getInt(offsets + (check(index, nodes) + 1) * Integer.BYTES);
+	}
+
+	/**
+	 * @return index of the node an edge leads to
+	 */
+	public int destination(int edge) {
+		return buffer.getInt(destinations + check(edge, edges) * Integer.BYTES);
+	}
+
+	/**
+	 * @return the {@link Transport#ordinal()} of an edge
+	 */
+	public int transportOrdinal(int edge) {
+		return buffer.get(transports + check(edge, edges));
+	}
+
+	/**
+	 * @return the transport of an edge
+	 */
+	public Transport transport(int edge) {
+		return TRANSPORTS[transportOrdinal(edge)];
+	}
+
+	private static int check(int index, int size) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException(index + " not in [0, " + size + ")");
+		return index;
+	}
+
+	/**
+	 * @return whether the file holds a distance table
+	 */
+	public boolean hasDistances() {
+		return distanceBytes > 0;
+	}
+
+	/**
+	 * @return the map as a graph equal to the one the file was written from,
+	 *         shared with games on the same map; never null
+	 */
+	public synchronized ImmutableGraph<Integer, Transport> graph() {
+		if (graph != null) return graph;
+		UndirectedGraph<Integer, Transport> built = new UndirectedGraph<>();
+		List<Node<Integer>> byIndex = new ArrayList<>(nodes);
+		for (int node = 0; node < nodes; node++) {
+			Node<Integer> value = new Node<>(valueAt(node));
+			built.addNode(value);
+			byIndex.add(value);
+		}
+		for (int link = 0; link < links; link++) {
+			int source = buffer.getInt(linkNodes + 2 * link * Integer.BYTES);
+			int destination = buffer.getInt(linkNodes + (2 * link + 1) * Integer.BYTES);
+			built.addEdge(new Edge<>(byIndex.get(source), byIndex.get(destination),
+					TRANSPORTS[buffer.get(linkTransports + link)]));
+		}
+		// nothing else holds the graph just built, so it is frozen as it is
+		return graph = CanonicalGraphs.of(ImmutableGraph.freeze(built));
+	}
+
+	/**
+	 * @return the png map coordinates of nodes, as
+	 *         {@link StandardGame#pngMapPositionEntries()} returns them; never
+	 *         null
+	 */
+	public synchronized Map<Integer, Entry<Integer, Integer>> positions() {
+		if (positions != null) return positions;
+		Map<Integer, Entry<Integer, Integer>> map = new HashMap<>();
+		for (int i = 0; i < positionCount; i++) {
+			int at = positionValues + 3 * i * Integer.BYTES;
+			map.put(buffer.getInt(at), new SimpleImmutableEntry<>(
+					buffer.getInt(at + Integer.BYTES), buffer.getInt(at + 2 * Integer.BYTES)));
+		}
+		return positions = Collections.unmodifiableMap(map);
+	}
+
+	/**
+	 * @return the distance table stored with the map, empty if there is none
+	 *         or it was computed for another map; the table is read from the
+	 *         mapped file as it is queried
+	 */
+	public synchronized Optional<DistanceTable> distances() {
+		if (distances != null) return distances;
+		if (!hasDistances()) return distances = Optional.empty();
+		ByteBuffer table = buffer.duplicate();
+		table.position(distanceTable).limit(distanceTable + distanceBytes);
+		return distances = Optional.ofNullable(DistanceTable.read(this, this::graph, table));
+	}
+
+	/**
+	 * Converts a map from text form:
+	 * {@code MapFile graph.txt pos.txt out.map [--no-distances]}
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 3 || args.length > 4
+				|| args.length == 4 && !args[3].equals("--no-distances")) {
+			System.err.println("Usage: MapFile GRAPH POSITIONS OUT [--no-distances]");
+			System.exit(2);
+			return;
+		}
+		ImmutableGraph<Integer, Transport> graph = ScotlandYardGraphReader.fromLines(
+				Files.readAllLines(Paths.get(args[0]), StandardCharsets.UTF_8));
+		Map<Integer, Entry<Integer, Integer>> positions = StandardGame.pngMapPositionEntries(
+				Files.readAllLines(Paths.get(args[1]), StandardCharsets.UTF_8));
+		write(graph, positions, args.length == 4 ? null : DistanceTable.of(graph),
+				Paths.get(args[2]));
+	}
+
+}
@@ -0,0 +1,103 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.BUS;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.DOUBLE;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.SECRET;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.TAXI;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.UNDERGROUND;
+
+import java.util.Objects;
+
+/**
+ * Generates the valid moves of a {@link BitboardState} into a
+ * {@link MoveList} without allocating, following the same rules as
+ * {@link ScotlandYardModel}: a detective without moves gets a single
+ * {@link PassMove}, MrX may double move if he has a {@link Ticket#DOUBLE}
+ * ticket and at least two rounds are left. A generator owns scratch bitsets so
+ * it must not be shared between threads.
+ */
+public final class MoveGenerator {
+
+	private static final Ticket[] SINGLE_TICKETS = {TAXI, BUS, UNDERGROUND, SECRET};
+
+	private final DestinationTable table;
+	private final Colour[] colours;
+	private final int rounds;
+	private final long[] excluded;
+	private final long[] reachable;
+
+	/**
+	 * @param table destinations of the map; not null
+	 * @param colours player colours by player index, MrX first; the array is
+	 *        copied
+	 * @param rounds the number of rounds in the game
+	 */
+	public MoveGenerator(DestinationTable table, Colour[] colours, int rounds) {
+		this.table = Objects.requireNonNull(table);
+		this.colours = colours.clone();
+		this.rounds = rounds;
+		this.excluded = table.newBitset();
+		this.reachable = table.newBitset();
+	}
+
+	/**
+	 * Replaces the content of {@code out} with the valid moves of the current
+	 * player
+	 *
+	 * @param state the state; not null, must match this generator's bitset size
+	 * @param out the buffer to fill; not null
+	 */
+	public void generate(BitboardState state, MoveList out) {
+		out.clear();
+		int player = state.current();
+		Colour colour = colours[player];
+		long tickets = state.tickets(player);
+		NodeBitset.copy(state.occupancy(), excluded);
+		NodeBitset.remove(excluded, state.location(player));
+		singleMoves(colour, state.location(player), tickets, out);
+		int singles = out.size();
+		if (singles == 0) {
+			if (player != 0) out.add(PackedMove.pass(colour));
+			return;
+		}
+		if (player != 0 || BitboardState.count(tickets, DOUBLE) == 0
+				|| state.round() >= rounds - 1) return;
+		for (int i = 0; i < singles; i++) {
+			int first = out.get(i);
+			Ticket ticket = PackedMove.firstTicket(first);
+			long remaining = tickets - (1L << ticket.ordinal() * BitboardState.TICKET_BITS);
+			int end = out.size();
+			singleMoves(colour, PackedMove.firstDestination(first), remaining, out);
+			// rewrite the second legs appended above in place as double moves
+			for (int j = end; j < out.size(); j++)
+				out.set(j, PackedMove.doubleMove(first, out.get(j)));
+		}
+	}
+
+	/**
+	 * @return true if the current player has any move other than a pass
+	 */
+	public boolean hasMoves(BitboardState state) {
+		int player = state.current();
+		NodeBitset.copy(state.occupancy(), excluded);
+		NodeBitset.remove(excluded, state.location(player));
+		for (Ticket ticket : SINGLE_TICKETS) {
+			if (!state.hasTicket(player, ticket)) continue;
+			table.destinations(state.location(player), ticket, excluded, reachable);
+			if (!NodeBitset.isEmpty(reachable)) return true;
+		}
+		return false;
+	}
+
+	private void singleMoves(Colour colour, int location, long tickets, MoveList out) {
+		for (Ticket ticket : SINGLE_TICKETS) {
+			if (BitboardState.count(tickets, ticket) == 0) continue;
+			table.destinations(location, ticket, excluded, reachable);
+			for (int destination = NodeBitset.nextSetBit(reachable, 0); destination >= 0;
+					destination = NodeBitset.nextSetBit(reachable, destination + 1)) {
+				out.add(PackedMove.ticket(colour, ticket, destination));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,118 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A growable buffer of moves encoded with {@link PackedMove}. Generators fill
+ * the buffer in place and {@link #clear()} keeps the backing array, so once a
+ * buffer has grown to the largest turn of a game no further allocation
+ * happens. {@link Move} objects are only created on demand, see
+ * {@link #asMoves()} and {@link #toMoves()}.
+ */
+public final class MoveList {
+
+	private int[] moves;
+	private int size;
+
+	public MoveList() {
+		this(64);
+	}
+
+	/**
+	 * @param capacity the initial capacity
+	 */
+	public MoveList(int capacity) {
+		if (capacity < 1) throw new IllegalArgumentException("capacity < 1");
+		moves = new int[capacity];
+	}
+
+	/**
+	 * Appends an encoded move
+	 */
+	public void add(int move) {
+		if (size == moves.length) moves = Arrays.copyOf(moves, size * 2);
+		moves[size++] = move;
+	}
+
+	/**
+	 * @return the encoded move at the given index
+	 */
+	public int get(int index) {
+		if (index < 0 || index >= size) throw new IndexOutOfBoundsException(
+				"Index " + index + " out of bounds for size " + size);
+		return moves[index];
+	}
+
+	/**
+	 * Replaces the encoded move at the given index
+	 */
+	public void set(int index, int move) {
+		get(index);
+		moves[index] = move;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes all moves, keeping the capacity
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Linear search for an encoded move
+	 */
+	public boolean contains(int move) {
+		for (int i = 0; i < size; i++) if (moves[i] == move) return true;
+		return false;
+	}
+
+	/**
+	 * @return a read only view of this buffer that decodes moves as they are
+	 *         accessed; the view reflects later changes to the buffer
+	 */
+	public List<Move> asMoves() {
+		return new AbstractList<Move>() {
+			@Override
+			public Move get(int index) {
+				return PackedMove.toMove(MoveList.this.get(index));
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+
+	/**
+	 * @return a new set holding every move of this buffer decoded
+	 */
+	public Set<Move> toMoves() {
+		Set<Move> set = new HashSet<>(Math.max(16, size * 4 / 3 + 1));
+		for (int i = 0; i < size; i++) set.add(PackedMove.toMove(moves[i]));
+		return set;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("MoveList[");
+		for (int i = 0; i < size; i++) {
+			if (i != 0) sb.append(", ");
+			sb.append(PackedMove.toString(moves[i]));
+		}
+		return sb.append(']').toString();
+	}
+
+}
@@ -0,0 +1,221 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.gamekit.graph.Node;
+
+/**
+ * A {@link Spectator} that keeps the exact set of nodes MrX could be at, as
+ * seen by the detectives. After each of MrX's moves the set is expanded along
+ * the edges of the announced ticket, minus the nodes occupied by detectives;
+ * on reveal rounds it collapses to the revealed location, and every node a
+ * detective moves to without ending the game is dropped. Double moves are
+ * tracked through the two single moves announced after them.
+ * <br>
+ * The candidates are a {@link NodeBitset} and updates do not allocate once
+ * the tracker has seen the first move. Register the tracker before the game
+ * starts, or {@link #reset(Collection)} it with what is known so far.
+ */
+public final class MrXTracker implements Spectator {
+
+	private final DestinationTable table;
+	private final long[] start;
+	private long[] candidates;
+	private long[] scratch;
+	private final long[] occupied;
+	private final int[] detectives = new int[Colour.values().length];
+	private boolean[] reveal;
+	private int lastRevealed;
+	private int hiddenMoves;
+
+	/**
+	 * Creates a tracker where MrX may start at any node of the map
+	 *
+	 * @param graph the map; not null
+	 */
+	public MrXTracker(Graph<Integer, Transport> graph) {
+		this(graph, values(requireNonNull(graph)));
+	}
+
+	/**
+	 * Creates a tracker where MrX starts at one of the given nodes
+	 *
+	 * @param graph the map; not null
+	 * @param start the possible starting locations of MrX; not null
+	 */
+	public MrXTracker(Graph<Integer, Transport> graph, Collection<Integer> start) {
+		table = CanonicalGraphs.destinations(requireNonNull(graph));
+		this.start = table.newBitset();
+		candidates = table.newBitset();
+		scratch = table.newBitset();
+		occupied = table.newBitset();
+		set(this.start, start);
+		NodeBitset.copy(this.start, candidates);
+	}
+
+	private static Set<Integer> values(Graph<Integer, Transport> graph) {
+		Set<Integer> values = new LinkedHashSet<>();
+		for (Node<Integer> node : graph.getNodes()) values.add(node.value());
+		return values;
+	}
+
+	private void set(long[] bits, Collection<Integer> nodes) {
+		NodeBitset.clear(bits);
+		for (Integer node : requireNonNull(nodes)) {
+			if (node == null || node < 0 || node >= table.words() * Long.SIZE)
+				throw new IllegalArgumentException("Location " + node + " is not on the map");
+			NodeBitset.add(bits, node);
+		}
+	}
+
+	/**
+	 * Replaces the candidates, e.g. when the tracker is registered after the
+	 * game has started
+	 *
+	 * @param candidates the nodes MrX could be at; not null
+	 */
+	public void reset(Collection<Integer> candidates) {
+		set(this.candidates, candidates);
+		hiddenMoves = 0;
+	}
+
+	private void sync(ScotlandYardView view) {
+		if (reveal != null) return;
+		List<Boolean> rounds = view.getRounds();
+		reveal = new boolean[rounds.size()];
+		for (int i = 0; i < reveal.length; i++) reveal[i] = rounds.get(i);
+		for (Colour colour : view.getPlayers()) {
+			if (colour.isMrX()) continue;
+			int location = view.getPlayerLocation(colour).orElse(0);
+			detectives[colour.ordinal()] = location;
+			if (location > 0) {
+				NodeBitset.add(occupied, location);
+				NodeBitset.remove(candidates, location);
+			}
+		}
+	}
+
+	@Override
+	public void onMoveMade(ScotlandYardView view, Move move) {
+		sync(view);
+		if (!(move instanceof TicketMove)) return;
+		TicketMove ticketMove = (TicketMove) move;
+		if (move.colour().isMrX()) onMrXMove(view.getCurrentRound() - 1, ticketMove);
+		else onDetectiveMove(ticketMove);
+	}
+
+	private void onMrXMove(int round, TicketMove move) {
+		if (round >= 0 && round < reveal.length && reveal[round]) {
+			NodeBitset.clear(candidates);
+			NodeBitset.add(candidates, move.destination());
+			lastRevealed = move.destination();
+			hiddenMoves = 0;
+		} else {
+			table.expand(candidates, move.ticket(), occupied, scratch);
+			long[] swap = candidates;
+			candidates = scratch;
+			scratch = swap;
+			hiddenMoves++;
+		}
+	}
+
+	private void onDetectiveMove(TicketMove move) {
+		int previous = detectives[move.colour().ordinal()];
+		if (previous > 0) NodeBitset.remove(occupied, previous);
+		detectives[move.colour().ordinal()] = move.destination();
+		NodeBitset.add(occupied, move.destination());
+		NodeBitset.remove(candidates, move.destination());
+	}
+
+	/**
+	 * @return true if MrX could be at the given node
+	 */
+	public boolean contains(int node) {
+		return NodeBitset.contains(candidates, node);
+	}
+
+	/**
+	 * @return the number of nodes MrX could be at; zero only if MrX moved in a
+	 *         way the tracker was not set up for, e.g. from outside the
+	 *         starting locations
+	 */
+	public int size() {
+		return NodeBitset.cardinality(candidates);
+	}
+
+	/**
+	 * Finds the next candidate, iterate with
+	 * {@code for (int n = tracker.next(0); n >= 0; n = tracker.next(n + 1))}
+	 *
+	 * @param from the node to start searching from, inclusive
+	 * @return the next candidate or -1 if there are none left
+	 */
+	public int next(int from) {
+		return NodeBitset.nextSetBit(candidates, from);
+	}
+
+	/**
+	 * Copies the candidates into {@code out}
+	 *
+	 * @param out a bitset of {@link #words()} longs
+	 */
+	public void candidates(long[] out) {
+		NodeBitset.copy(candidates, out);
+	}
+
+	/**
+	 * @return a new set holding every candidate
+	 */
+	public Set<Integer> candidateSet() {
+		Set<Integer> set = new LinkedHashSet<>();
+		for (int node = next(0); node >= 0; node = next(node + 1)) set.add(node);
+		return set;
+	}
+
+	/**
+	 * @return the length of bitsets used by this tracker
+	 */
+	public int words() {
+		return table.words();
+	}
+
+	/**
+	 * @return MrX's last revealed location or 0 if never revealed
+	 */
+	public int lastRevealed() {
+		return lastRevealed;
+	}
+
+	/**
+	 * @return number of single moves MrX made since the last reveal
+	 */
+	public int hiddenMoves() {
+		return hiddenMoves;
+	}
+
+	/**
+	 * Restores the tracker to the state it was created in so it can be
+	 * registered with a new game
+	 */
+	public void restart() {
+		NodeBitset.copy(start, candidates);
+		NodeBitset.clear(occupied);
+		Arrays.fill(detectives, 0);
+		reveal = null;
+		lastRevealed = 0;
+		hiddenMoves = 0;
+	}
+
+	@Override
+	public String toString() {
+		return "MrXTracker{candidates=" + candidateSet() + ", hiddenMoves=" + hiddenMoves + '}';
+	}
+
+}
@@ -0,0 +1,103 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import java.util.Arrays;
+
+/**
+ * Static helpers for node sets stored as {@code long[]} bitsets where bit
+ * {@code n} is set if node {@code n} is in the set. None of the methods
+ * allocate, all bitsets passed to the same call must have the same length.
+ */
+public final class NodeBitset {
+
+	private NodeBitset() {
+		// nope
+	}
+
+	/**
+	 * Computes the number of words needed to hold nodes up to a given value
+	 *
+	 * @param maxValue the largest node value; zero or greater
+	 * @return the number of longs required
+	 */
+	public static int words(int maxValue) {
+		if (maxValue < 0) throw new IllegalArgumentException("maxValue < 0");
+		return (maxValue >>> 6) + 1;
+	}
+
+	/**
+	 * @return true if node is in the set; nodes beyond the bitset are never in
+	 *         the set
+	 */
+	public static boolean contains(long[] bits, int node) {
+		int word = node >>> 6;
+		return node >= 0 && word < bits.length && (bits[word] & (1L << node)) != 0;
+	}
+
+	public static void add(long[] bits, int node) {
+		bits[node >>> 6] |= 1L << node;
+	}
+
+	public static void remove(long[] bits, int node) {
+		bits[node >>> 6] &= ~(1L << node);
+	}
+
+	public static void clear(long[] bits) {
+		Arrays.fill(bits, 0L);
+	}
+
+	public static void copy(long[] from, long[] to) {
+		System.arraycopy(from, 0, to, 0, from.length);
+	}
+
+	/**
+	 * Computes {@code out = a & ~b}, {@code out} may alias either operand
+	 */
+	public static void andNot(long[] a, long[] b, long[] out) {
+		for (int i = 0; i < out.length; i++) out[i] = a[i] & ~b[i];
+	}
+
+	/**
+	 * Computes {@code out = a | b}, {@code out} may alias either operand
+	 */
+	public static void or(long[] a, long[] b, long[] out) {
+		for (int i = 0; i < out.length; i++) out[i] = a[i] | b[i];
+	}
+
+	/**
+	 * Computes {@code out = a & b}, {@code out} may alias either operand
+	 */
+	public static void and(long[] a, long[] b, long[] out) {
+		for (int i = 0; i < out.length; i++) out[i] = a[i] & b[i];
+	}
+
+	public static boolean isEmpty(long[] bits) {
+		for (long word : bits) if (word != 0) return false;
+		return true;
+	}
+
+	public static int cardinality(long[] bits) {
+		int count = 0;
+		for (long word : bits) count += Long.bitCount(word);
+		return count;
+	}
+
+	/**
+	 * Finds the next node in the set, iterate with
+	 * {@code for (int n = nextSetBit(bits, 0); n >= 0; n = nextSetBit(bits, n + 1))}
+	 *
+	 * @param bits the set
+	 * @param from the node to start searching from, inclusive
+	 * @return the next node or -1 if there are none left
+	 */
+	public static int nextSetBit(long[] bits, int from) {
+		int index = from >>> 6;
+		if (from < 0 || index >= bits.length) return -1;
+		long word = bits[index] & (-1L << from);
+		while (true) {
+			if (word != 0) return (index << 6) + Long.numberOfTrailingZeros(word);
+			if (++index == bits.length) return -1;
+			word = bits[index];
+		}
+	}
+
+}
@@ -0,0 +1,42 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+/**
+ * A map in compressed sparse row form, held in arrays by {@link CompactGraph}
+ * and in a mapped file by {@link MapFile}. Nodes are addressed by a dense
+ * index and the edges leaving node {@code i} occupy the range
+ * {@code [edgeStart(i), edgeEnd(i))}.
+ */
+interface PackedMap {
+
+	/**
+	 * @return number of nodes, indices range from 0 inclusive to this value
+	 *         exclusive
+	 */
+	int nodeCount();
+
+	/**
+	 * @return the value of the node at the given index
+	 */
+	int valueAt(int index);
+
+	/**
+	 * @return id of the first edge leaving the node at the given index
+	 */
+	int edgeStart(int index);
+
+	/**
+	 * @return id after the last edge leaving the node at the given index
+	 */
+	int edgeEnd(int index);
+
+	/**
+	 * @return index of the node an edge leads to
+	 */
+	int destination(int edge);
+
+	/**
+	 * @return the {@link Transport#ordinal()} of an edge
+	 */
+	int transportOrdinal(int edge);
+
+}
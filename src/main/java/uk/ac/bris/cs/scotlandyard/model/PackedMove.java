@@ -0,0 +1,166 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import java.util.Objects;
+
+/**
+ * Encodes moves as a single non-negative int so move generation and search do
+ * not have to allocate {@link Move} objects. The layout, from the least
+ * significant bit, is:
+ * <ul>
+ * <li>3 bits colour ordinal</li>
+ * <li>3 bits first ticket ordinal + 1, 0 for a {@link PassMove}</li>
+ * <li>11 bits first destination</li>
+ * <li>3 bits second ticket ordinal + 1, 0 unless it is a {@link DoubleMove}</li>
+ * <li>11 bits second destination</li>
+ * </ul>
+ * Use {@link #toMove(int)} and {@link #of(Move)} to convert between the two
+ * representations; equal moves always have equal encodings.
+ */
+public final class PackedMove {
+
+	/**
+	 * The largest destination that can be encoded
+	 */
+	public static final int MAX_DESTINATION = (1 << 11) - 1;
+
+	private static final int COLOUR_MASK = 0x7;
+	private static final int TICKET_MASK = 0x7;
+	private static final int FIRST_TICKET = 3;
+	private static final int FIRST_DESTINATION = 6;
+	private static final int SECOND_TICKET = 17;
+	private static final int SECOND_DESTINATION = 20;
+
+	private static final Colour[] COLOURS = Colour.values();
+	private static final Ticket[] TICKETS = Ticket.values();
+
+	private PackedMove() {}
+
+	/**
+	 * @return the encoding of {@code new PassMove(colour)}
+	 */
+	public static int pass(Colour colour) {
+		return colour.ordinal();
+	}
+
+	/**
+	 * @return the encoding of {@code new TicketMove(colour, ticket, destination)}
+	 * @throws IllegalArgumentException if the destination is negative or larger
+	 *         than {@link #MAX_DESTINATION}
+	 */
+	public static int ticket(Colour colour, Ticket ticket, int destination) {
+		return colour.ordinal() | leg(ticket, destination, FIRST_TICKET, FIRST_DESTINATION);
+	}
+
+	/**
+	 * @return the encoding of
+	 *         {@code new DoubleMove(colour, first, firstDestination, second, secondDestination)}
+	 * @throws IllegalArgumentException if any destination is negative or larger
+	 *         than {@link #MAX_DESTINATION}
+	 */
+	public static int doubleMove(Colour colour, Ticket first, int firstDestination,
+			Ticket second, int secondDestination) {
+		return ticket(colour, first, firstDestination)
+				| leg(second, secondDestination, SECOND_TICKET, SECOND_DESTINATION);
+	}
+
+	/**
+	 * Joins two encoded ticket moves of the same player into a double move
+	 *
+	 * @param first the first leg, must be a ticket move
+	 * @param second the second leg, must be a ticket move
+	 * @return the encoded double move
+	 */
+	public static int doubleMove(int first, int second) {
+		return first | (second >>> FIRST_TICKET) << SECOND_TICKET;
+	}
+
+	private static int leg(Ticket ticket, int destination, int ticketShift, int destinationShift) {
+		if (destination < 0 || destination > MAX_DESTINATION)
+			throw new IllegalArgumentException("Destination " + destination + " cannot be encoded");
+		return (ticket.ordinal() + 1) << ticketShift | destination << destinationShift;
+	}
+
+	/**
+	 * Encodes a move
+	 *
+	 * @param move the move; not null
+	 * @return the encoded move
+	 * @throws IllegalArgumentException if a destination cannot be encoded
+	 */
+	public static int of(Move move) {
+		Objects.requireNonNull(move);
+		if (move instanceof TicketMove) {
+			TicketMove ticket = (TicketMove) move;
+			return ticket(move.colour(), ticket.ticket(), ticket.destination());
+		}
+		if (move instanceof DoubleMove) {
+			DoubleMove x2 = (DoubleMove) move;
+			return doubleMove(move.colour(),
+					x2.firstMove().ticket(), x2.firstMove().destination(),
+					x2.secondMove().ticket(), x2.secondMove().destination());
+		}
+		return pass(move.colour());
+	}
+
+	/**
+	 * Decodes a move into a new {@link Move} object
+	 */
+	public static Move toMove(int move) {
+		Colour colour = colour(move);
+		if (isPass(move)) return new PassMove(colour);
+		if (!isDouble(move)) return new TicketMove(colour, firstTicket(move), firstDestination(move));
+		return new DoubleMove(colour, firstTicket(move), firstDestination(move),
+				secondTicket(move), secondDestination(move));
+	}
+
+	public static Colour colour(int move) {
+		return COLOURS[move & COLOUR_MASK];
+	}
+
+	public static boolean isPass(int move) {
+		return (move >>> FIRST_TICKET & TICKET_MASK) == 0;
+	}
+
+	public static boolean isDouble(int move) {
+		return (move >>> SECOND_TICKET & TICKET_MASK) != 0;
+	}
+
+	/**
+	 * @return the ticket of a ticket move or the first leg of a double move
+	 */
+	public static Ticket firstTicket(int move) {
+		return TICKETS[(move >>> FIRST_TICKET & TICKET_MASK) - 1];
+	}
+
+	/**
+	 * @return the destination of a ticket move or the first leg of a double
+	 *         move
+	 */
+	public static int firstDestination(int move) {
+		return move >>> FIRST_DESTINATION & MAX_DESTINATION;
+	}
+
+	public static Ticket secondTicket(int move) {
+		return TICKETS[(move >>> SECOND_TICKET & TICKET_MASK) - 1];
+	}
+
+	public static int secondDestination(int move) {
+		return move >>> SECOND_DESTINATION & MAX_DESTINATION;
+	}
+
+	/**
+	 * @return where the player ends up after the move or -1 for a pass move
+	 */
+	public static int finalDestination(int move) {
+		if (isPass(move)) return -1;
+		return isDouble(move) ? secondDestination(move) : firstDestination(move);
+	}
+
+	/**
+	 * @return a readable form of the move, same as {@code toMove(move).toString()}
+	 */
+	public static String toString(int move) {
+		return toMove(move).toString();
+	}
+
+}
@@ -89,7 +89,7 @@ public class ScotlandYardGraphReader {
 							+ lines.get(i));
 			graph.addEdge(new Edge<>(source, destination, data));
 		}
-		return new ImmutableGraph<>(graph);
+		return ImmutableGraph.copyOf(graph);
 	}
 
 	private static String[] parseLine(int line, List<String> lines, String delimiter,
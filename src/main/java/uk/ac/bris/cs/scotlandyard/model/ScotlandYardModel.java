@@ -41,21 +41,39 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer<Move> {
 
 	
 	final private List<Boolean> rounds;
-	final private Graph<Integer, Transport> graph;
+	final private ImmutableGraph<Integer, Transport> graph;
+	final private DestinationTable destinationTable;
+	final private long[] occupied;
+	final private ValidMoveCache moveCache;
+	//Packed copy of every player's tickets, repacked only when they change
+	final private long[] packedTickets;
 	private List<ScotlandYardPlayer> players = new ArrayList<ScotlandYardPlayer>();
 	private Integer currentPlayerIndex = 0;
 	private Integer currentRound = 0;
 	private Set<Move> validMoves;
 	private Integer lastMrXLocation = 0;
-	private Set<Colour> winningPlayers = new HashSet<Colour>();
+	private Set<Colour> winningPlayers = emptySet();
+	//Game over conditions are kept up to date as moves are played so that
+	//isGameOver() is a field read for every spectator
+	private boolean captured = false;
+	private int detectiveTicketKinds = 0;
+	private boolean gameOverDirty = true;
+	private boolean gameOver = false;
+	private boolean mrXWins = false;
+	private boolean gameOverRecorded = false;
+	private Set<Colour> mrXWinners = unmodifiableSet(new HashSet<Colour>(singletonList(BLACK)));
+	private Set<Colour> detectiveWinners;
 	private Set<Spectator> spectators = new HashSet<Spectator>();
+	//Moves of a position are only asked for again until the next move is accepted
+	private static final int MOVE_CACHE_SIZE = 4;
 
 	public ScotlandYardModel(List<Boolean> rounds, Graph<Integer, Transport> graph,
 			PlayerConfiguration mrX, PlayerConfiguration firstDetective,
 			PlayerConfiguration... restOfTheDetectives) {
 		
 		this.rounds = requireNonNull(rounds);
-		this.graph = requireNonNull(graph);
+		//Every game on the same map shares one frozen graph and destination table
+		this.graph = CanonicalGraphs.of(requireNonNull(graph));
 
 		if(this.rounds.isEmpty()) {
 			throw new IllegalArgumentException("Rounds is empty.");
@@ -64,6 +82,9 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer<Move> {
 		if(this.graph.isEmpty()) {
 			throw new IllegalArgumentException("Graph is empty.");
 		}
+		this.destinationTable = CanonicalGraphs.destinations(this.graph);
+		this.occupied = destinationTable.newBitset();
+		this.moveCache = new ValidMoveCache(MOVE_CACHE_SIZE, destinationTable.words());
 
 		if(mrX == null) {
 			throw new NullPointerException("Mrx is empty");
@@ -117,6 +138,18 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer<Move> {
 			this.players.add(new ScotlandYardPlayer(config.player, config.colour, config.location, config.tickets));
 		}
 		validMoves = new HashSet<Move>();
+		packedTickets = new long[players.size()];
+		for(int i = 0; i < players.size(); i++) packTickets(i);
+
+		Set<Colour> detectives = new HashSet<Colour>();
+		for(ScotlandYardPlayer player : players) {
+			if(player.isMrX()) continue;
+			detectives.add(player.colour());
+			for(Ticket t : Ticket.values()) {
+				if(player.hasTickets(t, 1)) detectiveTicketKinds++;
+			}
+		}
+		detectiveWinners = unmodifiableSet(detectives);
 	}
 
 	@Override
@@ -139,17 +172,27 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer<Move> {
 
 	private class PlayMoveVisitor implements MoveVisitor {
 		private ScotlandYardPlayer player;
+		private int index;
 
 		PlayMoveVisitor() {
-			player = players.get(currentPlayerIndex);
+			index = currentPlayerIndex;
+			player = players.get(index);
 			currentPlayerIndex++;
 			if(currentPlayerIndex == players.size()) currentPlayerIndex = 0;
+			gameOverDirty = true;
 		}
 		
 		public void visit(TicketMove move) {
 			player.removeTicket(move.ticket());
-			if(player.isDetective()) players.get(0).addTicket(move.ticket());
+			if(player.isDetective()) {
+				players.get(0).addTicket(move.ticket());
+				packTickets(0);
+				if(!player.hasTickets(move.ticket(), 1)) detectiveTicketKinds--;
+			}
+			packTickets(index);
 			player.location(move.destination());
+			updateCaptured(player);
+			gameOverDirty = true;
 			
 			if(player.isMrX()) {
 				if(rounds.get(currentRound)) lastMrXLocation = player.location();
@@ -160,31 +203,59 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer<Move> {
 			}
 
 			for(Spectator s : spectators) {
+				GameEvents.SpectatorDispatch dispatch = dispatchStarted();
 				if(currentPlayerIndex == 1) s.onRoundStarted(ScotlandYardModel.this, currentRound);
 				isGameOver();
 				s.onMoveMade(ScotlandYardModel.this, move);
 				if(isGameOver()) s.onGameOver(ScotlandYardModel.this, getWinningPlayers());
 				else if(currentPlayerIndex == 0) s.onRotationComplete(ScotlandYardModel.this);
-				
+				dispatchEnded(dispatch, s);
 			}
-
 		}
 
 		public void visit(DoubleMove move) {
 			player.removeTicket(DOUBLE);
+			packTickets(index);
+			gameOverDirty = true;
 			//Create spoof moves for annouce
 			TicketMove fakeFirst = new TicketMove(move.colour(), move.firstMove().ticket(), lastMrXLocation);
 			if(rounds.get(currentRound)) fakeFirst = move.firstMove();
 			TicketMove fakeSecond = new TicketMove(move.colour(), move.secondMove().ticket(), fakeFirst.destination());
 			if(rounds.get(currentRound + 1)) fakeSecond = move.secondMove();
 			//Annnounce
-			for(Spectator s : spectators) s.onMoveMade(ScotlandYardModel.this, new DoubleMove(move.colour(), fakeFirst, fakeSecond));
+			DoubleMove announced = new DoubleMove(move.colour(), fakeFirst, fakeSecond);
+			for(Spectator s : spectators) {
+				GameEvents.SpectatorDispatch dispatch = dispatchStarted();
+				s.onMoveMade(ScotlandYardModel.this, announced);
+				dispatchEnded(dispatch, s);
+			}
 			this.visit(move.firstMove());
 			this.visit(move.secondMove());
 		}
 
 		public void visit(PassMove move) {
-			for(Spectator s : spectators) s.onMoveMade(ScotlandYardModel.this, move);
+			for(Spectator s : spectators) {
+				GameEvents.SpectatorDispatch dispatch = dispatchStarted();
+				s.onMoveMade(ScotlandYardModel.this, move);
+				dispatchEnded(dispatch, s);
+			}
+		}
+	}
+
+	//null unless a recording wants the event
+	private static GameEvents.SpectatorDispatch dispatchStarted() {
+		if(!GameEvents.isEnabled(GameEvents.SpectatorDispatch.class)) return null;
+		GameEvents.SpectatorDispatch dispatch = new GameEvents.SpectatorDispatch();
+		dispatch.begin();
+		return dispatch;
+	}
+
+	private static void dispatchEnded(GameEvents.SpectatorDispatch dispatch, Spectator spectator) {
+		if(dispatch == null) return;
+		dispatch.end();
+		if(dispatch.shouldCommit()) {
+			dispatch.spectator = spectator.getClass();
+			dispatch.commit();
 		}
 	}
 
@@ -195,8 +266,20 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer<Move> {
 		if(!validMoves.contains(move)) {
 			throw new IllegalArgumentException("Invalid move.");
 		}
+		moveCache.clear();
 
+		//only allocated while a recording wants it
+		GameEvents.MoveAccepted event = GameEvents.isEnabled(GameEvents.MoveAccepted.class) ?
+				new GameEvents.MoveAccepted() : null;
+		if(event != null) event.begin();
 		move.visit(new PlayMoveVisitor());
+		if(event != null) event.end();
+		if(event != null && event.shouldCommit()) {
+			event.player = move.colour().name();
+			event.move = move.toString();
+			event.round = currentRound;
+			event.commit();
+		}
 		
 		//At this time, currentPlayerIndex is the player about to move
 		//currentRound is correct.
@@ -212,74 +295,47 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer<Move> {
 		
 	}		
 
-	private Set<Integer> getOccupiedLocations() {
-		Set<Integer> occupied = new HashSet<Integer>();
-		for(ScotlandYardPlayer player : players) {
-			if(player.isDetective()) occupied.add(player.location());
-		}
-		return occupied;
+	private void packTickets(int index) {
+		packedTickets[index] = BitboardState.pack(players.get(index).tickets());
 	}
 
-	private Set<TicketMove> genMovesFromNode(Node<Integer> n, ScotlandYardPlayer player) {
-		Collection<Edge<Integer, Transport>> edges = graph.getEdgesFrom(n);
-		Set<TicketMove> moves = new HashSet<TicketMove>();
-		Set<Integer> occupied = getOccupiedLocations();
-		occupied.remove(player.location());
-
-		//For all edges coming from the player node
-		for(Edge<Integer, Transport> edge : edges) {
-			Ticket ticket = Ticket.fromTransport(edge.data());
-			Integer destination = edge.destination().value();
-
-			//If unoccupied and has tickets, add the eddge
-			if(!occupied.contains(destination)) {
-				if(player.hasTickets(ticket, 1)) {
-					moves.add(new TicketMove(player.colour(), ticket, destination));
-				}
-				if(player.hasTickets(SECRET, 1)) {
-					moves.add(new TicketMove(BLACK, SECRET, destination));
-				}
-			}
+	private void fillOccupied(ScotlandYardPlayer current, long[] occupied) {
+		NodeBitset.clear(occupied);
+		for(ScotlandYardPlayer player : players) {
+			if(player.isDetective()) NodeBitset.add(occupied, player.location());
 		}
-
-		return moves;
+		NodeBitset.remove(occupied, current.location());
 	}
 
 	private Set<Move> genValidMoves() {
 		ScotlandYardPlayer current = players.get(currentPlayerIndex);
-		Node<Integer> firstNode = graph.getNode(current.location());
-		Set<Move> moves = new HashSet<Move>();
-		Set<TicketMove> singleMoves = new HashSet<TicketMove>();
-		Set<DoubleMove> doubleMoves = new HashSet<DoubleMove>();
-
-		// Generate all single moves from the player location
-		singleMoves = genMovesFromNode(firstNode, current);
-		if(singleMoves.isEmpty() && !current.isMrX()) {
-			moves.add(new PassMove(current.colour()));
+		fillOccupied(current, occupied);
+		long tickets = packedTickets[currentPlayerIndex];
+		boolean doubleMoves = current.isMrX() && getCurrentRound() < rounds.size() - 1;
+
+		//isGameOver asks for the same moves several times per move, so reuse them
+		Set<Move> moves = moveCache.get(current.colour(), current.location(), tickets, occupied, doubleMoves);
+		if(moves != null) return moves;
+
+		//Only the single move frontier is stored, double moves are checked against
+		//the destination table and expanded only if the set is iterated
+		GameEvents.MoveGenerated event = GameEvents.isEnabled(GameEvents.MoveGenerated.class) ?
+				new GameEvents.MoveGenerated() : null;
+		if(event != null) event.begin();
+		moves = new ValidMoveSet(destinationTable, current.colour(), current.location(),
+				tickets, occupied.clone(), doubleMoves);
+		//Counting expands the set, so only do it when the event is recorded
+		if(event != null) {
+			event.moveCount = moves.size();
+			event.end();
 		}
-		//Check conditions for double moves before generating them
-		else if(current.isMrX() && current.hasTickets(DOUBLE) && getCurrentRound() < rounds.size() - 1) {
-			//For each single move, look for second moves which can be made
-			for (TicketMove firstMove : singleMoves) {
-				Set<TicketMove> secondMoves = new HashSet<TicketMove>();
-				Node<Integer> secondNode = graph.getNode(firstMove.destination());
-	
-				// Generate second moves from first move using new ticket count
-				current.removeTicket(firstMove.ticket());
-				secondMoves = genMovesFromNode(secondNode, current);
-				current.addTicket(firstMove.ticket());
-				
-				//Add all double moves using the first move and second moves generated
-				for(TicketMove secondMove : secondMoves) {
-					doubleMoves.add(new DoubleMove(current.colour(), firstMove, secondMove));
-				}
-			}
+		if(event != null && event.shouldCommit()) {
+			event.player = current.colour().name();
+			event.location = current.location();
+			event.commit();
 		}
-		moves.addAll(singleMoves);
-		moves.addAll(doubleMoves);
-		// Return all single and double moves
+		moveCache.put(current.colour(), current.location(), tickets, occupied, doubleMoves, moves);
 		return moves;
-		// return Sets.union(singleMoves, doubleMoves);
 	}
 
 	@Override
@@ -310,7 +366,7 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer<Move> {
 	
 	public Set<Colour> getWinningPlayers() {
 		
-		return Collections.unmodifiableSet(winningPlayers);
+		return winningPlayers;
 	}
 
 	@Override
@@ -334,42 +390,56 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer<Move> {
 		return Optional.empty();
 	}
 
-	private Boolean gameOverReturnAndSetPlayers(Boolean MrXWins) {
-		winningPlayers = new HashSet<Colour>();
-		if(MrXWins) winningPlayers.add(BLACK);
-		else {
-			for(ScotlandYardPlayer player : players) {
-				if(player.isDetective()) winningPlayers.add(player.colour());
-			}
+	private void updateCaptured(ScotlandYardPlayer moved) {
+		ScotlandYardPlayer mrX = players.get(0);
+		if(moved.isDetective()) {
+			if(moved.location() == mrX.location()) captured = true;
+			return;
+		}
+		for(ScotlandYardPlayer player : players) {
+			if(player.isDetective() && player.location() == mrX.location()) captured = true;
 		}
-		return true;
 	}
 
-	@Override
-	public boolean isGameOver() 
-	{
-		Boolean haveTickets = false;
+	private void updateGameOver() {
+		gameOverDirty = false;
+		gameOver = true;
+		mrXWins = false;
 
-		//For all detectives
-		for(ScotlandYardPlayer player : players) {
-			//In same location as MrXtestGameOverShouldNotifyGameOverOnce
-			if(player.isDetective() && player.location() == players.get(0).location()) return gameOverReturnAndSetPlayers(false);
-			for(Ticket t : Ticket.values()) {
-				if(player.isDetective() && player.hasTickets(t, 1)) haveTickets = true;
-			}
-		}
+		//A detective is in same location as MrX
+		if(captured) return;
 
 		//No detectives have any tickets left
-		if(!haveTickets) return gameOverReturnAndSetPlayers(true);
+		mrXWins = true;
+		if(detectiveTicketKinds == 0) return;
 
 		//MrX meant to move next and start a new round
 		if(currentPlayerIndex == 0) {
 			//Current round is final round
-			if(currentRound == rounds.size()) return gameOverReturnAndSetPlayers(true);
+			if(currentRound == rounds.size()) return;
 			//MrX cannot move next round
-			if(genValidMoves().isEmpty()) return gameOverReturnAndSetPlayers(false);
+			mrXWins = false;
+			if(genValidMoves().isEmpty()) return;
+		}
+		gameOver = false;
+	}
+
+	@Override
+	public boolean isGameOver() 
+	{
+		if(gameOverDirty) updateGameOver();
+		if(gameOver) winningPlayers = mrXWins ? mrXWinners : detectiveWinners;
+		if(gameOver && !gameOverRecorded) {
+			gameOverRecorded = true;
+			GameEvents.GameOver event = GameEvents.isEnabled(GameEvents.GameOver.class) ?
+					new GameEvents.GameOver() : null;
+			if(event != null && event.shouldCommit()) {
+				event.round = currentRound;
+				event.winners = winningPlayers.toString();
+				event.commit();
+			}
 		}
-		return false;
+		return gameOver;
 	}
 
 	@Override
@@ -390,6 +460,6 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer<Move> {
 
 	@Override
 	public ImmutableGraph<Integer, Transport> getGraph() {
-		return new ImmutableGraph<Integer, Transport>(this.graph);
+		return this.graph;
 	}
 }
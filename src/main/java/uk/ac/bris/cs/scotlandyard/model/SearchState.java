@@ -0,0 +1,380 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static java.util.Objects.requireNonNull;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLACK;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.DOUBLE;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A headless, reversible copy of a game for look ahead search. Moves are
+ * applied with {@link #apply(Move)} and reverted with {@link #undo()} which
+ * restores locations, tickets, the current player, the round and MrX's reveal
+ * state exactly. Moves are applied with the same rules as
+ * {@link ScotlandYardModel#accept(Move)} but are not validated against the
+ * map and no spectators are notified. Moves may be given as {@link Move}
+ * objects or encoded with {@link PackedMove}, as produced by
+ * {@link #generateMoves(MoveList)}.
+ * <br>
+ * The undo stack is preallocated so applying and undoing moves does not
+ * allocate unless the search goes deeper than the initial capacity.
+ */
+public final class SearchState {
+
+	/**
+	 * Default number of plies the undo stack holds before growing
+	 */
+	public static final int DEFAULT_CAPACITY = 64;
+
+	// mover, mover location, current player, round, revealed location
+	private static final int INT_STRIDE = 5;
+	// mover tickets, MrX tickets, hash
+	private static final int LONG_STRIDE = 3;
+
+	private static final int NOT_OVER = 0;
+	private static final int MRX_WINS = 1;
+	private static final int DETECTIVES_WIN = 2;
+
+	private final Colour[] colours;
+	private final boolean[] reveal;
+	private final BitboardState state;
+	private int[] ints;
+	private long[] longs;
+	private int depth;
+	private long hash;
+	private final MoveGenerator generator;
+
+	/**
+	 * Creates a search state from a view where MrX is assumed to be at the
+	 * given location
+	 *
+	 * @param view the view to copy; not null
+	 * @param mrXLocation MrX's actual or assumed location
+	 */
+	public SearchState(ScotlandYardView view, int mrXLocation) {
+		this(view, mrXLocation, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a search state from a view where MrX is assumed to be at the
+	 * given location
+	 *
+	 * @param view the view to copy; not null
+	 * @param mrXLocation MrX's actual or assumed location
+	 * @param capacity initial depth of the undo stack
+	 */
+	public SearchState(ScotlandYardView view, int mrXLocation, int capacity) {
+		this(view, mrXLocation, CanonicalGraphs.destinations(view.getGraph()), capacity);
+	}
+
+	/**
+	 * Creates a search state from a view where MrX is assumed to be at the
+	 * given location, sharing a destination table built from the view's map
+	 * so many states can be created cheaply
+	 *
+	 * @param view the view to copy; not null
+	 * @param mrXLocation MrX's actual or assumed location
+	 * @param table the destinations of the view's map; not null
+	 * @param capacity initial depth of the undo stack
+	 */
+	public SearchState(ScotlandYardView view, int mrXLocation, DestinationTable table,
+			int capacity) {
+		requireNonNull(view);
+		requireNonNull(table);
+		if (capacity < 1) throw new IllegalArgumentException("capacity < 1");
+		List<Colour> players = view.getPlayers();
+		colours = players.toArray(new Colour[0]);
+		if (colours.length == 0 || colours[0] != BLACK)
+			throw new IllegalArgumentException("First player must be MrX");
+		List<Boolean> rounds = view.getRounds();
+		reveal = new boolean[rounds.size()];
+		for (int i = 0; i < reveal.length; i++) reveal[i] = rounds.get(i);
+
+		int[] locations = new int[colours.length];
+		long[] tickets = new long[colours.length];
+		for (int i = 0; i < colours.length; i++) {
+			Colour colour = colours[i];
+			locations[i] = i == 0 ? mrXLocation : require(view.getPlayerLocation(colour).orElse(null), colour);
+			if (locations[i] < 0 || locations[i] >= table.words() * Long.SIZE)
+				throw new IllegalArgumentException("Location " + locations[i] + " is not on the map");
+			Map<Ticket, Integer> counts = new EnumMap<>(Ticket.class);
+			for (Ticket ticket : Ticket.values())
+				counts.put(ticket, require(view.getPlayerTickets(colour, ticket).orElse(null), colour));
+			tickets[i] = BitboardState.pack(counts);
+		}
+		state = new BitboardState(locations, tickets, table.words());
+		generator = new MoveGenerator(table, colours, reveal.length);
+		state.current(indexOf(view.getCurrentPlayer()));
+		state.round(view.getCurrentRound());
+		state.revealedLocation(view.getPlayerLocation(BLACK).orElse(0));
+		hash = Zobrist.of(state);
+		ints = new int[capacity * INT_STRIDE];
+		longs = new long[capacity * LONG_STRIDE];
+	}
+
+	private static int require(Integer value, Colour colour) {
+		if (value == null) throw new IllegalArgumentException("View has no data for " + colour);
+		return value;
+	}
+
+	/**
+	 * Applies a move for the current player
+	 *
+	 * @param move the move; not null, must be played by the current player
+	 * @throws IllegalArgumentException if the move is not for the current
+	 *         player
+	 * @throws IllegalStateException if the player lacks the tickets
+	 */
+	public void apply(Move move) {
+		apply(PackedMove.of(move));
+	}
+
+	/**
+	 * Applies a move encoded with {@link PackedMove} for the current player
+	 *
+	 * @param move the encoded move, must be played by the current player
+	 * @throws IllegalArgumentException if the move is not for the current
+	 *         player
+	 * @throws IllegalStateException if the player lacks the tickets
+	 */
+	public void apply(int move) {
+		int current = state.current();
+		if (PackedMove.colour(move) != colours[current]) throw new IllegalArgumentException(
+				PackedMove.toString(move) + " is not for the current player " + colours[current]);
+		push(current);
+		try {
+			if (PackedMove.isDouble(move)) {
+				removeTicket(0, DOUBLE);
+				move(0, PackedMove.firstTicket(move), PackedMove.firstDestination(move));
+				move(0, PackedMove.secondTicket(move), PackedMove.secondDestination(move));
+			} else if (!PackedMove.isPass(move)) {
+				move(current, PackedMove.firstTicket(move), PackedMove.firstDestination(move));
+			}
+			current((current + 1) % colours.length);
+		} catch (RuntimeException e) {
+			undo();
+			throw e;
+		}
+	}
+
+	/**
+	 * Replaces the content of {@code out} with the valid moves of the current
+	 * player, see {@link MoveGenerator}
+	 *
+	 * @param out the buffer to fill; not null
+	 */
+	public void generateMoves(MoveList out) {
+		generator.generate(state, out);
+	}
+
+	/**
+	 * Reverts the last applied move
+	 *
+	 * @throws IllegalStateException if there is nothing to undo
+	 */
+	public void undo() {
+		if (depth == 0) throw new IllegalStateException("Nothing to undo");
+		depth--;
+		int i = depth * INT_STRIDE;
+		int l = depth * LONG_STRIDE;
+		int mover = ints[i];
+		state.location(mover, ints[i + 1]);
+		state.tickets(mover, longs[l]);
+		state.tickets(0, longs[l + 1]);
+		state.current(ints[i + 2]);
+		state.round(ints[i + 3]);
+		state.revealedLocation(ints[i + 4]);
+		hash = longs[l + 2];
+	}
+
+	private void push(int mover) {
+		if ((depth + 1) * INT_STRIDE > ints.length) {
+			ints = Arrays.copyOf(ints, ints.length * 2);
+			longs = Arrays.copyOf(longs, longs.length * 2);
+		}
+		int i = depth * INT_STRIDE;
+		int l = depth * LONG_STRIDE;
+		ints[i] = mover;
+		ints[i + 1] = state.location(mover);
+		ints[i + 2] = state.current();
+		ints[i + 3] = state.round();
+		ints[i + 4] = state.revealedLocation();
+		longs[l] = state.tickets(mover);
+		longs[l + 1] = state.tickets(0);
+		longs[l + 2] = hash;
+		depth++;
+	}
+
+	private void move(int player, Ticket ticket, int destination) {
+		removeTicket(player, ticket);
+		if (player != 0) addTicket(0, ticket);
+		location(player, destination);
+		if (player == 0) {
+			int round = state.round();
+			if (round < reveal.length && reveal[round]) state.revealedLocation(destination);
+			hash ^= Zobrist.round(round) ^ Zobrist.round(round + 1);
+			state.round(round + 1);
+		}
+	}
+
+	// the state mutators below keep the hash in sync
+
+	private void removeTicket(int player, Ticket ticket) {
+		int count = state.tickets(player, ticket);
+		state.removeTicket(player, ticket);
+		hash ^= Zobrist.tickets(player, ticket, count) ^ Zobrist.tickets(player, ticket, count - 1);
+	}
+
+	private void addTicket(int player, Ticket ticket) {
+		int count = state.tickets(player, ticket);
+		state.addTicket(player, ticket);
+		hash ^= Zobrist.tickets(player, ticket, count) ^ Zobrist.tickets(player, ticket, count + 1);
+	}
+
+	private void location(int player, int location) {
+		hash ^= Zobrist.location(player, state.location(player)) ^ Zobrist.location(player, location);
+		state.location(player, location);
+	}
+
+	private void current(int current) {
+		hash ^= Zobrist.current(state.current()) ^ Zobrist.current(current);
+		state.current(current);
+	}
+
+	/**
+	 * Checks whether the game is over, following the same rules as
+	 * {@link ScotlandYardModel#isGameOver()}
+	 *
+	 * @return true if the game is over
+	 */
+	public boolean isGameOver() {
+		return outcome() != NOT_OVER;
+	}
+
+	/**
+	 * @return true if the game is over and MrX won
+	 */
+	public boolean isMrXWin() {
+		return outcome() == MRX_WINS;
+	}
+
+	private int outcome() {
+		int mrX = state.location(0);
+		boolean detectivesHaveTickets = false;
+		for (int i = 1; i < colours.length; i++) {
+			if (state.location(i) == mrX) return DETECTIVES_WIN;
+			if (state.tickets(i) != 0) detectivesHaveTickets = true;
+		}
+		if (!detectivesHaveTickets) return MRX_WINS;
+		if (state.current() == 0) {
+			if (state.round() == reveal.length) return MRX_WINS;
+			if (!generator.hasMoves(state)) return DETECTIVES_WIN;
+		}
+		return NOT_OVER;
+	}
+
+	/**
+	 * Moves MrX to another assumed location, e.g. to sample one of the
+	 * locations the detectives think he could be at
+	 *
+	 * @param location the new location
+	 * @throws IllegalStateException if any move has been applied
+	 */
+	public void mrXLocation(int location) {
+		if (depth != 0) throw new IllegalStateException("Cannot move MrX with " + depth + " moves applied");
+		if (location < 0 || location >= state.occupancy().length * Long.SIZE)
+			throw new IllegalArgumentException("Location " + location + " is not on the map");
+		location(0, location);
+	}
+
+	/**
+	 * @return the {@link Zobrist} hash of the current position, kept up to
+	 *         date as moves are applied and undone
+	 */
+	public long hash() {
+		return hash;
+	}
+
+	/**
+	 * @return number of moves that can be undone
+	 */
+	public int depth() {
+		return depth;
+	}
+
+	/**
+	 * @return the underlying state; callers must not modify it
+	 */
+	public BitboardState state() {
+		return state;
+	}
+
+	/**
+	 * @return number of players including MrX
+	 */
+	public int players() {
+		return colours.length;
+	}
+
+	public Colour colour(int player) {
+		return colours[player];
+	}
+
+	/**
+	 * @return the index of the given colour or -1 if it is not playing
+	 */
+	public int indexOf(Colour colour) {
+		for (int i = 0; i < colours.length; i++) if (colours[i] == colour) return i;
+		return -1;
+	}
+
+	public int location(int player) {
+		return state.location(player);
+	}
+
+	public int tickets(int player, Ticket ticket) {
+		return state.tickets(player, ticket);
+	}
+
+	public int current() {
+		return state.current();
+	}
+
+	public Colour currentColour() {
+		return colours[state.current()];
+	}
+
+	public int round() {
+		return state.round();
+	}
+
+	/**
+	 * @return total number of rounds in the game
+	 */
+	public int rounds() {
+		return reveal.length;
+	}
+
+	/**
+	 * @return true if MrX reveals himself after his move in the given round
+	 */
+	public boolean isRevealRound(int round) {
+		return round >= 0 && round < reveal.length && reveal[round];
+	}
+
+	/**
+	 * @return MrX's last revealed location or 0 if never revealed
+	 */
+	public int revealedLocation() {
+		return state.revealedLocation();
+	}
+
+	@Override
+	public String toString() {
+		return "SearchState{depth=" + depth + ", " + state + '}';
+	}
+
+}
@@ -0,0 +1,322 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import uk.ac.bris.cs.scotlandyard.harness.ImmutableScotlandYardView;
+
+/**
+ * A {@link Spectator} that takes callbacks off the game's thread. Register the
+ * bus with a game and {@link #subscribe(Spectator)} slow spectators to it
+ * instead: every callback is recorded as a {@link SpectatorEvent} holding an
+ * immutable snapshot of the view and published to a ring buffer, and each
+ * subscriber has a thread of its own that drains the ring in order. The game
+ * only waits when a subscriber falls a whole ring behind and the
+ * {@link Overflow} policy is {@link Overflow#BLOCK}.
+ * <br>
+ * Subscribers see the same callbacks in the same order as if they were
+ * registered with the game, but the views they are given are snapshots, so
+ * they may lag behind the game. Exceptions thrown by subscribers go to the
+ * bus's exception handler and do not reach the game.
+ */
+public final class SpectatorBus implements Spectator, AutoCloseable {
+
+	/**
+	 * What to do when a subscriber is a whole ring behind
+	 */
+	public enum Overflow {
+		/**
+		 * The game waits until the subscriber catches up
+		 */
+		BLOCK,
+		/**
+		 * The subscriber skips its oldest events, see
+		 * {@link SpectatorBus#dropped(Spectator)}
+		 */
+		DROP_OLDEST
+	}
+
+	private static final AtomicInteger BUSES = new AtomicInteger();
+	private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+	private static final long FLUSH_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private final int id = BUSES.incrementAndGet();
+	private final AtomicReferenceArray<SpectatorEvent> ring;
+	private final int mask;
+	private final Overflow overflow;
+	private final Consumer<Throwable> exceptionHandler;
+	private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+	// sequence of the last published event
+	private volatile long published = -1;
+	private volatile boolean closed;
+	private ScotlandYardView lastView;
+	private ImmutableScotlandYardView lastSnapshot;
+
+	private SpectatorBus(Builder builder) {
+		this.ring = new AtomicReferenceArray<>(builder.capacity);
+		this.mask = builder.capacity - 1;
+		this.overflow = builder.overflow;
+		this.exceptionHandler = builder.exceptionHandler;
+	}
+
+	/**
+	 * Starts delivering events published from now on to a spectator
+	 *
+	 * @param spectator the spectator; not null
+	 * @throws IllegalArgumentException if it is already subscribed
+	 * @throws IllegalStateException if the bus is closed
+	 */
+	public synchronized void subscribe(Spectator spectator) {
+		requireNonNull(spectator);
+		if (closed) throw new IllegalStateException("Bus is closed");
+		if (find(spectator) != null) throw new IllegalArgumentException("Spectator already subscribed");
+		Subscriber subscriber = new Subscriber(spectator, published + 1);
+		subscribers.add(subscriber);
+		subscriber.thread.start();
+	}
+
+	/**
+	 * Stops delivering events to a spectator, a callback in progress is
+	 * finished and events not yet delivered are discarded
+	 *
+	 * @param spectator the spectator; not null
+	 * @throws IllegalArgumentException if it is not subscribed
+	 */
+	public synchronized void unsubscribe(Spectator spectator) {
+		Subscriber subscriber = find(requireNonNull(spectator));
+		if (subscriber == null) throw new IllegalArgumentException("Spectator is not subscribed");
+		subscribers.remove(subscriber);
+		subscriber.stop();
+	}
+
+	private Subscriber find(Spectator spectator) {
+		for (Subscriber subscriber : subscribers)
+			if (subscriber.spectator == spectator) return subscriber;
+		return null;
+	}
+
+	/**
+	 * @return number of events a subscriber skipped because it fell behind
+	 */
+	public long dropped(Spectator spectator) {
+		Subscriber subscriber = find(requireNonNull(spectator));
+		if (subscriber == null) throw new IllegalArgumentException("Spectator is not subscribed");
+		return subscriber.dropped.sum();
+	}
+
+	/**
+	 * Waits until every subscriber has handled every event published so far
+	 *
+	 * @return false if the timeout passed first
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public boolean flush(long timeout, TimeUnit unit) throws InterruptedException {
+		long target = published;
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		for (Subscriber subscriber : subscribers) {
+			while (!subscriber.handled(target)) {
+				if (System.nanoTime() - deadline > 0) return false;
+				LockSupport.parkNanos(this, FLUSH_PARK_NANOS);
+				if (Thread.interrupted()) throw new InterruptedException();
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Stops accepting events and waits for every subscriber to handle the
+	 * events already published. Callbacks that arrive afterwards, say from a
+	 * game still in progress, are dropped.
+	 */
+	@Override
+	public void close() {
+		synchronized (this) {
+			closed = true;
+		}
+		for (Subscriber subscriber : subscribers) {
+			LockSupport.unpark(subscriber.thread);
+			try {
+				subscriber.thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	@Override
+	public void onMoveMade(ScotlandYardView view, Move move) {
+		publish(SpectatorEvent.moveMade(snapshot(view), move));
+	}
+
+	@Override
+	public void onRoundStarted(ScotlandYardView view, int round) {
+		publish(SpectatorEvent.roundStarted(snapshot(view), round));
+	}
+
+	@Override
+	public void onRotationComplete(ScotlandYardView view) {
+		publish(SpectatorEvent.rotationComplete(snapshot(view)));
+	}
+
+	@Override
+	public void onGameOver(ScotlandYardView view, Set<Colour> winningPlayers) {
+		publish(SpectatorEvent.gameOver(snapshot(view), winningPlayers));
+	}
+
+	private synchronized ImmutableScotlandYardView snapshot(ScotlandYardView view) {
+		lastSnapshot = ImmutableScotlandYardView.snapshot(view,
+				view == lastView ? lastSnapshot : null);
+		lastView = view;
+		return lastSnapshot;
+	}
+
+	private void publish(SpectatorEvent event) {
+		while (!closed) {
+			// wait for room without holding the monitor so that a subscriber
+			// that never catches up can still be unsubscribed
+			long sequence = published + 1;
+			for (Subscriber subscriber : subscribers) subscriber.makeRoom(sequence);
+			synchronized (this) {
+				if (closed) return;
+				// another callback or a new subscriber got in first, try again
+				if (sequence != published + 1 || !hasRoom(sequence)) continue;
+				ring.set((int) sequence & mask, event);
+				published = sequence;
+			}
+			for (Subscriber subscriber : subscribers) LockSupport.unpark(subscriber.thread);
+			return;
+		}
+	}
+
+	private boolean hasRoom(long sequence) {
+		for (Subscriber subscriber : subscribers)
+			if (subscriber.running && sequence - subscriber.next.get() >= ring.length()) return false;
+		return true;
+	}
+
+	private final class Subscriber implements Runnable {
+
+		final Spectator spectator;
+		final Thread thread;
+		// next sequence to deliver, the game moves it past dropped events
+		final AtomicLong next;
+		// sequence of the event being delivered, or next when idle
+		volatile long delivering;
+		final LongAdder dropped = new LongAdder();
+		volatile boolean running = true;
+
+		Subscriber(Spectator spectator, long first) {
+			this.spectator = spectator;
+			this.next = new AtomicLong(first);
+			this.delivering = first;
+			this.thread = new Thread(this,
+					"spectator-bus-" + id + "-" + spectator.getClass().getSimpleName());
+			this.thread.setDaemon(true);
+		}
+
+		void makeRoom(long sequence) {
+			while (running && !closed) {
+				long oldest = next.get();
+				if (sequence - oldest < ring.length()) return;
+				if (overflow == Overflow.DROP_OLDEST) {
+					if (next.compareAndSet(oldest, oldest + 1)) dropped.increment();
+				} else {
+					LockSupport.unpark(thread);
+					LockSupport.parkNanos(this, BLOCK_PARK_NANOS);
+				}
+			}
+		}
+
+		boolean handled(long sequence) {
+			return !running || next.get() > sequence && delivering == next.get();
+		}
+
+		void stop() {
+			running = false;
+			LockSupport.unpark(thread);
+		}
+
+		@Override
+		public void run() {
+			while (running) {
+				long sequence = next.get();
+				if (sequence > published) {
+					delivering = sequence;
+					if (closed) return;
+					LockSupport.park(this);
+					continue;
+				}
+				SpectatorEvent event = ring.get((int) sequence & mask);
+				// the slot may have been reused if the event was dropped meanwhile
+				if (!next.compareAndSet(sequence, sequence + 1)) continue;
+				delivering = sequence;
+				try {
+					event.deliverTo(spectator);
+				} catch (RuntimeException | Error e) {
+					exceptionHandler.accept(e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * A builder for {@link SpectatorBus}
+	 */
+	public static class Builder {
+		private int capacity = 1024;
+		private Overflow overflow = Overflow.BLOCK;
+		private Consumer<Throwable> exceptionHandler = Throwable::printStackTrace;
+
+		/**
+		 * @param capacity number of events a subscriber may fall behind by,
+		 *        rounded up to a power of two; defaults to 1024
+		 * @return the builder for chaining; never null
+		 */
+		public Builder capacity(int capacity) {
+			if (capacity < 1 || capacity > 1 << 24)
+				throw new IllegalArgumentException("Capacity " + capacity + " out of range");
+			int size = Integer.highestOneBit(capacity);
+			this.capacity = size < capacity ? size << 1 : size;
+			return this;
+		}
+
+		/**
+		 * @param overflow what happens when a subscriber falls behind;
+		 *        defaults to {@link Overflow#BLOCK}
+		 * @return the builder for chaining; never null
+		 */
+		public Builder overflow(Overflow overflow) {
+			this.overflow = requireNonNull(overflow);
+			return this;
+		}
+
+		/**
+		 * @param exceptionHandler receives what subscribers throw; defaults to
+		 *        printing the stack trace
+		 * @return the builder for chaining; never null
+		 */
+		public Builder exceptionHandler(Consumer<Throwable> exceptionHandler) {
+			this.exceptionHandler = requireNonNull(exceptionHandler);
+			return this;
+		}
+
+		/**
+		 * @return the bus; never null
+		 */
+		public SpectatorBus build() {
+			return new SpectatorBus(this);
+		}
+	}
+
+}
@@ -0,0 +1,125 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Set;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * One {@link Spectator} callback, recorded by a {@link SpectatorBus} together
+ * with an immutable snapshot of the view at the time it was made. Events can
+ * be replayed to any spectator with {@link #deliverTo(Spectator)}.
+ */
+public final class SpectatorEvent {
+
+	/**
+	 * The callback an event stands for
+	 */
+	public enum Type {
+		MOVE_MADE, ROUND_STARTED, ROTATION_COMPLETE, GAME_OVER
+	}
+
+	private final Type type;
+	private final ScotlandYardView view;
+	private final Move move;
+	private final int round;
+	private final Set<Colour> winningPlayers;
+
+	private SpectatorEvent(Type type, ScotlandYardView view, Move move, int round,
+			Set<Colour> winningPlayers) {
+		this.type = type;
+		this.view = requireNonNull(view);
+		this.move = move;
+		this.round = round;
+		this.winningPlayers = winningPlayers;
+	}
+
+	static SpectatorEvent moveMade(ScotlandYardView view, Move move) {
+		return new SpectatorEvent(Type.MOVE_MADE, view, requireNonNull(move), 0, null);
+	}
+
+	static SpectatorEvent roundStarted(ScotlandYardView view, int round) {
+		return new SpectatorEvent(Type.ROUND_STARTED, view, null, round, null);
+	}
+
+	static SpectatorEvent rotationComplete(ScotlandYardView view) {
+		return new SpectatorEvent(Type.ROTATION_COMPLETE, view, null, 0, null);
+	}
+
+	static SpectatorEvent gameOver(ScotlandYardView view, Set<Colour> winningPlayers) {
+		return new SpectatorEvent(Type.GAME_OVER, view, null, 0,
+				ImmutableSet.copyOf(winningPlayers));
+	}
+
+	public Type type() {
+		return type;
+	}
+
+	/**
+	 * @return the immutable view the callback is made with; never null
+	 */
+	public ScotlandYardView view() {
+		return view;
+	}
+
+	/**
+	 * @return the move of a {@link Type#MOVE_MADE} event, null otherwise
+	 */
+	public Move move() {
+		return move;
+	}
+
+	/**
+	 * @return the round of a {@link Type#ROUND_STARTED} event, 0 otherwise
+	 */
+	public int round() {
+		return round;
+	}
+
+	/**
+	 * @return the winners of a {@link Type#GAME_OVER} event, null otherwise
+	 */
+	public Set<Colour> winningPlayers() {
+		return winningPlayers;
+	}
+
+	/**
+	 * Makes the callback this event stands for
+	 *
+	 * @param spectator the spectator to call; not null
+	 */
+	public void deliverTo(Spectator spectator) {
+		switch (type) {
+			case MOVE_MADE:
+				spectator.onMoveMade(view, move);
+				break;
+			case ROUND_STARTED:
+				spectator.onRoundStarted(view, round);
+				break;
+			case ROTATION_COMPLETE:
+				spectator.onRotationComplete(view);
+				break;
+			case GAME_OVER:
+				spectator.onGameOver(view, winningPlayers);
+				break;
+			default:
+				throw new AssertionError(type);
+		}
+	}
+
+	@Override
+	public String toString() {
+		switch (type) {
+			case MOVE_MADE:
+				return type + "(" + move + ")";
+			case ROUND_STARTED:
+				return type + "(" + round + ")";
+			case GAME_OVER:
+				return type + "(" + winningPlayers + ")";
+			default:
+				return type.toString();
+		}
+	}
+
+}
@@ -133,7 +133,10 @@ public class StandardGame {
 	public static final int MAP_OFFSET = 60;
 
 	public static Map<Integer, Entry<Integer, Integer>> pngMapPositionEntries() throws IOException {
-		List<String> lines = readString("pos.txt");
+		return pngMapPositionEntries(readString("pos.txt"));
+	}
+
+	static Map<Integer, Entry<Integer, Integer>> pngMapPositionEntries(List<String> lines) {
 		Map<Integer, Entry<Integer, Integer>> map = new HashMap<>();
 		for (String line : lines) {
 			Integer[] values = Stream.of(line.split("\\s+")).map(Integer::parseInt)
@@ -151,7 +154,7 @@ public class StandardGame {
 		return ScotlandYardGraphReader.fromLines(readString("graph.txt"));
 	}
 
-	private static List<String> readString(String resource) throws IOException {
+	static List<String> readString(String resource) throws IOException {
 		try (InputStream stream = StandardGame.class
 				.getClassLoader()
 				.getResourceAsStream(resource)) {
@@ -0,0 +1,79 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * A small bounded cache of valid move sets keyed by everything a move set
+ * depends on: the player's colour, location and packed tickets, the nodes the
+ * player cannot move to and whether double moves are allowed. Entries live in
+ * preallocated arrays so a lookup does not allocate; when full the oldest
+ * entry is replaced.
+ */
+final class ValidMoveCache {
+
+	private final Colour[] colours;
+	private final int[] locations;
+	private final long[] tickets;
+	private final long[][] occupied;
+	private final boolean[] doubleMoves;
+	private final Object[] moves;
+	private int size;
+	private int next;
+
+	/**
+	 * @param capacity the maximum number of entries
+	 * @param words bitset length of the occupied nodes
+	 */
+	ValidMoveCache(int capacity, int words) {
+		if (capacity < 1) throw new IllegalArgumentException("capacity < 1");
+		colours = new Colour[capacity];
+		locations = new int[capacity];
+		tickets = new long[capacity];
+		occupied = new long[capacity][words];
+		doubleMoves = new boolean[capacity];
+		moves = new Object[capacity];
+	}
+
+	/**
+	 * @return the cached moves or null if there is no entry for the key
+	 */
+	@SuppressWarnings("unchecked")
+	Set<Move> get(Colour colour, int location, long tickets, long[] occupied,
+			boolean doubleMoves) {
+		for (int i = 0; i < size; i++) {
+			if (colours[i] == colour && locations[i] == location && this.tickets[i] == tickets
+					&& this.doubleMoves[i] == doubleMoves && Arrays.equals(this.occupied[i], occupied)) {
+				return (Set<Move>) moves[i];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Adds an entry, the occupied bitset is copied
+	 */
+	void put(Colour colour, int location, long tickets, long[] occupied, boolean doubleMoves,
+			Set<Move> moves) {
+		int i = next;
+		next = (next + 1) % colours.length;
+		if (size < colours.length) size++;
+		colours[i] = colour;
+		locations[i] = location;
+		this.tickets[i] = tickets;
+		NodeBitset.copy(occupied, this.occupied[i]);
+		this.doubleMoves[i] = doubleMoves;
+		this.moves[i] = moves;
+	}
+
+	/**
+	 * Drops every entry
+	 */
+	void clear() {
+		Arrays.fill(moves, null);
+		Arrays.fill(colours, null);
+		size = 0;
+		next = 0;
+	}
+
+}
@@ -0,0 +1,293 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.BUS;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.SECRET;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.TAXI;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.UNDERGROUND;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The valid moves of one player for one turn as a read only {@link java.util.Set}
+ * view over a {@link DestinationTable}. Only the single move frontier is kept:
+ * {@link #contains(Object)} checks a move against the table in constant time,
+ * double moves are created while iterating and {@link #size()} is counted
+ * without creating any move. The set is a snapshot, later changes to the game
+ * do not affect it. {@link #copyOf(MoveList)} gives the same kind of set over
+ * the output of a {@link MoveGenerator}.
+ */
+final class ValidMoveSet extends AbstractSet<Move> {
+
+	private static final Ticket[] SINGLE_TICKETS = {TAXI, BUS, UNDERGROUND, SECRET};
+
+	private final DestinationTable table;
+	private final Colour colour;
+	private final int location;
+	private final long tickets;
+	private final long[] excluded;
+	private final boolean doubleMoves;
+	private final boolean pass;
+	private volatile int size = -1;
+
+	/**
+	 * @param table destinations of the map
+	 * @param colour the player
+	 * @param location the player's location
+	 * @param tickets the player's packed tickets, see {@link BitboardState#pack}
+	 * @param excluded nodes the player cannot move to; not copied, the caller
+	 *        must not modify it afterwards
+	 * @param doubleMoves whether double moves are allowed this turn, the
+	 *        player must also hold a {@link Ticket#DOUBLE} ticket
+	 */
+	ValidMoveSet(DestinationTable table, Colour colour, int location, long tickets,
+			long[] excluded, boolean doubleMoves) {
+		this.table = table;
+		this.colour = colour;
+		this.location = location;
+		this.tickets = tickets;
+		this.excluded = excluded;
+		this.doubleMoves = doubleMoves && BitboardState.count(tickets, Ticket.DOUBLE) > 0;
+		this.pass = colour.isDetective() && !hasSingleMove();
+	}
+
+	/**
+	 * @param moves encoded moves of one turn, e.g. from
+	 *        {@link MoveGenerator#generate}; copied, so the buffer can be reused
+	 * @return a read only snapshot of the moves that decodes them only while
+	 *         iterating
+	 */
+	static Set<Move> copyOf(MoveList moves) {
+		int[] packed = new int[moves.size()];
+		for (int i = 0; i < packed.length; i++) packed[i] = moves.get(i);
+		Arrays.sort(packed);
+		return new PackedMoveSet(packed);
+	}
+
+	private boolean available(Ticket ticket, Ticket spent) {
+		return BitboardState.count(tickets, ticket) > (ticket == spent ? 1 : 0);
+	}
+
+	private boolean single(int from, Ticket ticket, int destination, Ticket spent) {
+		return ticket != null && available(ticket, spent)
+				&& table.reaches(from, ticket, destination)
+				&& !NodeBitset.contains(excluded, destination);
+	}
+
+	private boolean hasSingleMove() {
+		long[] bits = table.newBitset();
+		for (Ticket ticket : SINGLE_TICKETS) {
+			if (!available(ticket, null)) continue;
+			table.destinations(location, ticket, excluded, bits);
+			if (!NodeBitset.isEmpty(bits)) return true;
+		}
+		return false;
+	}
+
+	private boolean isLeg(TicketMove move) {
+		return move != null && move.getClass() == TicketMove.class && move.colour() == colour;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if (!(o instanceof Move) || ((Move) o).colour() != colour) return false;
+		if (o.getClass() == PassMove.class) return pass;
+		if (o.getClass() == TicketMove.class) {
+			TicketMove move = (TicketMove) o;
+			return single(location, move.ticket(), move.destination(), null);
+		}
+		if (o.getClass() == DoubleMove.class && doubleMoves) {
+			DoubleMove move = (DoubleMove) o;
+			TicketMove first = move.firstMove();
+			TicketMove second = move.secondMove();
+			return isLeg(first) && isLeg(second)
+					&& single(location, first.ticket(), first.destination(), null)
+					&& single(first.destination(), second.ticket(), second.destination(), first.ticket());
+		}
+		return false;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return !pass && !hasSingleMove();
+	}
+
+	@Override
+	public int size() {
+		int size = this.size;
+		if (size < 0) this.size = size = count();
+		return size;
+	}
+
+	private int count() {
+		if (pass) return 1;
+		long[] bits = table.newBitset();
+		int count = 0;
+		for (Ticket ticket : SINGLE_TICKETS) {
+			if (!available(ticket, null)) continue;
+			table.destinations(location, ticket, excluded, bits);
+			count += NodeBitset.cardinality(bits);
+		}
+		if (!doubleMoves || count == 0) return count;
+		Cursor first = new Cursor();
+		first.reset(location, null);
+		while (first.advance()) {
+			for (Ticket ticket : SINGLE_TICKETS) {
+				if (!available(ticket, first.ticket())) continue;
+				table.destinations(first.destination, ticket, excluded, bits);
+				count += NodeBitset.cardinality(bits);
+			}
+		}
+		return count;
+	}
+
+	@Override
+	public Iterator<Move> iterator() {
+		return new MoveIterator();
+	}
+
+	/**
+	 * Walks the single moves from a node in ticket then destination order
+	 */
+	private final class Cursor {
+		private final long[] bits = table.newBitset();
+		private int from;
+		private Ticket spent;
+		private int ticket;
+		private int destination;
+
+		void reset(int from, Ticket spent) {
+			this.from = from;
+			this.spent = spent;
+			this.ticket = -1;
+			this.destination = -1;
+		}
+
+		boolean advance() {
+			while (ticket < SINGLE_TICKETS.length) {
+				if (ticket >= 0) {
+					destination = NodeBitset.nextSetBit(bits, destination + 1);
+					if (destination >= 0) return true;
+				}
+				if (++ticket == SINGLE_TICKETS.length) break;
+				if (available(SINGLE_TICKETS[ticket], spent))
+					table.destinations(from, SINGLE_TICKETS[ticket], excluded, bits);
+				else NodeBitset.clear(bits);
+				destination = -1;
+			}
+			return false;
+		}
+
+		Ticket ticket() {
+			return SINGLE_TICKETS[ticket];
+		}
+
+		TicketMove move() {
+			return new TicketMove(colour, ticket(), destination);
+		}
+	}
+
+	private final class MoveIterator implements Iterator<Move> {
+		private final Cursor singles = new Cursor();
+		private final Cursor firsts = new Cursor();
+		private final Cursor seconds = new Cursor();
+		private TicketMove firstMove;
+		private boolean passed;
+		private Move next;
+
+		MoveIterator() {
+			singles.reset(location, null);
+			firsts.reset(location, null);
+			next = computeNext();
+		}
+
+		private Move computeNext() {
+			if (pass) {
+				if (passed) return null;
+				passed = true;
+				return new PassMove(colour);
+			}
+			if (singles.advance()) return singles.move();
+			if (!doubleMoves) return null;
+			while (true) {
+				if (firstMove != null && seconds.advance())
+					return new DoubleMove(colour, firstMove, seconds.move());
+				if (!firsts.advance()) return null;
+				firstMove = firsts.move();
+				seconds.reset(firsts.destination, firsts.ticket());
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		@Override
+		public Move next() {
+			if (next == null) throw new NoSuchElementException();
+			Move current = next;
+			next = computeNext();
+			return current;
+		}
+	}
+
+	/**
+	 * Sorted encoded moves, {@link #contains(Object)} is a binary search
+	 */
+	private static final class PackedMoveSet extends AbstractSet<Move> {
+		private final int[] moves;
+
+		PackedMoveSet(int[] moves) {
+			this.moves = moves;
+		}
+
+		private static boolean encodable(TicketMove move) {
+			return move.getClass() == TicketMove.class && move.ticket() != null
+					&& move.destination() >= 0 && move.destination() <= PackedMove.MAX_DESTINATION;
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			if (!(o instanceof Move) || ((Move) o).colour() == null) return false;
+			if (o.getClass() == TicketMove.class && !encodable((TicketMove) o)) return false;
+			if (o.getClass() == DoubleMove.class) {
+				DoubleMove move = (DoubleMove) o;
+				if (move.firstMove() == null || move.secondMove() == null
+						|| !encodable(move.firstMove()) || !encodable(move.secondMove())
+						|| move.firstMove().colour() != move.colour()
+						|| move.secondMove().colour() != move.colour()) return false;
+			} else if (o.getClass() != TicketMove.class && o.getClass() != PassMove.class) {
+				return false;
+			}
+			return Arrays.binarySearch(moves, PackedMove.of((Move) o)) >= 0;
+		}
+
+		@Override
+		public int size() {
+			return moves.length;
+		}
+
+		@Override
+		public Iterator<Move> iterator() {
+			return new Iterator<Move>() {
+				private int next;
+
+				@Override
+				public boolean hasNext() {
+					return next < moves.length;
+				}
+
+				@Override
+				public Move next() {
+					if (next == moves.length) throw new NoSuchElementException();
+					return PackedMove.toMove(moves[next++]);
+				}
+			};
+		}
+	}
+
+}
@@ -0,0 +1,75 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+/**
+ * Zobrist keys for hashing a {@link BitboardState}. A position hashes to the
+ * XOR of one key per player location, one key per player and ticket count,
+ * one for the round and one for the current player, so applying a move only
+ * needs to XOR out the keys that changed and XOR in their replacements.
+ * Keys are derived from their feature with a 64 bit mixing function rather
+ * than looked up in a table, so any map size and ticket count is supported.
+ * MrX's revealed location is not part of the hash.
+ */
+public final class Zobrist {
+
+	private static final long LOCATION = 1L << 56;
+	private static final long TICKET = 2L << 56;
+	private static final long ROUND = 3L << 56;
+	private static final long CURRENT = 4L << 56;
+
+	private Zobrist() {
+		// nope
+	}
+
+	/**
+	 * @return the key of a player standing on a node
+	 */
+	public static long location(int player, int node) {
+		return mix(LOCATION | (long) player << 32 | node);
+	}
+
+	/**
+	 * @return the key of a player holding {@code count} tickets of a kind
+	 */
+	public static long tickets(int player, Ticket ticket, int count) {
+		return mix(TICKET | (long) player << 32 | ticket.ordinal() << 16 | count);
+	}
+
+	/**
+	 * @return the key of the round
+	 */
+	public static long round(int round) {
+		return mix(ROUND | round);
+	}
+
+	/**
+	 * @return the key of the player whose turn it is
+	 */
+	public static long current(int player) {
+		return mix(CURRENT | player);
+	}
+
+	/**
+	 * Hashes a state from scratch
+	 *
+	 * @param state the state; not null
+	 * @return the hash
+	 */
+	public static long of(BitboardState state) {
+		long hash = round(state.round()) ^ current(state.current());
+		for (int player = 0; player < state.players(); player++) {
+			hash ^= location(player, state.location(player));
+			for (Ticket ticket : Ticket.values())
+				hash ^= tickets(player, ticket, state.tickets(player, ticket));
+		}
+		return hash;
+	}
+
+	// the SplitMix64 finaliser
+	private static long mix(long z) {
+		z += 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+}
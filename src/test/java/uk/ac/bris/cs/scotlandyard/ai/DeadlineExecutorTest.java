@@ -0,0 +1,149 @@
+package uk.ac.bris.cs.scotlandyard.ai;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.ImmutableSet;
+
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardModel;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.DEFAULT_REVEAL;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.doNothingMrX;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.doNothingRed;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.ofRounds;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.taxi;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLACK;
+
+/**
+ * Tests for {@link DeadlineExecutor} and {@link MoveBudget}
+ */
+public class DeadlineExecutorTest {
+
+	private static final ExecutorService workers = Executors.newCachedThreadPool();
+	private static final Duration TIMEOUT = Duration.ofMillis(50);
+
+	private final DeadlineExecutor executor = new DeadlineExecutor(workers);
+	private final Set<Move> moves = ImmutableSet.of(taxi(BLACK, 36), taxi(BLACK, 37));
+	private ScotlandYardModel view;
+
+	@Before
+	public void setUp() throws IOException {
+		view = new ScotlandYardModel(ofRounds(24, DEFAULT_REVEAL),
+				StandardGame.standardGraph(), doNothingMrX(), doNothingRed());
+	}
+
+	@AfterClass
+	public static void tearDown() {
+		workers.shutdownNow();
+	}
+
+	@Test
+	public void testPlaysPickedMove() {
+		Player player = (view, location, moves, callback) -> callback.accept(taxi(BLACK, 37));
+		assertThat(executor.makeMove(player, view, 35, moves, TIMEOUT).join())
+				.isEqualTo(taxi(BLACK, 37));
+	}
+
+	@Test
+	public void testBudgetedPlayerIsGivenTheTimeout() {
+		MoveBudget[] given = new MoveBudget[1];
+		BudgetedPlayer player = (view, location, moves, budget, callback) -> {
+			given[0] = budget;
+			callback.accept(taxi(BLACK, 36));
+		};
+		executor.makeMove(player, view, 35, moves, TIMEOUT).join();
+		assertThat(given[0].isBounded()).isTrue();
+		assertThat(given[0].isCancelled()).isTrue();
+
+		executor.makeMove(player, view, 35, moves, null).join();
+		assertThat(given[0].isBounded()).isFalse();
+	}
+
+	@Test
+	public void testPlaysBestOfferedMoveAndInterruptsAtDeadline() throws InterruptedException {
+		assertPlaysBestOfferedMoveAndInterrupts(executor);
+	}
+
+	@Test
+	public void testInterruptsWorkStealingPoolAtDeadline() throws InterruptedException {
+		// ForkJoinTask.cancel(true) does not interrupt, the executor has to
+		ExecutorService pool = Executors.newWorkStealingPool(1);
+		try {
+			assertPlaysBestOfferedMoveAndInterrupts(new DeadlineExecutor(pool));
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private void assertPlaysBestOfferedMoveAndInterrupts(DeadlineExecutor executor)
+			throws InterruptedException {
+		CountDownLatch interrupted = new CountDownLatch(1);
+		BudgetedPlayer player = (view, location, moves, budget, callback) -> {
+			budget.offer(taxi(BLACK, 37));
+			try {
+				Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+			} catch (InterruptedException e) {
+				interrupted.countDown();
+			}
+			// too late, ignored
+			callback.accept(taxi(BLACK, 36));
+		};
+		assertThat(executor.makeMove(player, view, 35, moves, TIMEOUT).join())
+				.isEqualTo(taxi(BLACK, 37));
+		assertThat(interrupted.await(1, TimeUnit.SECONDS)).isTrue();
+	}
+
+	@Test
+	public void testDeadlineMoveIsNotPlayedOnTheTimerThread() {
+		Player player = (view, location, moves, callback) -> {};
+		String thread = executor.makeMove(player, view, 35, moves, TIMEOUT)
+				.thenApply(move -> Thread.currentThread().getName()).join();
+		assertThat(thread).isNotEqualTo("ai-deadline");
+	}
+
+	@Test
+	public void testPlaysFirstMoveWhenNothingWasOffered() {
+		Player player = (view, location, moves, callback) -> {};
+		assertThat(executor.makeMove(player, view, 35, moves, TIMEOUT).join())
+				.isEqualTo(moves.iterator().next());
+	}
+
+	@Test
+	public void testPlayerFailureCompletesExceptionally() {
+		Player player = (view, location, moves, callback) -> {
+			throw new IllegalStateException("Bad AI");
+		};
+		CompletableFuture<Move> move = executor.makeMove(player, view, 35, moves, TIMEOUT);
+		assertThatThrownBy(move::join).isInstanceOf(CompletionException.class)
+				.hasCauseInstanceOf(IllegalStateException.class);
+	}
+
+	@Test
+	public void testUnboundedBudget() {
+		MoveBudget budget = MoveBudget.unbounded();
+		assertThat(budget.remainingNanos()).isEqualTo(Long.MAX_VALUE);
+		assertThat(budget.best()).isEmpty();
+		budget.offer(taxi(BLACK, 36));
+		assertThat(budget.best()).hasValue(taxi(BLACK, 36));
+		budget.cancel();
+		assertThat(budget.isCancelled()).isTrue();
+		assertThat(MoveBudget.of(Duration.ZERO).remainingNanos()).isZero();
+	}
+
+}
@@ -0,0 +1,60 @@
+package uk.ac.bris.cs.scotlandyard.ai;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link ExecutionMode}
+ */
+public class ExecutionModeTest {
+
+	@After
+	public void tearDown() {
+		System.clearProperty(ExecutionMode.PROPERTY);
+	}
+
+	@Test
+	public void testModeIsReadFromProperty() {
+		assertThat(ExecutionMode.fromProperties()).isEqualTo(ExecutionMode.POOLED);
+		System.setProperty(ExecutionMode.PROPERTY, "virtual");
+		assertThat(ExecutionMode.fromProperties()).isEqualTo(ExecutionMode.VIRTUAL);
+		System.setProperty(ExecutionMode.PROPERTY, "green");
+		assertThatThrownBy(ExecutionMode::fromProperties)
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	public void testVirtualModeDoesNotStarveBlockedTurns() throws InterruptedException {
+		// more blocked turns than any pool would have threads for
+		int turns = Runtime.getRuntime().availableProcessors() * 4;
+		CountDownLatch started = new CountDownLatch(turns);
+		CountDownLatch release = new CountDownLatch(1);
+		Set<Thread> threads = ConcurrentHashMap.newKeySet();
+		for (int i = 0; i < turns; i++) {
+			ExecutionMode.VIRTUAL.executor().execute(() -> {
+				threads.add(Thread.currentThread());
+				started.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+		}
+		try {
+			assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+			assertThat(threads).hasSize(turns);
+		} finally {
+			release.countDown();
+		}
+	}
+
+}
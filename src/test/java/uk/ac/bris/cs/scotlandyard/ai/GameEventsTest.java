@@ -0,0 +1,153 @@
+package uk.ac.bris.cs.scotlandyard.ai;
+
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import javafx.scene.layout.Pane;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.scotlandyard.headless.HeadlessResources;
+import uk.ac.bris.cs.scotlandyard.headless.ScenarioGenerator;
+import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.GameEvents;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardModel;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardView;
+import uk.ac.bris.cs.scotlandyard.model.Spectator;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests that a game played through an {@link AIPool} emits every {@link GameEvents} event
+ */
+public class GameEventsTest {
+
+	private static final String PREFIX = "uk.ac.bris.cs.scotlandyard.";
+
+	/**
+	 * Picks the first valid move
+	 */
+	public static class FirstMovePlayer implements Player {
+		@Override
+		public void makeMove(ScotlandYardView view, int location, Set<Move> moves,
+				Consumer<Move> callback) {
+			callback.accept(moves.iterator().next());
+		}
+	}
+
+	public static class FirstMoveFactory implements PlayerFactory {
+		@Override
+		public Player createPlayer(Colour colour) {
+			return new FirstMovePlayer();
+		}
+	}
+
+	private static final AIPool.VisualiserSurface NO_SURFACE = new AIPool.VisualiserSurface() {
+		@Override
+		public Pane onCreate(AI ai) {
+			return null;
+		}
+
+		@Override
+		public void onDestroy() {}
+	};
+
+	// plays one game with every player from a pool, like LocalGame does
+	private static void play() throws Exception {
+		Graph<Integer, Transport> graph = StandardGame.standardGraph();
+		AIPool<String> pool = new AIPool<>(NO_SURFACE, Throwable::printStackTrace);
+		Map<Colour, Player> players = new EnumMap<>(Colour.class);
+		ScotlandYardModel model = ScenarioGenerator.standard().generate(7).newGame(graph,
+				colour -> (view, location, moves, callback) ->
+						players.get(colour).makeMove(view, location, moves, callback));
+		AI ai = AI.fromName("first", ManagedAI.VisualiserType.NONE, FirstMoveFactory.class);
+		for (Colour colour : model.getPlayers()) pool.addToGroup("all", colour, ai);
+		pool.initialise(new HeadlessResources(graph), model, Duration.ofSeconds(10));
+		for (Colour colour : model.getPlayers())
+			players.put(colour, pool.createPlayer(colour).orElseThrow(AssertionError::new));
+		CountDownLatch over = new CountDownLatch(1);
+		model.registerSpectator(new Spectator() {
+			@Override
+			public void onRotationComplete(ScotlandYardView view) {
+				if (!view.isGameOver()) model.startRotate();
+			}
+
+			@Override
+			public void onGameOver(ScotlandYardView view, Set<Colour> winningPlayers) {
+				over.countDown();
+			}
+		});
+		model.startRotate();
+		try {
+			assertThat(over.await(30, TimeUnit.SECONDS)).as("game over").isTrue();
+		} finally {
+			pool.terminate();
+		}
+	}
+
+	private static List<RecordedEvent> named(List<RecordedEvent> events, String name) {
+		return events.stream()
+				.filter(e -> e.getEventType().getName().equals(PREFIX + name))
+				.collect(toList());
+	}
+
+	@Test
+	public void testGameEmitsEveryEventWithItsFields() throws Exception {
+		Path file = Files.createTempFile("game-events", ".jfr");
+		try {
+			try (Recording recording = new Recording()) {
+				for (String name : new String[]{"MoveGenerated", "MoveAccepted",
+						"SpectatorDispatch", "PlayerThink", "GameOver"})
+					recording.enable(PREFIX + name).withoutThreshold();
+				recording.start();
+				play();
+				recording.stop();
+				recording.dump(file);
+			}
+			List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+
+			assertThat(named(events, "MoveGenerated")).isNotEmpty().allSatisfy(e -> {
+				assertThat(e.getString("player")).isNotEmpty();
+				assertThat(e.getInt("location")).isPositive();
+				assertThat(e.getInt("moveCount")).isPositive();
+			});
+			assertThat(named(events, "MoveAccepted")).isNotEmpty().allSatisfy(e -> {
+				assertThat(e.getString("player")).isNotEmpty();
+				assertThat(e.getString("move")).isNotEmpty();
+				assertThat(e.getInt("round")).isNotNegative();
+			});
+			assertThat(named(events, "SpectatorDispatch")).isNotEmpty()
+					.allSatisfy(e -> assertThat(e.getClass("spectator")).isNotNull());
+			assertThat(named(events, "PlayerThink")).isNotEmpty().allSatisfy(e -> {
+				assertThat(e.getString("player")).isNotEmpty();
+				// the AI's own player, not the pool's wrapper
+				assertThat(e.getClass("playerClass").getName())
+						.isEqualTo(FirstMovePlayer.class.getName());
+				assertThat(e.getInt("moveCount")).isPositive();
+			});
+			assertThat(named(events, "GameOver")).hasSize(1).allSatisfy(e -> {
+				assertThat(e.getInt("round")).isPositive();
+				assertThat(e.getString("winners")).isNotEmpty();
+			});
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+}
@@ -0,0 +1,132 @@
+package uk.ac.bris.cs.scotlandyard.ai.alphabeta;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import uk.ac.bris.cs.scotlandyard.ai.AI;
+import uk.ac.bris.cs.scotlandyard.ai.ManagedAI.VisualiserType;
+import uk.ac.bris.cs.scotlandyard.headless.FarmReport;
+import uk.ac.bris.cs.scotlandyard.headless.GameFarm;
+import uk.ac.bris.cs.scotlandyard.headless.GameFarmTest.FirstMoveAI;
+import uk.ac.bris.cs.scotlandyard.model.DistanceTable;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.PackedMove;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.PlayerConfiguration;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardModel;
+import uk.ac.bris.cs.scotlandyard.model.SearchState;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.ai.alphabeta.TranspositionTable.EXACT;
+import static uk.ac.bris.cs.scotlandyard.ai.alphabeta.TranspositionTable.LOWER;
+import static uk.ac.bris.cs.scotlandyard.ai.alphabeta.TranspositionTable.MISSING;
+import static uk.ac.bris.cs.scotlandyard.ai.alphabeta.TranspositionTable.UPPER;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.DEFAULT_REVEAL;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.detectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.doNothingPlayer;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.mrXTickets;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.ofRounds;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.taxi;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLACK;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.GREEN;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.RED;
+
+/**
+ * Tests for {@link AlphaBetaSearcher}, {@link TranspositionTable} and
+ * {@link AlphaBetaAI}
+ */
+public class AlphaBetaSearcherTest {
+
+	/**
+	 * Thinks for a few milliseconds per move so games finish quickly
+	 */
+	public static class QuickAlphaBetaAI extends AlphaBetaAI {
+		public QuickAlphaBetaAI() {
+			super(Duration.ofMillis(5));
+		}
+	}
+
+	@Test
+	public void testTableRoundTripsEntries() {
+		TranspositionTable table = new TranspositionTable(1000);
+		assertThat(table.capacity()).isEqualTo(1024);
+		int move = PackedMove.of(taxi(RED, 36));
+		assertThat(table.probe(42)).isEqualTo(MISSING);
+		table.store(42, move, -1234, 7, LOWER);
+		long data = table.probe(42);
+		assertThat(TranspositionTable.move(data)).isEqualTo(move);
+		assertThat(TranspositionTable.score(data)).isEqualTo(-1234);
+		assertThat(TranspositionTable.depth(data)).isEqualTo(7);
+		assertThat(TranspositionTable.bound(data)).isEqualTo(LOWER);
+		// same slot, different key
+		assertThat(table.probe(42 + 1024)).isEqualTo(MISSING);
+	}
+
+	@Test
+	public void testTableKeepsDeeperResults() {
+		TranspositionTable table = new TranspositionTable(16);
+		table.store(7, -1, 10, 5, EXACT);
+		table.store(7, -1, 20, 3, UPPER);
+		assertThat(TranspositionTable.score(table.probe(7))).isEqualTo(10);
+		table.store(7 + 16, -1, 30, 1, EXACT);
+		assertThat(table.probe(7)).isEqualTo(MISSING);
+		assertThat(TranspositionTable.score(table.probe(7 + 16))).isEqualTo(30);
+		table.clear();
+		assertThat(table.probe(7 + 16)).isEqualTo(MISSING);
+	}
+
+	@Test
+	public void testTableRejectsOutOfRangeEntries() {
+		TranspositionTable table = new TranspositionTable(16);
+		assertThatThrownBy(() -> table.store(1, -1, 1 << 16, 1, EXACT))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> table.store(1, -1, 0, 256, EXACT))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> table.store(1, -1, 0, 1, 0))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	public void testDetectiveCapturesMrXWhenAdjacent() throws IOException {
+		Set<Move> offered = new HashSet<>();
+		Player red = (view, location, moves, callback) -> offered.addAll(moves);
+		ScotlandYardModel model = new ScotlandYardModel(ofRounds(24, DEFAULT_REVEAL),
+				StandardGame.standardGraph(),
+				new PlayerConfiguration.Builder(BLACK).at(35).with(mrXTickets())
+						.using((view, location, moves, callback) -> callback.accept(taxi(BLACK, 36)))
+						.build(),
+				new PlayerConfiguration.Builder(RED).at(37).with(detectiveTickets())
+						.using(red).build(),
+				doNothingPlayer(GREEN, 26));
+		model.startRotate();
+		assertThat(offered).isNotEmpty();
+
+		AlphaBetaSearcher searcher = new AlphaBetaSearcher(
+				DistanceTable.of(model.getGraph()), new TranspositionTable(1 << 12));
+		SearchState state = new SearchState(model, 36);
+		int[] moves = offered.stream().mapToInt(PackedMove::of).toArray();
+		AlphaBetaSearcher.Result result = searcher.search(state, moves,
+				TimeUnit.MILLISECONDS.toNanos(100), 8);
+		assertThat(PackedMove.toMove(result.move())).isEqualTo(taxi(RED, 36));
+		assertThat(result.value()).isLessThanOrEqualTo(-AlphaBetaSearcher.WIN + 1);
+		assertThat(result.depth()).isPositive();
+		assertThat(state.depth()).isZero();
+	}
+
+	@Test
+	public void testAIPlaysWholeGames() {
+		AI detectives = AI.fromName("ab", VisualiserType.NONE, QuickAlphaBetaAI.class);
+		AI mrX = AI.fromName("first", VisualiserType.NONE, FirstMoveAI.class);
+		FarmReport report = new GameFarm.Builder(mrX, detectives).parallelism(1).build().play(0, 2);
+		assertThat(report.failures()).isZero();
+		assertThat(report.completed()).isEqualTo(2);
+	}
+
+}
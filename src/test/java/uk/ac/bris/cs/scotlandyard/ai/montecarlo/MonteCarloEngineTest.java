@@ -0,0 +1,144 @@
+package uk.ac.bris.cs.scotlandyard.ai.montecarlo;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import uk.ac.bris.cs.scotlandyard.ai.AI;
+import uk.ac.bris.cs.scotlandyard.ai.ManagedAI.VisualiserType;
+import uk.ac.bris.cs.scotlandyard.ai.PlayerFactory;
+import uk.ac.bris.cs.scotlandyard.headless.FarmReport;
+import uk.ac.bris.cs.scotlandyard.headless.GameFarm;
+import uk.ac.bris.cs.scotlandyard.headless.GameFarmTest.FirstMoveAI;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.PlayerConfiguration;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardModel;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+
+import static java.util.Collections.singleton;
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.DEFAULT_REVEAL;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.detectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.doNothingPlayer;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.mrXTickets;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.ofRounds;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.taxi;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLACK;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.GREEN;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.RED;
+
+/**
+ * Tests for {@link MonteCarloEngine} and {@link MonteCarloAI}
+ */
+public class MonteCarloEngineTest {
+
+	/**
+	 * Thinks for a few milliseconds per move so games finish quickly
+	 */
+	public static class QuickMonteCarloAI extends MonteCarloAI {
+		public QuickMonteCarloAI() {
+			super(Duration.ofMillis(5), 2);
+		}
+	}
+
+	private final MonteCarloEngine engine = new MonteCarloEngine(2, 42);
+
+	@After
+	public void tearDown() {
+		engine.close();
+	}
+
+	/**
+	 * @return a game where MrX has moved next to red and red is asked to move
+	 */
+	private static ScotlandYardModel redNextToMrX(Set<Move> offered) throws IOException {
+		return redNextToMrX(offered, DEFAULT_REVEAL, null);
+	}
+
+	/**
+	 * @param reveal rounds MrX shows himself in
+	 * @param factory if not null, its spectators watch the game from the start
+	 * @return a game where MrX has moved next to red and red is asked to move
+	 */
+	private static ScotlandYardModel redNextToMrX(Set<Move> offered, Set<Integer> reveal,
+			PlayerFactory factory) throws IOException {
+		Player red = (view, location, moves, callback) -> offered.addAll(moves);
+		ScotlandYardModel model = new ScotlandYardModel(ofRounds(24, reveal),
+				StandardGame.standardGraph(),
+				new PlayerConfiguration.Builder(BLACK).at(35).with(mrXTickets())
+						.using((view, location, moves, callback) -> callback.accept(taxi(BLACK, 36)))
+						.build(),
+				new PlayerConfiguration.Builder(RED).at(37).with(detectiveTickets())
+						.using(red).build(),
+				doNothingPlayer(GREEN, 26));
+		if (factory != null) factory.createSpectators(model).forEach(model::registerSpectator);
+		model.startRotate();
+		assertThat(offered).isNotEmpty();
+		return model;
+	}
+
+	@Test
+	public void testDetectiveCapturesMrXWhenAdjacent() throws IOException, InterruptedException {
+		Set<Move> offered = new HashSet<>();
+		ScotlandYardModel model = redNextToMrX(offered);
+		MonteCarloEngine.Result result = engine.search(model, offered, new int[]{36},
+				TimeUnit.MILLISECONDS.toNanos(100));
+		assertThat(result.move()).isEqualTo(taxi(RED, 36));
+		assertThat(result.score()).isEqualTo(1.0);
+		assertThat(result.playouts()).isPositive();
+		assertThat(result.playoutsPerSecond()).isPositive();
+	}
+
+	@Test
+	public void testAICountsWhatItSearched() throws IOException {
+		Set<Move> offered = new HashSet<>();
+		// as long as the engine is given in testDetectiveCapturesMrXWhenAdjacent
+		MonteCarloAI ai = new MonteCarloAI(Duration.ofMillis(100), 2);
+		// MrX shows himself in round 1, so red's tracker knows he is at 36
+		ScotlandYardModel model = redNextToMrX(offered, singleton(1), ai);
+		List<Move> picked = new ArrayList<>();
+		ai.createPlayer(RED).makeMove(model, 37, offered, picked::add);
+		ai.finish();
+		assertThat(picked).containsExactly(taxi(RED, 36));
+		assertThat(ai.moves()).isEqualTo(1);
+		assertThat(ai.playouts()).isPositive();
+		assertThat(ai.playoutsPerSecond()).isPositive();
+	}
+
+	@Test
+	public void testInterruptedAIStillAnswers() throws IOException {
+		Set<Move> offered = new HashSet<>();
+		ScotlandYardModel model = redNextToMrX(offered);
+		MonteCarloAI ai = new QuickMonteCarloAI();
+		ai.createSpectators(model);
+		Player player = ai.createPlayer(RED);
+		List<Move> picked = new ArrayList<>();
+		Thread.currentThread().interrupt();
+		try {
+			player.makeMove(model, 37, offered, picked::add);
+		} finally {
+			assertThat(Thread.interrupted()).as("interrupt flag restored").isTrue();
+			ai.finish();
+		}
+		assertThat(picked).hasSize(1);
+		assertThat(offered).contains(picked.get(0));
+	}
+
+	@Test
+	public void testAIPlaysWholeGames() {
+		AI detectives = AI.fromName("mc", VisualiserType.NONE, QuickMonteCarloAI.class);
+		AI mrX = AI.fromName("first", VisualiserType.NONE, FirstMoveAI.class);
+		FarmReport report = new GameFarm.Builder(mrX, detectives).parallelism(1).build().play(0, 2);
+		assertThat(report.failures()).isZero();
+		assertThat(report.completed()).isEqualTo(2);
+	}
+
+}
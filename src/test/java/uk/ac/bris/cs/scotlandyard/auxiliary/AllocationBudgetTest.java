@@ -0,0 +1,86 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Properties;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.scotlandyard.headless.ScenarioGenerator;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardModel;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Keeps the bytes allocated per move by {@link ScotlandYardModel} within the budget in
+ * {@code allocation-budget.properties}, counted with the thread allocation counters of
+ * {@link com.sun.management.ThreadMXBean}
+ */
+public class AllocationBudgetTest {
+
+	private static final String BUDGET = "/allocation-budget.properties";
+	private static final int GAMES = 20;
+
+	private com.sun.management.ThreadMXBean threads;
+	private Graph<Integer, Transport> graph;
+
+	@Before
+	public void setUp() throws IOException {
+		assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+		threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		assumeTrue(threads.isThreadAllocatedMemorySupported());
+		threads.setThreadAllocatedMemoryEnabled(true);
+		graph = StandardGame.standardGraph();
+	}
+
+	private static long budget() throws IOException {
+		Properties properties = new Properties();
+		try (InputStream stream = AllocationBudgetTest.class.getResourceAsStream(BUDGET)) {
+			properties.load(stream);
+		}
+		return Long.parseLong(properties.getProperty("bytesPerMove"));
+	}
+
+	// bytes allocated on this thread by startRotate, and the moves played, for one game
+	private long[] play(long seed) {
+		// counted as the players pick them, a double move is one move
+		long[] moves = {0};
+		ScotlandYardModel game = ScenarioGenerator.standard().generate(seed)
+				.newGame(graph, colour -> (view, location, valid, callback) -> {
+					moves[0]++;
+					callback.accept(valid.iterator().next());
+				});
+		long thread = Thread.currentThread().getId();
+		long bytes = 0;
+		while (!game.isGameOver()) {
+			long before = threads.getThreadAllocatedBytes(thread);
+			game.startRotate();
+			bytes += threads.getThreadAllocatedBytes(thread) - before;
+		}
+		return new long[]{bytes, moves[0]};
+	}
+
+	@Test
+	public void testBytesPerMoveWithinBudget() throws IOException {
+		// the first games pay for class loading and interpreted code
+		for (long seed = 0; seed < GAMES; seed++) play(seed);
+		long bytes = 0;
+		long moves = 0;
+		for (long seed = 0; seed < GAMES; seed++) {
+			long[] game = play(seed);
+			bytes += game[0];
+			moves += game[1];
+		}
+		assertThat(moves).isPositive();
+		assertThat(bytes / moves)
+				.as("bytes allocated per move over %d moves, budget in %s", moves, BUDGET)
+				.isLessThanOrEqualTo(budget());
+	}
+
+}
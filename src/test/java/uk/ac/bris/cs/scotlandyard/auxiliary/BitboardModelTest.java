@@ -0,0 +1,109 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.scotlandyard.harness.ImmutableScotlandYardView;
+import uk.ac.bris.cs.scotlandyard.headless.Scenario;
+import uk.ac.bris.cs.scotlandyard.headless.ScenarioGenerator;
+import uk.ac.bris.cs.scotlandyard.model.BitboardModel;
+import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.PlayerConfiguration;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardGame;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardModel;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardView;
+import uk.ac.bris.cs.scotlandyard.model.Spectator;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests that {@link BitboardModel} plays exactly like {@link ScotlandYardModel}
+ */
+public class BitboardModelTest {
+
+	private static final int GAMES = 30;
+
+	/**
+	 * Plays the scenario with players that pick a seeded random move and records what the
+	 * players and a spectator are given, in order
+	 */
+	private static List<Object> play(Scenario scenario, Graph<Integer, Transport> graph,
+			boolean bitboard) {
+		List<Object> log = new ArrayList<>();
+		Random random = new Random(scenario.seed());
+		Function<Colour, Player> players = colour -> (view, location, moves, callback) -> {
+			log.add(ImmutableScotlandYardView.snapshot(view, null));
+			log.add(location);
+			log.add(new HashSet<>(moves));
+			List<Move> sorted = moves.stream()
+					.sorted(Comparator.comparing(Move::toString)).collect(toList());
+			callback.accept(sorted.get(random.nextInt(sorted.size())));
+		};
+		List<PlayerConfiguration> configurations = scenario.configurations(players);
+		PlayerConfiguration[] rest = configurations.subList(2, configurations.size())
+				.toArray(new PlayerConfiguration[0]);
+		ScotlandYardGame game = bitboard
+				? new BitboardModel(scenario.rounds(), graph, configurations.get(0),
+						configurations.get(1), rest)
+				: new ScotlandYardModel(scenario.rounds(), graph, configurations.get(0),
+						configurations.get(1), rest);
+		game.registerSpectator(new Spectator() {
+			@Override public void onMoveMade(ScotlandYardView view, Move move) {
+				log.add(move);
+				log.add(ImmutableScotlandYardView.snapshot(view, null));
+			}
+			@Override public void onRoundStarted(ScotlandYardView view, int round) {
+				log.add("round " + round);
+			}
+			@Override public void onRotationComplete(ScotlandYardView view) {
+				log.add("rotation complete");
+			}
+			@Override public void onGameOver(ScotlandYardView view, Set<Colour> winningPlayers) {
+				log.add(new HashSet<>(winningPlayers));
+			}
+		});
+		while (!game.isGameOver()) game.startRotate();
+		log.add(new HashSet<>(game.getWinningPlayers()));
+		log.add(game.getCurrentRound());
+		log.add(game.getCurrentPlayer());
+		return log;
+	}
+
+	@Test
+	public void testPlaysLikeScotlandYardModel() throws IOException {
+		Graph<Integer, Transport> graph = StandardGame.standardGraph();
+		ScenarioGenerator scenarios = ScenarioGenerator.standard();
+		for (long seed = 0; seed < GAMES; seed++) {
+			Scenario scenario = scenarios.generate(seed);
+			assertThat(play(scenario, graph, true))
+					.as("game of seed %d", seed)
+					.isEqualTo(play(scenario, graph, false));
+		}
+	}
+
+	@Test
+	public void testGraphIsNotCopiedPerCall() throws IOException {
+		Scenario scenario = ScenarioGenerator.standard().generate(0);
+		List<PlayerConfiguration> configurations = scenario.configurations(
+				colour -> (view, location, moves, callback) -> {});
+		BitboardModel model = new BitboardModel(scenario.rounds(), StandardGame.standardGraph(),
+				configurations.get(0), configurations.get(1),
+				configurations.subList(2, configurations.size()).toArray(new PlayerConfiguration[0]));
+		assertThat(model.getGraph()).isSameAs(model.getGraph());
+	}
+
+}
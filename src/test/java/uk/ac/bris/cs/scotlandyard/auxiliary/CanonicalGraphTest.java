@@ -0,0 +1,71 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import uk.ac.bris.cs.gamekit.graph.Edge;
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.gamekit.graph.ImmutableGraph;
+import uk.ac.bris.cs.gamekit.graph.Node;
+import uk.ac.bris.cs.gamekit.graph.UndirectedGraph;
+import uk.ac.bris.cs.scotlandyard.headless.ScenarioGenerator;
+import uk.ac.bris.cs.scotlandyard.model.BitboardModel;
+import uk.ac.bris.cs.scotlandyard.model.PlayerConfiguration;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardModel;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for frozen {@link ImmutableGraph} copies and the graphs games share
+ */
+public class CanonicalGraphTest {
+
+	private static ScotlandYardModel game(int seed, Graph<Integer, Transport> graph) {
+		return ScenarioGenerator.standard().generate(seed)
+				.newGame(graph, colour -> (view, location, moves, callback) ->
+						callback.accept(moves.iterator().next()));
+	}
+
+	@Test
+	public void testCopyIsEqualAndFrozenOnce() throws IOException {
+		UndirectedGraph<Integer, Transport> graph = new UndirectedGraph<>(StandardGame.standardGraph());
+		ImmutableGraph<Integer, Transport> copy = ImmutableGraph.copyOf(graph);
+		assertThat(copy.isFrozen()).isTrue();
+		assertThat(copy).isEqualTo(graph).hasSameHashCodeAs(graph);
+		assertThat(graph).isEqualTo(copy);
+		assertThat(ImmutableGraph.copyOf(copy)).isSameAs(copy);
+		assertThat(copy.getNodes()).isSameAs(copy.getNodes());
+		assertThat(new ImmutableGraph<>(graph).isFrozen()).isFalse();
+	}
+
+	@Test
+	public void testCopyDoesNotFollowSource() throws IOException {
+		UndirectedGraph<Integer, Transport> graph = new UndirectedGraph<>(StandardGame.standardGraph());
+		ImmutableGraph<Integer, Transport> copy = ImmutableGraph.copyOf(graph);
+		int size = copy.size();
+		graph.addNode(new Node<>(500));
+		graph.addEdge(new Edge<>(graph.getNode(500), graph.getNode(1), Transport.TAXI));
+		assertThat(copy.size()).isEqualTo(size);
+		assertThat(copy).isNotEqualTo(graph);
+		assertThat(ImmutableGraph.copyOf(graph)).isNotEqualTo(copy);
+	}
+
+	@Test
+	public void testGamesOnTheSameMapShareOneGraph() throws IOException {
+		ScotlandYardModel first = game(1, StandardGame.standardGraph());
+		ScotlandYardModel second = game(2, new UndirectedGraph<>(StandardGame.standardGraph()));
+		assertThat(first.getGraph()).isSameAs(first.getGraph()).isSameAs(second.getGraph());
+		List<PlayerConfiguration> players = ScenarioGenerator.standard().generate(3)
+				.configurations(colour -> (view, location, moves, callback) ->
+						callback.accept(moves.iterator().next()));
+		BitboardModel bitboard = new BitboardModel(first.getRounds(), StandardGame.standardGraph(),
+				players.get(0), players.get(1),
+				players.subList(2, players.size()).toArray(new PlayerConfiguration[0]));
+		assertThat(bitboard.getGraph()).isSameAs(first.getGraph());
+	}
+
+}
@@ -0,0 +1,90 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import uk.ac.bris.cs.gamekit.graph.Edge;
+import uk.ac.bris.cs.gamekit.graph.ImmutableGraph;
+import uk.ac.bris.cs.gamekit.graph.Node;
+import uk.ac.bris.cs.gamekit.graph.UndirectedGraph;
+import uk.ac.bris.cs.scotlandyard.model.CompactGraph;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYardGraphReader.fromLines;
+
+/**
+ * Tests for {@link CompactGraph}
+ */
+public class CompactGraphTest {
+
+	@Test
+	public void testPacksSmallGraph() {
+		CompactGraph graph = CompactGraph.of(
+				fromLines(asList("3 2", "1", "2", "3", "1 2 Taxi", "2 3 Ferry")));
+		assertThat(graph.nodeCount()).isEqualTo(3);
+		assertThat(graph.edgeCount()).isEqualTo(4);
+		int two = graph.indexOf(2);
+		assertThat(graph.valueAt(two)).isEqualTo(2);
+		assertThat(graph.edgeEnd(two) - graph.edgeStart(two)).isEqualTo(2);
+		assertThat(graph.indexOf(4)).isNegative();
+		assertThat(graph.indexOf(-1)).isNegative();
+	}
+
+	@Test
+	public void testEdgesMatchStandardGraph() throws IOException {
+		ImmutableGraph<Integer, Transport> standard = StandardGame.standardGraph();
+		CompactGraph graph = CompactGraph.of(standard);
+		assertThat(graph.getNodes()).isEqualTo(standard.getNodes());
+		for (Node<Integer> node : standard.getNodes()) {
+			Set<Edge<Integer, Transport>> expected = new HashSet<>(standard.getEdgesFrom(node));
+			Set<Edge<Integer, Transport>> packed = new HashSet<>();
+			int index = graph.indexOf(node.value());
+			for (int edge = graph.edgeStart(index); edge < graph.edgeEnd(index); edge++) {
+				packed.add(new Edge<>(node, new Node<>(graph.destinationValue(edge)),
+						graph.transport(edge)));
+			}
+			assertThat(packed).isEqualTo(expected);
+			assertThat(graph.getEdgesFrom(node)).containsExactlyElementsOf(
+					standard.getEdgesFrom(node));
+		}
+	}
+
+	@Test
+	public void testEqualsGraphItWasPackedFrom() throws IOException {
+		ImmutableGraph<Integer, Transport> standard = StandardGame.standardGraph();
+		CompactGraph graph = CompactGraph.of(standard);
+		assertThat(graph.getEdges()).containsExactlyElementsOf(standard.getEdges());
+		assertThat(graph).isEqualTo(standard);
+		assertThat(standard).isEqualTo(graph);
+		assertThat(graph.hashCode()).isEqualTo(standard.hashCode());
+
+		// edges added out of node order
+		UndirectedGraph<Integer, Transport> small = new UndirectedGraph<>();
+		for (int value = 1; value <= 3; value++) small.addNode(new Node<>(value));
+		small.addEdge(new Edge<>(new Node<>(2), new Node<>(3), Transport.FERRY));
+		small.addEdge(new Edge<>(new Node<>(1), new Node<>(2), Transport.TAXI));
+		assertThat(CompactGraph.of(small)).isEqualTo(small).hasSameHashCodeAs(small);
+		assertThat(small).isEqualTo(CompactGraph.of(small));
+	}
+
+	@Test
+	public void testOfCompactGraphReturnsSameInstance() {
+		CompactGraph graph = CompactGraph.of(fromLines(asList("2 1", "1", "2", "1 2 Bus")));
+		assertThat(CompactGraph.of(graph)).isSameAs(graph);
+	}
+
+	@Test
+	public void testIsImmutable() {
+		CompactGraph graph = CompactGraph.of(fromLines(asList("2 1", "1", "2", "1 2 Bus")));
+		assertThatThrownBy(() -> graph.addNode(new Node<>(3)))
+				.isInstanceOf(UnsupportedOperationException.class);
+	}
+
+}
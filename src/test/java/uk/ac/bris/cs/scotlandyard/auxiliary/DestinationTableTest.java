@@ -0,0 +1,95 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.scotlandyard.model.CanonicalGraphs;
+import uk.ac.bris.cs.scotlandyard.model.DestinationTable;
+import uk.ac.bris.cs.scotlandyard.model.NodeBitset;
+import uk.ac.bris.cs.scotlandyard.model.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYardGraphReader.fromLines;
+
+/**
+ * Tests for {@link DestinationTable}
+ */
+public class DestinationTableTest {
+
+	private static Graph<Integer, Transport> graph() {
+		return fromLines(asList(
+				"5 4", "1", "2", "3", "4", "130",
+				"1 2 Taxi", "1 3 Bus", "1 4 Ferry", "1 130 Taxi"));
+	}
+
+	private final DestinationTable table = DestinationTable.of(graph());
+
+	private static List<Integer> nodes(long[] bits) {
+		List<Integer> nodes = new ArrayList<>();
+		for (int n = NodeBitset.nextSetBit(bits, 0); n >= 0; n = NodeBitset.nextSetBit(bits, n + 1))
+			nodes.add(n);
+		return nodes;
+	}
+
+	@Test
+	public void testDestinationsPerTransport() {
+		long[] none = table.newBitset();
+		long[] out = table.newBitset();
+		table.destinations(1, Transport.TAXI, none, out);
+		assertThat(nodes(out)).containsExactly(2, 130);
+		table.destinations(1, Transport.BUS, none, out);
+		assertThat(nodes(out)).containsExactly(3);
+		table.destinations(3, Transport.BUS, none, out);
+		assertThat(nodes(out)).containsExactly(1);
+	}
+
+	@Test
+	public void testSecretTicketReachesAnyTransport() {
+		long[] out = table.newBitset();
+		table.destinations(1, Ticket.SECRET, table.newBitset(), out);
+		assertThat(nodes(out)).containsExactly(2, 3, 4, 130);
+		table.destinations(1, Ticket.DOUBLE, table.newBitset(), out);
+		assertThat(nodes(out)).isEmpty();
+	}
+
+	@Test
+	public void testOccupiedNodesAreExcluded() {
+		long[] occupied = table.newBitset();
+		NodeBitset.add(occupied, 130);
+		NodeBitset.add(occupied, 3);
+		long[] out = table.newBitset();
+		table.destinations(1, Ticket.SECRET, occupied, out);
+		assertThat(nodes(out)).containsExactly(2, 4);
+	}
+
+	@Test
+	public void testExpandMergesEverySource() {
+		long[] from = table.newBitset();
+		NodeBitset.add(from, 2);
+		NodeBitset.add(from, 130);
+		long[] occupied = table.newBitset();
+		NodeBitset.add(occupied, 2);
+		long[] out = table.newBitset();
+		table.expand(from, Ticket.TAXI, table.newBitset(), out);
+		assertThat(nodes(out)).containsExactly(1);
+		NodeBitset.add(from, 1);
+		table.expand(from, Ticket.TAXI, occupied, out);
+		assertThat(nodes(out)).containsExactly(1, 130);
+		table.expand(from, Ticket.DOUBLE, table.newBitset(), out);
+		assertThat(nodes(out)).isEmpty();
+	}
+
+	@Test
+	public void testEqualMapsShareOneTable() {
+		Graph<Integer, Transport> graph = graph();
+		DestinationTable shared = CanonicalGraphs.destinations(graph);
+		assertThat(CanonicalGraphs.destinations(graph())).isSameAs(shared);
+		assertThat(CanonicalGraphs.destinations(CanonicalGraphs.of(graph))).isSameAs(shared);
+	}
+
+}
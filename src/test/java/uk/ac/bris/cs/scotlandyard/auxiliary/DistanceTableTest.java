@@ -0,0 +1,129 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.scotlandyard.model.DistanceTable;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.DistanceTable.UNREACHABLE;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYardGraphReader.fromLines;
+
+/**
+ * Tests for {@link DistanceTable}
+ */
+public class DistanceTableTest {
+
+	@Rule public final TemporaryFolder folder = new TemporaryFolder();
+
+	// 1 - 2 - 3 - 4 by taxi, 1 - 5 - 4 by bus and 4 - 6 by ferry
+	private final Graph<Integer, Transport> graph = fromLines(asList(
+			"6 6", "1", "2", "3", "4", "5", "6",
+			"1 2 Taxi", "2 3 Taxi", "3 4 Taxi", "1 5 Bus", "5 4 Bus", "4 6 Ferry"));
+	private final DistanceTable table = DistanceTable.of(graph);
+
+	private static Map<Ticket, Integer> tickets(int taxi, int bus, int secret) {
+		Map<Ticket, Integer> tickets = new EnumMap<>(Ticket.class);
+		tickets.put(Ticket.TAXI, taxi);
+		tickets.put(Ticket.BUS, bus);
+		tickets.put(Ticket.SECRET, secret);
+		return tickets;
+	}
+
+	@Test
+	public void testDistancePerTransportSubset() {
+		assertThat(table.distance(1, 1)).isZero();
+		assertThat(table.distance(1, 4)).isEqualTo(2);
+		assertThat(table.distance(1, 4, DistanceTable.mask(Transport.TAXI))).isEqualTo(3);
+		assertThat(table.distance(1, 6)).isEqualTo(3);
+		assertThat(table.distance(1, 6, DistanceTable.mask(Transport.TAXI, Transport.BUS)))
+				.isEqualTo(UNREACHABLE);
+		assertThat(table.distance(1, 6, DistanceTable.mask(Ticket.SECRET))).isEqualTo(3);
+		assertThat(table.distance(1, 42)).isEqualTo(UNREACHABLE);
+	}
+
+	@Test
+	public void testDistanceWithTickets() {
+		assertThat(table.distance(1, 4, tickets(3, 2, 0))).isEqualTo(2);
+		assertThat(table.distance(1, 4, tickets(3, 1, 0))).isEqualTo(3);
+		assertThat(table.distance(1, 4, tickets(2, 1, 0))).isEqualTo(UNREACHABLE);
+		assertThat(table.distance(1, 4, tickets(0, 1, 1))).isEqualTo(2);
+		assertThat(table.distance(1, 6, tickets(3, 2, 0))).isEqualTo(UNREACHABLE);
+		assertThat(table.distance(1, 6, tickets(0, 2, 1))).isEqualTo(3);
+		assertThat(table.distance(1, 1, tickets(0, 0, 0))).isZero();
+		assertThat(table.canReach(1, 4, tickets(3, 1, 0), 2)).isFalse();
+		assertThat(table.canReach(1, 4, tickets(3, 1, 0), 3)).isTrue();
+	}
+
+	@Test
+	public void testStandardMapIsSymmetric() throws IOException {
+		DistanceTable standard = DistanceTable.of(StandardGame.standardGraph());
+		assertThat(standard.nodes()).isEqualTo(199);
+		List<String> asymmetric = new ArrayList<>();
+		for (int from = 1; from <= 199; from++) {
+			assertThat(standard.distance(from, from)).isZero();
+			for (int to = from + 1; to <= 199; to++) {
+				if (standard.distance(from, to) != standard.distance(to, from))
+					asymmetric.add(from + "<->" + to);
+			}
+		}
+		assertThat(asymmetric).isEmpty();
+		// ticket constrained queries search, so only a sample of them
+		Map<Ticket, Integer> tickets = StandardGame.generateDetectiveTickets();
+		Random random = new Random(199);
+		for (int i = 0; i < 400; i++) {
+			int from = 1 + random.nextInt(199);
+			int to = 1 + random.nextInt(199);
+			assertThat(standard.distance(from, to, tickets))
+					.isGreaterThanOrEqualTo(standard.distance(from, to));
+		}
+	}
+
+	@Test
+	public void testWriteAndReadBack() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		table.write(out);
+		DistanceTable read = DistanceTable.read(graph,
+				new ByteArrayInputStream(out.toByteArray()));
+		assertThat(read).isNotNull();
+		for (int from = 1; from <= 6; from++)
+			for (int to = 1; to <= 6; to++)
+				for (int mask = 0; mask <= DistanceTable.ALL; mask++)
+					assertThat(read.distance(from, to, mask)).isEqualTo(table.distance(from, to, mask));
+		Graph<Integer, Transport> other = fromLines(asList("2 1", "1", "2", "1 2 Taxi"));
+		assertThat(DistanceTable.read(other, new ByteArrayInputStream(out.toByteArray()))).isNull();
+	}
+
+	@Test
+	public void testCacheRecoversFromCutShortFile() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		table.write(out);
+		byte[] whole = out.toByteArray();
+		Path file = folder.getRoot().toPath().resolve("distances.bin");
+		for (byte[] content : asList(new byte[0], Arrays.copyOf(whole, whole.length / 2))) {
+			Files.write(file, content);
+			DistanceTable cached = DistanceTable.cached(graph, file);
+			assertThat(cached.distance(1, 6)).isEqualTo(table.distance(1, 6));
+			assertThat(Files.readAllBytes(file)).isEqualTo(whole);
+		}
+	}
+
+}
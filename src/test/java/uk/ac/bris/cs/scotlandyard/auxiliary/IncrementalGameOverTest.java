@@ -0,0 +1,217 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import uk.ac.bris.cs.gamekit.graph.Edge;
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.scotlandyard.headless.Scenario;
+import uk.ac.bris.cs.scotlandyard.headless.ScenarioGenerator;
+import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.PackedMove;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.PlayerConfiguration;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardModel;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardView;
+import uk.ac.bris.cs.scotlandyard.model.SearchState;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.DEFAULT_REVEAL;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.bus;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.detectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.makeTickets;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.mrXTickets;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.ofRounds;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.rounds;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.taxi;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLACK;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.SECRET;
+
+/**
+ * Checks the game over state {@link ScotlandYardModel} and {@link SearchState}
+ * keep up to date as moves are played against a full recomputation of the
+ * rules from the players' locations and tickets
+ */
+public class IncrementalGameOverTest {
+
+	private final Graph<Integer, Transport> graph;
+
+	public IncrementalGameOverTest() throws IOException {
+		graph = StandardGame.standardGraph();
+	}
+
+	/**
+	 * Recomputes the outcome of a game from scratch
+	 *
+	 * @return the winners, empty if the game is not over
+	 */
+	private Set<Colour> recompute(ScotlandYardView view, int mrX) {
+		List<Colour> detectives = view.getPlayers().stream()
+				.filter(Colour::isDetective).collect(toList());
+		Set<Integer> occupied = new HashSet<>();
+		boolean detectivesHaveTickets = false;
+		for (Colour detective : detectives) {
+			int location = view.getPlayerLocation(detective).orElseThrow(AssertionError::new);
+			if (location == mrX) return new HashSet<>(detectives);
+			occupied.add(location);
+			for (Ticket ticket : Ticket.values())
+				if (tickets(view, detective, ticket) > 0) detectivesHaveTickets = true;
+		}
+		if (!detectivesHaveTickets) return Collections.singleton(BLACK);
+		if (view.getCurrentPlayer() == BLACK) {
+			if (view.getCurrentRound() == view.getRounds().size()) return Collections.singleton(BLACK);
+			for (Edge<Integer, Transport> edge : graph.getEdgesFrom(graph.getNode(mrX))) {
+				if (occupied.contains(edge.destination().value())) continue;
+				if (tickets(view, BLACK, Ticket.fromTransport(edge.data())) > 0
+						|| tickets(view, BLACK, SECRET) > 0) return Collections.emptySet();
+			}
+			return new HashSet<>(detectives);
+		}
+		return Collections.emptySet();
+	}
+
+	private static int tickets(ScotlandYardView view, Colour colour, Ticket ticket) {
+		return view.getPlayerTickets(colour, ticket).orElseThrow(AssertionError::new);
+	}
+
+	/**
+	 * Plays a game, checking the model and a search state that follows it
+	 * before every move and once the game is over
+	 */
+	private static final class Game {
+		private final IncrementalGameOverTest test;
+		private final Deque<Move> script;
+		private final Random random;
+		private ScotlandYardModel model;
+		private SearchState search;
+		private int mrX;
+		private int checks;
+
+		Game(IncrementalGameOverTest test, List<Move> script, long seed) {
+			this.test = test;
+			this.script = new ArrayDeque<>(script);
+			this.random = new Random(seed);
+		}
+
+		Player player() {
+			return (view, location, moves, callback) -> {
+				check();
+				Move move;
+				if (script.isEmpty()) {
+					List<Move> sorted = moves.stream()
+							.sorted(Comparator.comparing(Move::toString)).collect(toList());
+					move = sorted.get(random.nextInt(sorted.size()));
+				} else move = script.pop();
+				if (move.colour().isMrX()) mrX = PackedMove.finalDestination(PackedMove.of(move));
+				search.apply(move);
+				callback.accept(move);
+			};
+		}
+
+		void check() {
+			Set<Colour> expected = test.recompute(model, mrX);
+			assertThat(model.isGameOver()).as("model game over").isEqualTo(!expected.isEmpty());
+			assertThat(model.getWinningPlayers()).as("model winners")
+					.containsExactlyInAnyOrderElementsOf(expected);
+			assertThat(search.isGameOver()).as("search game over").isEqualTo(!expected.isEmpty());
+			assertThat(search.isMrXWin()).as("search MrX win").isEqualTo(expected.contains(BLACK));
+			checks++;
+		}
+
+		/**
+		 * @return the winners
+		 */
+		Set<Colour> play(List<Boolean> rounds, PlayerConfiguration mrX,
+				PlayerConfiguration firstDetective, PlayerConfiguration... rest) {
+			this.mrX = mrX.location;
+			model = new ScotlandYardModel(rounds, test.graph, mrX, firstDetective, rest);
+			search = new SearchState(model, mrX.location);
+			while (!model.isGameOver()) model.startRotate();
+			check();
+			assertThat(script).as("unplayed moves").isEmpty();
+			assertThat(checks).isGreaterThan(1);
+			return new HashSet<>(model.getWinningPlayers());
+		}
+	}
+
+	private PlayerConfiguration configuration(Game game, Colour colour, int location,
+			int taxi, int bus, int underground, int x2, int secret) {
+		return new PlayerConfiguration.Builder(colour).at(location).using(game.player())
+				.with(makeTickets(taxi, bus, underground, x2, secret)).build();
+	}
+
+	private PlayerConfiguration configuration(Game game, Colour colour, int location) {
+		return new PlayerConfiguration.Builder(colour).at(location).using(game.player())
+				.with(colour.isMrX() ? mrXTickets() : detectiveTickets()).build();
+	}
+
+	@Test
+	public void testDetectiveCapturesMrX() {
+		Game game = new Game(this, Arrays.asList(taxi(BLACK, 103), taxi(BLUE, 103)), 0);
+		assertThat(game.play(ofRounds(24, DEFAULT_REVEAL), configuration(game, BLACK, 86),
+				configuration(game, BLUE, 85), configuration(game, RED, 111)))
+				.containsExactlyInAnyOrder(BLUE, RED);
+	}
+
+	@Test
+	public void testAllDetectivesStuck() {
+		Game game = new Game(this, Arrays.asList(
+				taxi(BLACK, 104), taxi(BLUE, 106), taxi(RED, 71)), 0);
+		assertThat(game.play(ofRounds(24, DEFAULT_REVEAL), configuration(game, BLACK, 86),
+				configuration(game, BLUE, 105, 1, 0, 0, 0, 0),
+				configuration(game, RED, 70, 1, 0, 0, 0, 0)))
+				.containsExactly(BLACK);
+	}
+
+	@Test
+	public void testMrXStuck() {
+		Game game = new Game(this, Arrays.asList(taxi(BLACK, 104), bus(BLUE, 105)), 0);
+		assertThat(game.play(ofRounds(24, DEFAULT_REVEAL),
+				configuration(game, BLACK, 86, 1, 1, 1, 0, 0), configuration(game, BLUE, 108)))
+				.containsExactly(BLUE);
+	}
+
+	@Test
+	public void testFinalRoundReached() {
+		Game game = new Game(this, Arrays.asList(
+				taxi(BLACK, 103), taxi(BLUE, 68), taxi(BLACK, 102), taxi(BLUE, 51)), 0);
+		assertThat(game.play(rounds(true, false), configuration(game, BLACK, 86),
+				configuration(game, BLUE, 85)))
+				.containsExactly(BLACK);
+	}
+
+	@Test
+	public void testRandomGamesAgreeWithRecomputation() {
+		ScenarioGenerator scenarios = ScenarioGenerator.standard();
+		List<Set<Colour>> winners = new ArrayList<>();
+		for (long seed = 0; seed < 20; seed++) {
+			Scenario scenario = scenarios.generate(seed);
+			Game game = new Game(this, Collections.emptyList(), seed);
+			List<PlayerConfiguration> configurations = scenario.configurations(colour -> game.player());
+			winners.add(game.play(scenario.rounds(), configurations.get(0), configurations.get(1),
+					configurations.subList(2, configurations.size())
+							.toArray(new PlayerConfiguration[0])));
+		}
+		assertThat(winners).anyMatch(set -> set.contains(BLACK))
+				.anyMatch(set -> !set.contains(BLACK));
+	}
+
+}
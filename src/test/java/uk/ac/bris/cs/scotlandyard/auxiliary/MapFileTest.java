@@ -0,0 +1,130 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.scotlandyard.model.CompactGraph;
+import uk.ac.bris.cs.scotlandyard.model.DistanceTable;
+import uk.ac.bris.cs.scotlandyard.model.MapFile;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYardGraphReader.fromLines;
+
+/**
+ * Tests for {@link MapFile}
+ */
+public class MapFileTest {
+
+	@Rule public final TemporaryFolder folder = new TemporaryFolder();
+
+	private final Graph<Integer, Transport> graph = fromLines(asList(
+			"6 6", "1", "2", "3", "4", "5", "6",
+			"1 2 Taxi", "2 3 Taxi", "3 4 Taxi", "1 5 Bus", "5 4 Bus", "4 6 Ferry"));
+
+	@Test
+	public void testWriteAndOpen() throws IOException {
+		Map<Integer, Entry<Integer, Integer>> positions = new HashMap<>();
+		positions.put(1, new SimpleImmutableEntry<>(10, 20));
+		positions.put(6, new SimpleImmutableEntry<>(30, 40));
+		Path file = folder.getRoot().toPath().resolve("small.map");
+		DistanceTable table = DistanceTable.of(graph);
+		MapFile.write(graph, positions, table, file);
+
+		MapFile map = MapFile.open(file);
+		assertThat(map.graph()).isEqualTo(graph);
+		assertThat(map.positions()).isEqualTo(positions);
+		CompactGraph compact = CompactGraph.of(graph);
+		assertThat(map.nodeCount()).isEqualTo(compact.nodeCount());
+		assertThat(map.edgeCount()).isEqualTo(compact.edgeCount());
+		for (int node = 0; node < compact.nodeCount(); node++) {
+			assertThat(map.valueAt(node)).isEqualTo(compact.valueAt(node));
+			assertThat(map.edgeStart(node)).isEqualTo(compact.edgeStart(node));
+			assertThat(map.edgeEnd(node)).isEqualTo(compact.edgeEnd(node));
+		}
+		for (int edge = 0; edge < compact.edgeCount(); edge++) {
+			assertThat(map.destination(edge)).isEqualTo(compact.destination(edge));
+			assertThat(map.transport(edge)).isEqualTo(compact.transport(edge));
+		}
+		assertThat(map.distances()).hasValueSatisfying(read -> {
+			for (int from = 1; from <= 6; from++)
+				for (int to = 1; to <= 6; to++)
+					assertThat(read.distance(from, to)).isEqualTo(table.distance(from, to));
+		});
+	}
+
+	@Test
+	public void testMappedDistancesAnswerLikeComputedOnes() throws IOException {
+		Path file = folder.getRoot().toPath().resolve("small.map");
+		DistanceTable table = DistanceTable.of(graph);
+		MapFile.write(graph, new HashMap<>(), table, file);
+		DistanceTable mapped = MapFile.open(file).distances().orElseThrow(AssertionError::new);
+		Map<Ticket, Integer> tickets = new HashMap<>();
+		tickets.put(Ticket.TAXI, 1);
+		tickets.put(Ticket.BUS, 2);
+		for (int from = 1; from <= 6; from++)
+			for (int to = 1; to <= 6; to++) {
+				for (int mask = 0; mask <= DistanceTable.ALL; mask++)
+					assertThat(mapped.distance(from, to, mask)).isEqualTo(table.distance(from, to, mask));
+				assertThat(mapped.distance(from, to, tickets))
+						.isEqualTo(table.distance(from, to, tickets));
+			}
+		assertThat(mapped.graph()).isEqualTo(table.graph());
+		ByteArrayOutputStream written = new ByteArrayOutputStream();
+		ByteArrayOutputStream rewritten = new ByteArrayOutputStream();
+		table.write(written);
+		mapped.write(rewritten);
+		assertThat(rewritten.toByteArray()).isEqualTo(written.toByteArray());
+		assertThat(DistanceTable.read(graph, new ByteArrayInputStream(rewritten.toByteArray())))
+				.isNotNull();
+	}
+
+	@Test
+	public void testDistancesAreOptional() throws IOException {
+		Path file = folder.getRoot().toPath().resolve("small.map");
+		MapFile.write(graph, new HashMap<>(), null, file);
+		MapFile map = MapFile.open(file);
+		assertThat(map.hasDistances()).isFalse();
+		assertThat(map.distances()).isEmpty();
+		assertThat(map.graph()).isEqualTo(graph);
+	}
+
+	@Test
+	public void testStandardMapIsWrittenOnceAndSharesTheGraph() throws IOException {
+		Path file = folder.getRoot().toPath().resolve("maps/standard.map");
+		MapFile written = MapFile.standard(file);
+		long modified = Files.getLastModifiedTime(file).toMillis();
+		MapFile read = MapFile.standard(file);
+		assertThat(Files.getLastModifiedTime(file).toMillis()).isEqualTo(modified);
+		assertThat(read.graph()).isEqualTo(StandardGame.standardGraph())
+				.isSameAs(written.graph());
+		assertThat(read.positions()).isEqualTo(StandardGame.pngMapPositionEntries());
+		assertThat(read.distances()).isPresent();
+	}
+
+	@Test
+	public void testOtherFilesAreRejected() throws IOException {
+		Path file = folder.newFile("not.map").toPath();
+		Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16,
+				17, 18, 19, 20, 21, 22, 23, 24, 25, 26, 27, 28});
+		assertThatThrownBy(() -> MapFile.open(file)).isInstanceOf(IOException.class);
+		assertThat(MapFile.standard(file).graph()).isEqualTo(StandardGame.standardGraph());
+	}
+
+}
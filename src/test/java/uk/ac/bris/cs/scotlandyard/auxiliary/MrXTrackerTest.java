@@ -0,0 +1,138 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import uk.ac.bris.cs.gamekit.graph.Edge;
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.MrXTracker;
+import uk.ac.bris.cs.scotlandyard.model.NodeBitset;
+import uk.ac.bris.cs.scotlandyard.model.PlayerConfiguration;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardModel;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.DEFAULT_REVEAL;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.DETECTIVE_LOCATIONS;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.MRX_LOCATIONS;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.bus;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.detectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.mrXTickets;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.ofRounds;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.secret;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.taxi;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.x2;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLACK;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.GREEN;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.TAXI;
+
+/**
+ * Tests for {@link MrXTracker}
+ */
+public class MrXTrackerTest {
+
+	private Graph<Integer, Transport> graph;
+	private final Deque<Move> script = new ArrayDeque<>();
+
+	@Before
+	public void setUp() throws IOException {
+		graph = StandardGame.standardGraph();
+	}
+
+	private PlayerConfiguration scripted(Colour colour, int location) {
+		return new PlayerConfiguration.Builder(colour)
+				.at(location)
+				.with(colour.isDetective() ? detectiveTickets() : mrXTickets())
+				.using((view, current, moves, callback) -> {
+					Move move = script.poll();
+					if (move != null) callback.accept(move);
+				}).build();
+	}
+
+	private ScotlandYardModel game(MrXTracker tracker, Move... moves) {
+		ScotlandYardModel model = new ScotlandYardModel(ofRounds(24, DEFAULT_REVEAL), graph,
+				scripted(BLACK, MRX_LOCATIONS.get(0)),
+				scripted(RED, DETECTIVE_LOCATIONS.get(0)),
+				scripted(GREEN, DETECTIVE_LOCATIONS.get(1)));
+		model.registerSpectator(tracker);
+		script.addAll(asList(moves));
+		while (!script.isEmpty()) model.startRotate();
+		return model;
+	}
+
+	private Set<Integer> neighbours(int node, Transport transport) {
+		Set<Integer> nodes = new HashSet<>();
+		for (Edge<Integer, Transport> edge : graph.getEdgesFrom(graph.getNode(node)))
+			if (transport == null || edge.data() == transport) nodes.add(edge.destination().value());
+		return nodes;
+	}
+
+	@Test
+	public void testHiddenMoveExpandsAlongTicket() {
+		MrXTracker tracker = new MrXTracker(graph, singletonList(35));
+		game(tracker, taxi(BLACK, 36), taxi(RED, 27), bus(GREEN, 41));
+		Set<Integer> expected = neighbours(35, Transport.TAXI);
+		expected.remove(27);
+		assertThat(tracker.candidateSet()).isEqualTo(expected).contains(36);
+		assertThat(tracker.hiddenMoves()).isEqualTo(1);
+		assertThat(tracker.lastRevealed()).isZero();
+	}
+
+	@Test
+	public void testSecretMoveExpandsAlongEveryTransport() {
+		MrXTracker tracker = new MrXTracker(graph, singletonList(35));
+		game(tracker, secret(BLACK, 36), taxi(RED, 27), bus(GREEN, 41));
+		Set<Integer> expected = neighbours(35, null);
+		expected.remove(27);
+		assertThat(tracker.candidateSet()).isEqualTo(expected);
+	}
+
+	@Test
+	public void testDetectiveLocationsAreNeverCandidates() {
+		MrXTracker tracker = new MrXTracker(graph);
+		assertThat(tracker.size()).isEqualTo(graph.size());
+		game(tracker, taxi(BLACK, 36), taxi(RED, 27), bus(GREEN, 41));
+		assertThat(tracker.contains(27)).isFalse();
+		assertThat(tracker.contains(41)).isFalse();
+		assertThat(tracker.contains(36)).isTrue();
+	}
+
+	@Test
+	public void testRevealCollapsesCandidates() {
+		MrXTracker tracker = new MrXTracker(graph, MRX_LOCATIONS);
+		game(tracker, taxi(BLACK, 36), taxi(RED, 27), bus(GREEN, 41),
+				x2(BLACK, TAXI, 37, TAXI, 50));
+		assertThat(tracker.candidateSet()).containsExactly(50);
+		assertThat(tracker.lastRevealed()).isEqualTo(50);
+		assertThat(tracker.hiddenMoves()).isZero();
+		long[] bits = new long[tracker.words()];
+		tracker.candidates(bits);
+		assertThat(NodeBitset.cardinality(bits)).isEqualTo(1);
+		assertThat(tracker.next(0)).isEqualTo(50);
+		assertThat(tracker.next(51)).isEqualTo(-1);
+	}
+
+	@Test
+	public void testRestartForgetsGame() {
+		List<Integer> start = asList(35, 45);
+		MrXTracker tracker = new MrXTracker(graph, start);
+		game(tracker, taxi(BLACK, 36), taxi(RED, 27), bus(GREEN, 41));
+		tracker.restart();
+		assertThat(tracker.candidateSet()).containsExactlyElementsOf(start);
+		assertThat(tracker.hiddenMoves()).isZero();
+	}
+
+}
@@ -0,0 +1,90 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.MoveList;
+import uk.ac.bris.cs.scotlandyard.model.PackedMove;
+import uk.ac.bris.cs.scotlandyard.model.Ticket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.pass;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.taxi;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.ticket;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.x2;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLACK;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.BUS;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.SECRET;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.TAXI;
+
+/**
+ * Tests for {@link PackedMove} and {@link MoveList}
+ */
+public class PackedMoveTest {
+
+	@Test
+	public void testEveryMoveRoundTrips() {
+		Set<Integer> encodings = new HashSet<>();
+		for (Colour colour : Colour.values()) {
+			Move pass = pass(colour);
+			assertThat(PackedMove.toMove(PackedMove.of(pass))).isEqualTo(pass);
+			encodings.add(PackedMove.of(pass));
+			for (Ticket first : Ticket.values()) {
+				for (int destination : new int[]{0, 1, 199, PackedMove.MAX_DESTINATION}) {
+					Move single = ticket(colour, first, destination);
+					assertThat(PackedMove.toMove(PackedMove.of(single))).isEqualTo(single);
+					assertThat(encodings.add(PackedMove.of(single))).isTrue();
+					for (Ticket second : Ticket.values()) {
+						Move x2 = x2(colour, first, destination, second, 199 - destination % 200);
+						assertThat(PackedMove.toMove(PackedMove.of(x2))).isEqualTo(x2);
+						assertThat(PackedMove.of(x2)).isNotNegative();
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testAccessors() {
+		int move = PackedMove.doubleMove(BLACK, SECRET, 5, BUS, 7);
+		assertThat(PackedMove.colour(move)).isEqualTo(BLACK);
+		assertThat(PackedMove.isDouble(move)).isTrue();
+		assertThat(PackedMove.isPass(move)).isFalse();
+		assertThat(PackedMove.firstTicket(move)).isEqualTo(SECRET);
+		assertThat(PackedMove.firstDestination(move)).isEqualTo(5);
+		assertThat(PackedMove.secondTicket(move)).isEqualTo(BUS);
+		assertThat(PackedMove.finalDestination(move)).isEqualTo(7);
+		assertThat(PackedMove.finalDestination(PackedMove.pass(RED))).isEqualTo(-1);
+		assertThat(PackedMove.doubleMove(PackedMove.ticket(BLACK, SECRET, 5),
+				PackedMove.ticket(BLACK, BUS, 7))).isEqualTo(move);
+	}
+
+	@Test
+	public void testDestinationOutOfRangeThrows() {
+		assertThatThrownBy(() -> PackedMove.ticket(RED, TAXI, PackedMove.MAX_DESTINATION + 1))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> PackedMove.of(taxi(RED, -1)))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	public void testMoveListGrowsAndClears() {
+		MoveList list = new MoveList(1);
+		for (int i = 1; i <= 100; i++) list.add(PackedMove.ticket(RED, TAXI, i));
+		assertThat(list.size()).isEqualTo(100);
+		assertThat(list.contains(PackedMove.ticket(RED, TAXI, 42))).isTrue();
+		assertThat(list.asMoves()).hasSize(100).contains(taxi(RED, 100));
+		assertThat(list.toMoves()).hasSize(100).contains(taxi(RED, 1));
+		list.clear();
+		assertThat(list.isEmpty()).isTrue();
+		assertThat(list.asMoves()).isEmpty();
+		assertThatThrownBy(() -> list.get(0)).isInstanceOf(IndexOutOfBoundsException.class);
+	}
+
+}
@@ -0,0 +1,206 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import uk.ac.bris.cs.scotlandyard.model.BitboardState;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.MoveList;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.PlayerConfiguration;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardModel;
+import uk.ac.bris.cs.scotlandyard.model.SearchState;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Zobrist;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.DEFAULT_REVEAL;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.bus;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.doNothingGreen;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.doNothingMrX;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.doNothingRed;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.ofRounds;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.pass;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.secret;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.taxi;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.x2;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLACK;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.GREEN;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.DOUBLE;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.TAXI;
+
+/**
+ * Tests for {@link SearchState}
+ */
+public class SearchStateTest {
+
+	private SearchState search;
+
+	@Before
+	public void setUp() throws IOException {
+		ScotlandYardModel model = new ScotlandYardModel(ofRounds(24, DEFAULT_REVEAL),
+				StandardGame.standardGraph(), doNothingMrX(), doNothingRed(), doNothingGreen());
+		search = new SearchState(model, doNothingMrX().location);
+	}
+
+	@Test
+	public void testCopiesView() {
+		assertThat(search.players()).isEqualTo(3);
+		assertThat(search.currentColour()).isEqualTo(BLACK);
+		assertThat(search.location(0)).isEqualTo(doNothingMrX().location);
+		assertThat(search.location(search.indexOf(RED))).isEqualTo(doNothingRed().location);
+		assertThat(search.tickets(0, DOUBLE)).isEqualTo(2);
+		assertThat(search.round()).isZero();
+		assertThat(search.revealedLocation()).isZero();
+	}
+
+	@Test
+	public void testApplyFollowsGameRules() {
+		search.apply(taxi(BLACK, 36));
+		search.apply(taxi(RED, 27));
+		search.apply(bus(GREEN, 41));
+		assertThat(search.round()).isEqualTo(1);
+		assertThat(search.tickets(0, TAXI)).isEqualTo(4);
+		assertThat(search.revealedLocation()).isZero();
+
+		search.apply(x2(BLACK, TAXI, 37, TAXI, 50));
+		assertThat(search.round()).isEqualTo(3);
+		assertThat(search.revealedLocation()).isEqualTo(50);
+		assertThat(search.location(0)).isEqualTo(50);
+		assertThat(search.tickets(0, DOUBLE)).isEqualTo(1);
+		assertThat(search.currentColour()).isEqualTo(RED);
+
+		search.apply(pass(RED));
+		assertThat(search.currentColour()).isEqualTo(GREEN);
+		assertThat(search.depth()).isEqualTo(5);
+	}
+
+	@Test
+	public void testGeneratedMovesMatchModel() throws IOException {
+		Set<Move> offered = new HashSet<>();
+		Player player = (view, location, moves, callback) -> offered.addAll(moves);
+		ScotlandYardModel model = new ScotlandYardModel(ofRounds(24, DEFAULT_REVEAL),
+				StandardGame.standardGraph(),
+				new PlayerConfiguration.Builder(BLACK).at(doNothingMrX().location)
+						.with(TestGames.mrXTickets()).using(player).build(),
+				doNothingRed(), doNothingGreen());
+		model.startRotate();
+		MoveList moves = new MoveList();
+		search.generateMoves(moves);
+		assertThat(moves.toMoves()).isEqualTo(offered);
+
+		search.apply(taxi(BLACK, 36));
+		search.generateMoves(moves);
+		assertThat(moves.asMoves()).isNotEmpty().allMatch(move -> move.colour() == RED);
+	}
+
+	@Test
+	public void testUndoRestoresEveryPly() {
+		BitboardState start = search.state().copy();
+		search.apply(taxi(BLACK, 36));
+		BitboardState afterMrX = search.state().copy();
+		search.apply(taxi(RED, 27));
+		search.apply(bus(GREEN, 41));
+		search.apply(x2(BLACK, TAXI, 37, TAXI, 50));
+		search.undo();
+		search.undo();
+		search.undo();
+		assertThat(search.state()).isEqualTo(afterMrX);
+		assertThat(search.state().occupancy()).isEqualTo(afterMrX.occupancy());
+		search.undo();
+		assertThat(search.state()).isEqualTo(start);
+		assertThat(search.depth()).isZero();
+		assertThatThrownBy(search::undo).isInstanceOf(IllegalStateException.class);
+	}
+
+	@Test
+	public void testUndoStackGrows() throws IOException {
+		ScotlandYardModel model = new ScotlandYardModel(ofRounds(24, DEFAULT_REVEAL),
+				StandardGame.standardGraph(), doNothingMrX(), doNothingRed());
+		SearchState small = new SearchState(model, doNothingMrX().location, 1);
+		BitboardState start = small.state().copy();
+		for (int i = 0; i < 4; i++) {
+			small.apply(secret(BLACK, 36 + i));
+			small.apply(pass(RED));
+		}
+		assertThat(small.depth()).isEqualTo(8);
+		while (small.depth() > 0) small.undo();
+		assertThat(small.state()).isEqualTo(start);
+	}
+
+	@Test
+	public void testHashFollowsAppliedAndUndoneMoves() {
+		long start = search.hash();
+		assertThat(start).isEqualTo(Zobrist.of(search.state()));
+		search.apply(taxi(BLACK, 36));
+		long afterMrX = search.hash();
+		assertThat(afterMrX).isNotEqualTo(start).isEqualTo(Zobrist.of(search.state()));
+		search.apply(taxi(RED, 27));
+		search.apply(bus(GREEN, 41));
+		search.apply(x2(BLACK, TAXI, 37, TAXI, 50));
+		assertThat(search.hash()).isEqualTo(Zobrist.of(search.state()));
+		search.undo();
+		search.undo();
+		search.undo();
+		assertThat(search.hash()).isEqualTo(afterMrX);
+		search.undo();
+		assertThat(search.hash()).isEqualTo(start);
+	}
+
+	@Test
+	public void testRejectedMoveLeavesStateUntouched() {
+		BitboardState start = search.state().copy();
+		assertThatThrownBy(() -> search.apply(taxi(RED, 27)))
+				.isInstanceOf(IllegalArgumentException.class);
+		search.apply(taxi(BLACK, 36));
+		BitboardState afterMrX = search.state().copy();
+		assertThatThrownBy(() -> search.apply(secret(RED, 27)))
+				.isInstanceOf(IllegalStateException.class);
+		assertThat(search.state()).isEqualTo(afterMrX);
+		assertThat(search.depth()).isEqualTo(1);
+		search.undo();
+		assertThat(search.state()).isEqualTo(start);
+	}
+
+	@Test
+	public void testGameOverFollowsModelRules() throws IOException {
+		assertThat(search.isGameOver()).isFalse();
+		search.apply(taxi(BLACK, 36));
+		search.apply(taxi(RED, 27));
+		assertThat(search.isGameOver()).isFalse();
+		search.undo();
+		search.undo();
+
+		SearchState captured = new SearchState(new ScotlandYardModel(ofRounds(24, DEFAULT_REVEAL),
+				StandardGame.standardGraph(), doNothingMrX(), doNothingRed()), 28);
+		captured.apply(taxi(BLACK, 27));
+		assertThat(captured.isGameOver()).isFalse();
+		captured.apply(taxi(RED, 27));
+		assertThat(captured.isGameOver()).isTrue();
+		assertThat(captured.isMrXWin()).isFalse();
+
+		SearchState lastRound = new SearchState(new ScotlandYardModel(ofRounds(1, DEFAULT_REVEAL),
+				StandardGame.standardGraph(), doNothingMrX(), doNothingRed()), doNothingMrX().location);
+		lastRound.apply(taxi(BLACK, 36));
+		assertThat(lastRound.isGameOver()).isFalse();
+		lastRound.apply(taxi(RED, 27));
+		assertThat(lastRound.isGameOver()).isTrue();
+		assertThat(lastRound.isMrXWin()).isTrue();
+	}
+
+	@Test
+	public void testMrXCanBeMovedAtTheRoot() {
+		search.mrXLocation(45);
+		assertThat(search.location(0)).isEqualTo(45);
+		assertThat(search.hash()).isEqualTo(Zobrist.of(search.state()));
+		search.apply(taxi(BLACK, 46));
+		assertThatThrownBy(() -> search.mrXLocation(35)).isInstanceOf(IllegalStateException.class);
+	}
+
+}
@@ -0,0 +1,211 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import uk.ac.bris.cs.scotlandyard.headless.ScenarioGenerator;
+import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardModel;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardView;
+import uk.ac.bris.cs.scotlandyard.model.Spectator;
+import uk.ac.bris.cs.scotlandyard.model.SpectatorBus;
+import uk.ac.bris.cs.scotlandyard.model.SpectatorBus.Overflow;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link SpectatorBus}
+ */
+public class SpectatorBusTest {
+
+	private final List<SpectatorBus> buses = new ArrayList<>();
+
+	/**
+	 * Records every callback with the parts of the view it was given
+	 */
+	private static class Recorder implements Spectator {
+		final List<String> log = Collections.synchronizedList(new ArrayList<>());
+		// kept apart from the log so winners are compared as sets, not by iteration order
+		final List<Set<Colour>> winners = Collections.synchronizedList(new ArrayList<>());
+
+		@Override
+		public void onMoveMade(ScotlandYardView view, Move move) {
+			log.add("move " + move + " round " + view.getCurrentRound() + " next "
+					+ view.getCurrentPlayer() + "@" + view.getPlayerLocation(view.getCurrentPlayer()));
+		}
+
+		@Override
+		public void onRoundStarted(ScotlandYardView view, int round) {
+			log.add("round " + round);
+		}
+
+		@Override
+		public void onRotationComplete(ScotlandYardView view) {
+			log.add("rotation " + view.getCurrentRound());
+		}
+
+		@Override
+		public void onGameOver(ScotlandYardView view, Set<Colour> winningPlayers) {
+			log.add("over " + view.isGameOver());
+			winners.add(winningPlayers);
+		}
+	}
+
+	private SpectatorBus bus(SpectatorBus.Builder builder) {
+		SpectatorBus bus = builder.build();
+		buses.add(bus);
+		return bus;
+	}
+
+	private static ScotlandYardModel play(Spectator... spectators) throws IOException {
+		ScotlandYardModel model = ScenarioGenerator.standard().generate(3)
+				.newGame(StandardGame.standardGraph(),
+						colour -> (view, location, moves, callback) ->
+								callback.accept(moves.iterator().next()));
+		for (Spectator spectator : spectators) model.registerSpectator(spectator);
+		while (!model.isGameOver()) model.startRotate();
+		return model;
+	}
+
+	@After
+	public void tearDown() {
+		buses.forEach(SpectatorBus::close);
+	}
+
+	@Test
+	public void testSubscribersSeeWhatRegisteredSpectatorsSee() throws Exception {
+		Recorder direct = new Recorder();
+		Recorder first = new Recorder();
+		Recorder second = new Recorder();
+		SpectatorBus bus = bus(new SpectatorBus.Builder().capacity(4));
+		bus.subscribe(first);
+		bus.subscribe(second);
+		play(direct, bus);
+		assertThat(bus.flush(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(direct.log).isNotEmpty();
+		assertThat(first.log).isEqualTo(direct.log);
+		assertThat(second.log).isEqualTo(direct.log);
+		assertThat(direct.winners).hasSize(1);
+		assertThat(first.winners).isEqualTo(direct.winners);
+		assertThat(second.winners).isEqualTo(direct.winners);
+		assertThat(bus.dropped(first)).isZero();
+	}
+
+	@Test
+	public void testSlowSubscriberDropsOldestEvents() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		List<Move> seen = new CopyOnWriteArrayList<>();
+		Spectator slow = new Spectator() {
+			@Override
+			public void onMoveMade(ScotlandYardView view, Move move) {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				seen.add(move);
+			}
+		};
+		SpectatorBus bus = bus(new SpectatorBus.Builder().capacity(8)
+				.overflow(Overflow.DROP_OLDEST));
+		bus.subscribe(slow);
+		Recorder direct = new Recorder();
+		// the game does not wait for the blocked subscriber
+		play(direct, bus);
+		release.countDown();
+		assertThat(bus.flush(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(bus.dropped(slow)).isPositive();
+		assertThat(seen.size()).isLessThanOrEqualTo(8 + 1);
+	}
+
+	@Test(timeout = 10_000)
+	public void testBlockedGameLetsHungSubscriberGo() throws Exception {
+		CountDownLatch entered = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Spectator hung = new Spectator() {
+			@Override
+			public void onMoveMade(ScotlandYardView view, Move move) {
+				entered.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+		SpectatorBus bus = bus(new SpectatorBus.Builder().capacity(2));
+		bus.subscribe(hung);
+		Thread game = new Thread(() -> {
+			try {
+				play(bus);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		});
+		game.start();
+		try {
+			entered.await();
+			// the game is now waiting on the hung subscriber
+			Recorder late = new Recorder();
+			bus.subscribe(late);
+			bus.unsubscribe(hung);
+			game.join();
+			assertThat(bus.flush(10, TimeUnit.SECONDS)).isTrue();
+			assertThat(late.winners).hasSize(1);
+		} finally {
+			release.countDown();
+		}
+	}
+
+	@Test
+	public void testSubscriberExceptionsGoToHandler() throws Exception {
+		List<Throwable> errors = new CopyOnWriteArrayList<>();
+		SpectatorBus bus = bus(new SpectatorBus.Builder().exceptionHandler(errors::add));
+		Recorder recorder = new Recorder();
+		bus.subscribe(new Spectator() {
+			@Override
+			public void onRoundStarted(ScotlandYardView view, int round) {
+				throw new IllegalStateException("Round " + round);
+			}
+		});
+		bus.subscribe(recorder);
+		ScotlandYardModel model = play(bus);
+		assertThat(bus.flush(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(errors).hasSize(model.getCurrentRound())
+				.allMatch(e -> e instanceof IllegalStateException);
+		assertThat(recorder.log).isNotEmpty();
+	}
+
+	@Test
+	public void testSubscriptionRules() throws Exception {
+		SpectatorBus bus = bus(new SpectatorBus.Builder());
+		Recorder recorder = new Recorder();
+		bus.subscribe(recorder);
+		assertThatThrownBy(() -> bus.subscribe(recorder))
+				.isInstanceOf(IllegalArgumentException.class);
+		bus.unsubscribe(recorder);
+		assertThatThrownBy(() -> bus.unsubscribe(recorder))
+				.isInstanceOf(IllegalArgumentException.class);
+		play(bus);
+		assertThat(recorder.log).isEmpty();
+		bus.close();
+		assertThatThrownBy(() -> bus.subscribe(new Recorder()))
+				.isInstanceOf(IllegalStateException.class);
+		// a game still running when the bus closes carries on without it
+		play(bus);
+		assertThat(recorder.log).isEmpty();
+	}
+
+}
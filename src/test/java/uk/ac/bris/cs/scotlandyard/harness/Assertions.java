@@ -43,7 +43,11 @@ final class Assertions {
 
 	}
 
-	static void disableSystemExit() {
+	// harnesses that currently have System.exit() disabled, they may run concurrently
+	private static int exitLocks = 0;
+
+	static synchronized void disableSystemExit() {
+		if (exitLocks++ != 0) return;
 		System.setSecurityManager(new SecurityManager() {
 			@Override public void checkPermission(Permission perm) {
 				if (perm.getName().startsWith("exitVM")) {
@@ -53,7 +57,8 @@ final class Assertions {
 		});
 	}
 
-	static void enableSystemExit() {
+	static synchronized void enableSystemExit() {
+		if (exitLocks == 0 || --exitLocks != 0) return;
 		System.setSecurityManager(null);
 	}
 
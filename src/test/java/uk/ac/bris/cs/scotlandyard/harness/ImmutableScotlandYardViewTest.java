@@ -0,0 +1,80 @@
+package uk.ac.bris.cs.scotlandyard.harness;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import uk.ac.bris.cs.scotlandyard.headless.ScenarioGenerator;
+import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardModel;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardView;
+import uk.ac.bris.cs.scotlandyard.model.Spectator;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link ImmutableScotlandYardView} snapshots
+ */
+public class ImmutableScotlandYardViewTest {
+
+	private static ScotlandYardModel game() throws IOException {
+		return ScenarioGenerator.standard().generate(5)
+				.newGame(StandardGame.standardGraph(),
+						colour -> (view, location, moves, callback) ->
+								callback.accept(moves.iterator().next()));
+	}
+
+	@Test
+	public void testConsecutiveSnapshotsEqualFullCopies() throws IOException {
+		ScotlandYardModel game = game();
+		List<ImmutableScotlandYardView> shared = new ArrayList<>();
+		game.registerSpectator(new Spectator() {
+			@Override public void onMoveMade(ScotlandYardView view, Move move) {
+				ImmutableScotlandYardView full = ImmutableScotlandYardView.snapshot(view, null);
+				ImmutableScotlandYardView snapshot = ImmutableScotlandYardView.snapshot(view,
+						shared.isEmpty() ? null : shared.get(shared.size() - 1));
+				assertThat(snapshot).isEqualTo(full).hasToString(full.toString());
+				shared.add(snapshot);
+			}
+			@Override public void onGameOver(ScotlandYardView view, Set<Colour> winningPlayers) {
+				assertThat(ImmutableScotlandYardView.snapshot(view).getWinningPlayers())
+						.isEqualTo(winningPlayers);
+			}
+		});
+		while (!game.isGameOver()) game.startRotate();
+		assertThat(shared).isNotEmpty()
+				.allSatisfy(v -> assertThat(v.getGraph()).isSameAs(shared.get(0).getGraph()))
+				.allSatisfy(v -> assertThat(v.getRounds()).isSameAs(shared.get(0).getRounds()));
+	}
+
+	@Test
+	public void testUnchangedPlayersAreShared() throws IOException {
+		ScotlandYardModel game = game();
+		ImmutableScotlandYardView before = ImmutableScotlandYardView.snapshot(game);
+		assertThat(ImmutableScotlandYardView.snapshot(game, before)).isSameAs(before);
+		List<ImmutableScotlandYardView> afterMrX = new ArrayList<>();
+		game.registerSpectator(new Spectator() {
+			@Override public void onMoveMade(ScotlandYardView view, Move move) {
+				if (afterMrX.isEmpty()) afterMrX.add(ImmutableScotlandYardView.snapshot(view, before));
+			}
+		});
+		game.startRotate();
+		// only MrX has moved, the detectives' records are taken as they are
+		ImmutableScotlandYardView after = afterMrX.get(0);
+		assertThat(after.players.get(0)).isNotEqualTo(before.players.get(0));
+		for (int i = 1; i < after.players.size(); i++)
+			assertThat(after.players.get(i)).isSameAs(before.players.get(i));
+	}
+
+	@Test
+	public void testSnapshotOfSnapshotIsItself() throws IOException {
+		ImmutableScotlandYardView snapshot = ImmutableScotlandYardView.snapshot(game(), null);
+		assertThat(ImmutableScotlandYardView.snapshot(snapshot)).isSameAs(snapshot);
+	}
+
+}
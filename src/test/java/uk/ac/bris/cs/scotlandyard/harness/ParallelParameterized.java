@@ -0,0 +1,54 @@
+package uk.ac.bris.cs.scotlandyard.harness;
+
+import org.junit.runner.Runner;
+import org.junit.runners.Parameterized;
+import org.junit.runners.ParentRunner;
+import org.junit.runners.model.RunnerScheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * A {@link Parameterized} runner that runs the parameters, and the tests of each parameter,
+ * concurrently on a shared {@link ForkJoinPool}. Use it for test classes whose tests share no
+ * mutable state, each test still gets its own instance and {@link TestHarness}.
+ * <p>
+ * To change the number of threads from the number of processors, pass the system property
+ * testParallelism, e.g. <code>-DtestParallelism=1</code> to run tests one at a time.
+ */
+public class ParallelParameterized extends Parameterized {
+
+	private static final ForkJoinPool POOL = new ForkJoinPool(
+			Optional.ofNullable(System.getProperty("testParallelism"))
+					.map(Integer::parseInt)
+					.orElse(Runtime.getRuntime().availableProcessors()));
+
+	public ParallelParameterized(Class<?> klass) throws Throwable {
+		super(klass);
+		setScheduler(new ForkJoinScheduler());
+		for (Runner child : getChildren()) {
+			if (child instanceof ParentRunner)
+				((ParentRunner<?>) child).setScheduler(new ForkJoinScheduler());
+		}
+	}
+
+	/**
+	 * Submits every child to the pool and waits for all of them when asked to finish
+	 */
+	private static class ForkJoinScheduler implements RunnerScheduler {
+
+		private final List<ForkJoinTask<?>> children = new ArrayList<>();
+
+		@Override public void schedule(Runnable child) {
+			children.add(POOL.submit(child));
+		}
+
+		@Override public void finished() {
+			children.forEach(ForkJoinTask::join);
+		}
+	}
+
+}
@@ -20,6 +20,7 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
@@ -77,6 +78,10 @@ import static uk.ac.bris.cs.scotlandyard.model.Ticket.UNDERGROUND;
  * To change the default number of runs of each test from 10, pass the system property captureN,
  * e.g. captureN=5<br>
  * For example: <code>-DprintInteractions=true</code>
+ * <p>
+ * A harness belongs to one test, but harnesses of different tests may run concurrently, see
+ * {@link ParallelParameterized}. Printed interactions are buffered and written out in one piece
+ * when the test's interactions have run, so the output of concurrent tests is not interleaved.
  */
 public class TestHarness {
 
@@ -95,6 +100,9 @@ public class TestHarness {
 	private Consumer<ScotlandYardGame> finalContinuation;
 	private final CodeGenRecorder recorder =
 			new CodeGenRecorder(ImmutableList.of(new GameModelSequencePUMLCodeGen()));
+	private final AtomicBoolean holdsShutdownLock = new AtomicBoolean(true);
+	private final StringWriter output = new StringWriter();
+	private final PrintWriter out = new PrintWriter(output);
 
 	private static boolean getBooleanFlag(String flagName) {
 		return Optional.ofNullable(System.getProperty(flagName))
@@ -175,7 +183,7 @@ public class TestHarness {
 		private TestAssert previousRound;
 		private Interaction<?>[] interactions;
 		private List<Requirement<ScotlandYardGame>> reqs = new ArrayList<>();
-		Consumer<ScotlandYardGame> continuation = game -> Assertions.enableSystemExit();
+		Consumer<ScotlandYardGame> continuation = game -> releaseShutdownLock();
 
 		private TestAssert(Interaction<?>... interactions) {
 			this(null, interactions);
@@ -197,11 +205,19 @@ public class TestHarness {
 		}
 		@Override public void thenIgnoreAnyFurtherInteractions() {
 			endMode = EndMode.IGNORE;
-			runInteractions();
+			try {
+				runInteractions();
+			} finally {
+				flushOutput();
+			}
 		}
 		@Override public void thenAssertNoFurtherInteractions() {
 			endMode = EndMode.NO_MORE;
-			runInteractions();
+			try {
+				runInteractions();
+			} finally {
+				flushOutput();
+			}
 		}
 		@Override public void shouldThrow(Class<? extends Throwable> clazz) {
 			try {
@@ -217,6 +233,8 @@ public class TestHarness {
 							callingClass);
 				}
 				return;
+			} finally {
+				flushOutput();
 			}
 			assertFailure(
 					String.format("%s was expected but not thrown", clazz.getSimpleName()),
@@ -248,17 +266,30 @@ public class TestHarness {
 				continuation.accept(game);
 			} else {
 				if (printInteractions) {
-					System.out.println("BEGIN UML>>>>>>>>>>>>>>>>>>");
+					out.println("BEGIN UML>>>>>>>>>>>>>>>>>>");
 					recorder.readOut("__ignored__").values()
-							.forEach(System.out::println);
-					System.out.println("<<<<<<<<<<<<<<<<<<<<<END UML");
+							.forEach(out::println);
+					out.println("<<<<<<<<<<<<<<<<<<<<<END UML");
 				}
 			}
 		}
 	}
 
 	public void forceReleaseShutdownLock() {
-		Assertions.enableSystemExit();
+		flushOutput();
+		releaseShutdownLock();
+	}
+
+	// every harness takes the lock once when created and gives it back once
+	private void releaseShutdownLock() {
+		if (holdsShutdownLock.compareAndSet(true, false)) Assertions.enableSystemExit();
+	}
+
+	private void flushOutput() {
+		out.flush();
+		String text = output.toString();
+		output.getBuffer().setLength(0);
+		if (!text.isEmpty()) System.out.print(text);
 	}
 
 	public interface Setups {
@@ -351,7 +382,7 @@ public class TestHarness {
 							polled.key(), polled.describe(),
 							key, initial), polled.origin(), callingClass);
 				}
-				if (printInteractions) System.out.printf("[%s] %s::%s%n", item, key, initial);
+				if (printInteractions) out.printf("[%s] %s::%s%n", item, key, initial);
 
 				matched.applyAssertion(initial, (message, stack) ->
 						assertFailure(String.format("Error at interaction %s: " +
@@ -0,0 +1,145 @@
+package uk.ac.bris.cs.scotlandyard.headless;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javafx.geometry.Point2D;
+import uk.ac.bris.cs.scotlandyard.ai.AI;
+import uk.ac.bris.cs.scotlandyard.ai.ManagedAI.VisualiserType;
+import uk.ac.bris.cs.scotlandyard.ai.PlayerFactory;
+import uk.ac.bris.cs.scotlandyard.ai.ResourceProvider;
+import uk.ac.bris.cs.scotlandyard.ai.Visualiser;
+import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Ticket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link GameFarm}
+ */
+public class GameFarmTest {
+
+	/**
+	 * Always picks the first move it is offered
+	 */
+	public static class FirstMoveAI implements PlayerFactory {
+		@Override
+		public Player createPlayer(Colour colour) {
+			return (view, location, moves, callback) -> callback.accept(moves.iterator().next());
+		}
+	}
+
+	/**
+	 * Never picks a move
+	 */
+	public static class IdleAI implements PlayerFactory {
+		@Override
+		public Player createPlayer(Colour colour) {
+			return (view, location, moves, callback) -> {};
+		}
+	}
+
+	/**
+	 * Draws on its visualiser and asks for images and coordinates when ready
+	 */
+	public static class ProbeAI extends FirstMoveAI {
+		static final List<Point2D> COORDINATES = new CopyOnWriteArrayList<>();
+		static final List<Integer> THREADS = new CopyOnWriteArrayList<>();
+
+		@Override
+		public void ready(Visualiser visualiser, ResourceProvider provider) {
+			visualiser.surface().getChildren().clear();
+			assertThat(provider.getMap()).isNotNull();
+			assertThat(provider.getTicket(Ticket.TAXI)).isNotNull();
+			COORDINATES.add(provider.coordinateAtNode(1));
+			THREADS.add(provider.getThreads());
+		}
+	}
+
+	private static AI ai(Class<? extends PlayerFactory> factory) {
+		return AI.fromName(factory.getSimpleName(), VisualiserType.NONE, factory);
+	}
+
+	@Test
+	public void testPlaysEveryGame() {
+		FarmReport report = new GameFarm.Builder(ai(FirstMoveAI.class), ai(FirstMoveAI.class))
+				.parallelism(2).batch(1).build().play(0, 20);
+		assertThat(report.games()).isEqualTo(20);
+		assertThat(report.failures()).isZero();
+		assertThat(report.mrXWins() + report.detectiveWins()).isEqualTo(20);
+		assertThat(report.moves()).isPositive();
+		assertThat(report.averageRounds()).isBetween(1.0, 24.0);
+	}
+
+	@Test
+	public void testGamesAreReproducible() {
+		GameFarm farm = new GameFarm.Builder(ai(FirstMoveAI.class), ai(FirstMoveAI.class))
+				.scenarios(new ScenarioGenerator.Builder().detectives(3, 3).build()).build();
+		GameResult first = farm.playOne(42);
+		GameResult second = farm.playOne(42);
+		assertThat(second.mrXWon()).isEqualTo(first.mrXWon());
+		assertThat(second.rounds()).isEqualTo(first.rounds());
+		assertThat(second.moves()).isEqualTo(first.moves());
+	}
+
+	@Test
+	public void testPlaysStreamedScenarios() {
+		GameFarm farm = new GameFarm.Builder(ai(FirstMoveAI.class), ai(FirstMoveAI.class))
+				.parallelism(2).build();
+		FarmReport report = farm.play(ScenarioGenerator.standard().stream(100, 10));
+		assertThat(report.games()).isEqualTo(10);
+		assertThat(report.completed()).isEqualTo(10);
+	}
+
+	@Test
+	public void testPlayerThatDoesNotPickInTimeGetsAMove() {
+		FarmReport report = new GameFarm.Builder(ai(IdleAI.class), ai(FirstMoveAI.class))
+				.moveTimeout(Duration.ofMillis(5)).parallelism(1).build().play(7, 2);
+		assertThat(report.failures()).isZero();
+		assertThat(report.completed()).isEqualTo(2);
+	}
+
+	@Test
+	public void testPlayerThatDoesNotPickFailsTheGame() {
+		FarmReport report = new GameFarm.Builder(ai(IdleAI.class), ai(FirstMoveAI.class))
+				.parallelism(1).build().play(7, 3);
+		assertThat(report.failures()).isEqualTo(3);
+		assertThat(report.firstFailure()).hasValueSatisfying(result -> {
+			assertThat(result.seed()).isEqualTo(7);
+			assertThat(result.failure()).containsInstanceOf(IllegalStateException.class);
+		});
+	}
+
+	@Test
+	public void testHeadlessResourcesServeEveryAI() throws IOException {
+		ProbeAI.COORDINATES.clear();
+		FarmReport standard = new GameFarm.Builder(ai(ProbeAI.class), ai(FirstMoveAI.class))
+				.parallelism(1).build().play(7, 1);
+		assertThat(standard.failures()).isZero();
+		assertThat(ProbeAI.COORDINATES).hasSize(1).doesNotContainNull();
+
+		// a graph given by the caller has no known coordinates
+		ProbeAI.COORDINATES.clear();
+		FarmReport custom = new GameFarm.Builder(ai(ProbeAI.class), ai(FirstMoveAI.class))
+				.on(StandardGame.standardGraph()).parallelism(1).build().play(7, 1);
+		assertThat(custom.failures()).isZero();
+		assertThat(ProbeAI.COORDINATES).containsExactly((Point2D) null);
+	}
+
+	@Test
+	public void testGamesSplitTheProcessors() {
+		ProbeAI.THREADS.clear();
+		int processors = Runtime.getRuntime().availableProcessors();
+		new GameFarm.Builder(ai(ProbeAI.class), ai(FirstMoveAI.class)).build().play(7, 1);
+		new GameFarm.Builder(ai(ProbeAI.class), ai(FirstMoveAI.class))
+				.parallelism(1).build().play(7, 1);
+		assertThat(ProbeAI.THREADS).containsExactly(1, processors);
+	}
+
+}
@@ -0,0 +1,78 @@
+package uk.ac.bris.cs.scotlandyard.headless;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import uk.ac.bris.cs.scotlandyard.ai.AI;
+import uk.ac.bris.cs.scotlandyard.ai.ManagedAI.VisualiserType;
+import uk.ac.bris.cs.scotlandyard.headless.GameFarmTest.FirstMoveAI;
+import uk.ac.bris.cs.scotlandyard.model.Colour;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link GameMetrics} and {@link Histogram}
+ */
+public class GameMetricsTest {
+
+	@Rule public final TemporaryFolder folder = new TemporaryFolder();
+
+	private static AI firstMove() {
+		return AI.fromName("FirstMoveAI", VisualiserType.NONE, FirstMoveAI.class);
+	}
+
+	@Test
+	public void testPercentilesAreWithinBucketPrecision() {
+		Histogram histogram = new Histogram();
+		for (long i = 1; i <= 1000; i++) histogram.record(i * 1000);
+		Histogram.Snapshot snapshot = histogram.snapshot();
+		assertThat(snapshot.count()).isEqualTo(1000);
+		assertThat(snapshot.mean()).isEqualTo(500500.0);
+		assertThat(snapshot.percentile(50)).isBetween(500000L, 500000L * 33 / 32);
+		assertThat(snapshot.percentile(99)).isBetween(990000L, 990000L * 33 / 32);
+		assertThat(snapshot.percentile(100)).isEqualTo(snapshot.max()).isEqualTo(1000000);
+		for (long value = 0; value < 64; value++)
+			assertThat(Histogram.highestValueAt(Histogram.index(value))).isEqualTo(value);
+		histogram.record(Long.MAX_VALUE);
+		assertThat(histogram.snapshot().percentile(100)).isEqualTo(Long.MAX_VALUE);
+		assertThat(new Histogram().snapshot().percentile(99)).isZero();
+		assertThatThrownBy(() -> histogram.record(-1)).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	public void testFarmRecordsEveryMove() {
+		GameMetrics metrics = new GameMetrics();
+		FarmReport report = new GameFarm.Builder(firstMove(), firstMove())
+				.parallelism(2).metrics(metrics).build().play(0, 10);
+		GameMetrics.Snapshot snapshot = metrics.snapshot();
+		assertThat(snapshot.validMoves().count()).isEqualTo(report.moves());
+		assertThat(snapshot.moveGeneration().count()).isEqualTo(report.moves());
+		long thought = 0;
+		for (Colour colour : Colour.values()) thought += snapshot.think(colour).count();
+		assertThat(thought).isEqualTo(report.moves());
+		assertThat(snapshot.think(Colour.BLACK).count()).isPositive();
+		assertThat(snapshot.validMoves().max()).isPositive();
+	}
+
+	@Test
+	public void testDumpsTextAndJson() throws IOException {
+		GameMetrics metrics = new GameMetrics();
+		new GameFarm.Builder(firstMove(), firstMove()).metrics(metrics).build().play(0, 2);
+		Path text = folder.getRoot().toPath().resolve("metrics.txt");
+		Path json = folder.getRoot().toPath().resolve("metrics/metrics.json");
+		metrics.dump(text);
+		metrics.dump(json);
+		assertThat(new String(Files.readAllBytes(text), StandardCharsets.UTF_8))
+				.contains("think.black", "moveGeneration", "p99");
+		assertThat(new String(Files.readAllBytes(json), StandardCharsets.UTF_8))
+				.startsWith("{").contains("\"think.black\": {", "\"p99\": ", "}}");
+	}
+
+}
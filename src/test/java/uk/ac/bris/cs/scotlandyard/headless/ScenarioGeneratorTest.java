@@ -0,0 +1,98 @@
+package uk.ac.bris.cs.scotlandyard.headless;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Ticket;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link ScenarioGenerator}
+ */
+public class ScenarioGeneratorTest {
+
+	private final ScenarioGenerator varied = new ScenarioGenerator.Builder()
+			.detectives(1, 5).ticketVariance(2).build();
+
+	@Test
+	public void testSameSeedGivesEqualScenario() {
+		for (long seed : new long[]{0, 1, -1, Long.MAX_VALUE, 0x1234_5678_9abc_def0L}) {
+			assertThat(varied.generate(seed)).isEqualTo(varied.generate(seed));
+		}
+	}
+
+	@Test
+	public void testHighBitsOfSeedMatter() {
+		Set<Scenario> scenarios = new HashSet<>();
+		for (int i = 0; i < 32; i++) scenarios.add(varied.generate(1L << (32 + i)));
+		assertThat(scenarios.stream().map(Scenario::toString).distinct().count()).isGreaterThan(1);
+	}
+
+	@Test
+	public void testStandardScenarioIsAStandardGame() {
+		Scenario scenario = ScenarioGenerator.standard().generate(42);
+		assertThat(scenario.rounds()).isEqualTo(StandardGame.ROUNDS);
+		assertThat(scenario.colours()).hasSize(6).startsWith(Colour.BLACK);
+		assertThat(StandardGame.MRX_LOCATIONS).contains(scenario.location(Colour.BLACK));
+		assertThat(scenario.tickets(Colour.BLACK)).isEqualTo(StandardGame.generateMrXTickets());
+		Set<Integer> locations = new HashSet<>();
+		for (Colour colour : scenario.colours()) assertThat(locations.add(scenario.location(colour))).isTrue();
+		for (Colour colour : scenario.colours().subList(1, 6)) {
+			assertThat(StandardGame.DETECTIVE_LOCATIONS).contains(scenario.location(colour));
+			assertThat(scenario.tickets(colour)).isEqualTo(StandardGame.generateDetectiveTickets());
+		}
+	}
+
+	@Test
+	public void testVariedScenariosAreValidGames() throws Exception {
+		for (Scenario scenario : varied.stream(0, 200).collect(toList())) {
+			assertThat(scenario.colours().size()).isBetween(2, 6);
+			for (Colour colour : scenario.colours()) {
+				if (colour.isDetective()) {
+					assertThat(scenario.tickets(colour).get(Ticket.DOUBLE)).isZero();
+					assertThat(scenario.tickets(colour).get(Ticket.SECRET)).isZero();
+				}
+				assertThat(scenario.tickets(colour).values()).allMatch(count -> count >= 0);
+			}
+			assertThat(scenario.newGame(StandardGame.standardGraph(),
+					colour -> (view, location, moves, callback) -> {})).isNotNull();
+		}
+	}
+
+	@Test
+	public void testShardsPartitionTheRun() {
+		List<Long> all = varied.stream(10, 25).map(Scenario::seed).collect(toList());
+		List<Long> sharded = new ArrayList<>();
+		for (int shard = 0; shard < 4; shard++)
+			varied.shard(10, 25, shard, 4).map(Scenario::seed).forEach(sharded::add);
+		assertThat(sharded).containsExactlyInAnyOrderElementsOf(all);
+		assertThatThrownBy(() -> varied.shard(0, 1, 4, 4)).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	public void testDetectivesCannotBeGivenDoubleOrSecretTickets() {
+		for (Ticket ticket : new Ticket[]{Ticket.DOUBLE, Ticket.SECRET}) {
+			Map<Ticket, Integer> detectives = StandardGame.generateDetectiveTickets();
+			detectives.put(ticket, 1);
+			assertThatThrownBy(() -> new ScenarioGenerator.Builder()
+					.tickets(StandardGame.generateMrXTickets(), detectives))
+					.isInstanceOf(IllegalArgumentException.class);
+		}
+		Map<Ticket, Integer> missing = StandardGame.generateDetectiveTickets();
+		missing.remove(Ticket.BUS);
+		assertThatThrownBy(() -> new ScenarioGenerator.Builder()
+				.tickets(StandardGame.generateMrXTickets(), missing))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+}
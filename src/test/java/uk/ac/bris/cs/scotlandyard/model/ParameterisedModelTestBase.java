@@ -3,7 +3,6 @@ package uk.ac.bris.cs.scotlandyard.model;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.runner.RunWith;
-import org.junit.runners.Parameterized;
 import org.junit.runners.Parameterized.Parameter;
 import org.junit.runners.Parameterized.Parameters;
 
@@ -14,6 +13,7 @@ import java.nio.file.Paths;
 import java.util.List;
 
 import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.scotlandyard.harness.ParallelParameterized;
 
 import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.DEFAULT_REVEAL;
 import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.doNothingBlue;
@@ -27,7 +27,7 @@ import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.ofRounds;
 /**
  * Base class for all tests. Contains various helper methods for convenience
  */
-@RunWith(Parameterized.class)
+@RunWith(ParallelParameterized.class)
 public abstract class ParameterisedModelTestBase implements ScotlandYardGameFactory {
 
 	/**
@@ -0,0 +1,114 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.scotlandyard.headless.Scenario;
+import uk.ac.bris.cs.scotlandyard.headless.ScenarioGenerator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLACK;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.RED;
+
+/**
+ * Tests for {@link ValidMoveCache} and the moves {@link ScotlandYardModel}
+ * takes from it
+ */
+public class ValidMoveCacheTest {
+
+	private static final int WORDS = 4;
+
+	private static long[] occupied(int... nodes) {
+		long[] bits = new long[WORDS];
+		for (int node : nodes) NodeBitset.add(bits, node);
+		return bits;
+	}
+
+	private static Set<Move> moves() {
+		return Collections.singleton(new PassMove(RED));
+	}
+
+	@Test
+	public void testMissesWhenAnyPartOfTheKeyChanges() {
+		ValidMoveCache cache = new ValidMoveCache(4, WORDS);
+		Set<Move> moves = moves();
+		cache.put(BLACK, 10, 42L, occupied(1, 2), true, moves);
+		assertThat(cache.get(BLACK, 10, 42L, occupied(1, 2), true)).isSameAs(moves);
+		assertThat(cache.get(RED, 10, 42L, occupied(1, 2), true)).isNull();
+		assertThat(cache.get(BLACK, 11, 42L, occupied(1, 2), true)).isNull();
+		assertThat(cache.get(BLACK, 10, 41L, occupied(1, 2), true)).isNull();
+		assertThat(cache.get(BLACK, 10, 42L, occupied(1, 3), true)).isNull();
+		assertThat(cache.get(BLACK, 10, 42L, occupied(1, 2), false)).isNull();
+		cache.clear();
+		assertThat(cache.get(BLACK, 10, 42L, occupied(1, 2), true)).isNull();
+	}
+
+	@Test
+	public void testOccupiedIsCopiedAndOldestEntryIsReplaced() {
+		ValidMoveCache cache = new ValidMoveCache(2, WORDS);
+		long[] occupied = occupied(1);
+		Set<Move> first = moves();
+		cache.put(BLACK, 1, 0L, occupied, false, first);
+		NodeBitset.add(occupied, 2);
+		assertThat(cache.get(BLACK, 1, 0L, occupied, false)).isNull();
+		assertThat(cache.get(BLACK, 1, 0L, occupied(1), false)).isSameAs(first);
+		cache.put(BLACK, 2, 0L, occupied(1), false, moves());
+		cache.put(BLACK, 3, 0L, occupied(1), false, moves());
+		assertThat(cache.get(BLACK, 1, 0L, occupied(1), false)).isNull();
+		assertThat(cache.get(BLACK, 2, 0L, occupied(1), false)).isNotNull();
+		assertThat(cache.get(BLACK, 3, 0L, occupied(1), false)).isNotNull();
+	}
+
+	/**
+	 * @return the moves a new, uncached move set has for the player asked to
+	 *         move in the given view
+	 */
+	private static Set<Move> fresh(DestinationTable table, ScotlandYardView view, int location) {
+		Colour colour = view.getCurrentPlayer();
+		Map<Ticket, Integer> tickets = new EnumMap<>(Ticket.class);
+		for (Ticket ticket : Ticket.values())
+			tickets.put(ticket, view.getPlayerTickets(colour, ticket).orElseThrow(AssertionError::new));
+		long[] excluded = table.newBitset();
+		for (Colour other : view.getPlayers()) {
+			if (other.isDetective() && other != colour)
+				NodeBitset.add(excluded, view.getPlayerLocation(other).orElseThrow(AssertionError::new));
+		}
+		return new ValidMoveSet(table, colour, location, BitboardState.pack(tickets), excluded,
+				colour.isMrX() && view.getCurrentRound() < view.getRounds().size() - 1);
+	}
+
+	@Test
+	public void testModelMovesEqualFreshMovesAsTicketsAndLocationsChange() throws IOException {
+		Graph<Integer, Transport> graph = StandardGame.standardGraph();
+		DestinationTable table = DestinationTable.of(graph);
+		ScenarioGenerator scenarios = ScenarioGenerator.standard();
+		for (long seed = 0; seed < 10; seed++) {
+			Scenario scenario = scenarios.generate(seed);
+			Random random = new Random(seed);
+			List<Set<Move>> offered = new ArrayList<>();
+			Player player = (view, location, moves, callback) -> {
+				assertThat(moves).isEqualTo(fresh(table, view, location));
+				offered.add(moves);
+				List<Move> list = new ArrayList<>(moves);
+				list.sort((a, b) -> a.toString().compareTo(b.toString()));
+				callback.accept(list.get(random.nextInt(list.size())));
+			};
+			ScotlandYardGame game = scenario.newGame(graph, colour -> player);
+			while (!game.isGameOver()) game.startRotate();
+			assertThat(offered).isNotEmpty();
+			// every turn after a move gets its own set, nothing is carried over
+			for (int i = 1; i < offered.size(); i++)
+				assertThat(offered.get(i)).isNotSameAs(offered.get(i - 1));
+		}
+	}
+
+}
@@ -0,0 +1,175 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import uk.ac.bris.cs.gamekit.graph.Edge;
+import uk.ac.bris.cs.gamekit.graph.Graph;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.pass;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.taxi;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.x2;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLACK;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.BUS;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.DOUBLE;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.SECRET;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.TAXI;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.UNDERGROUND;
+
+/**
+ * Tests {@link ValidMoveSet} against a plain, fully expanded move generator
+ * that follows the rules the same way the original model did
+ */
+public class ValidMoveSetTest {
+
+	private static final int ROUNDS = 24;
+	private static final Colour[] COLOURS = {BLACK, RED, BLUE};
+
+	private static Set<TicketMove> singles(Graph<Integer, Transport> graph, Colour colour,
+			int from, Map<Ticket, Integer> tickets, Set<Integer> occupied) {
+		Set<TicketMove> moves = new HashSet<>();
+		for (Edge<Integer, Transport> edge : graph.getEdgesFrom(graph.getNode(from))) {
+			int destination = edge.destination().value();
+			if (occupied.contains(destination)) continue;
+			Ticket ticket = Ticket.fromTransport(edge.data());
+			if (tickets.get(ticket) > 0) moves.add(new TicketMove(colour, ticket, destination));
+			if (tickets.get(SECRET) > 0) moves.add(new TicketMove(colour, SECRET, destination));
+		}
+		return moves;
+	}
+
+	private static Set<Move> expanded(Graph<Integer, Transport> graph, Colour colour,
+			int location, Map<Ticket, Integer> tickets, Set<Integer> occupied,
+			boolean doubleMoves) {
+		Set<TicketMove> singles = singles(graph, colour, location, tickets, occupied);
+		Set<Move> moves = new HashSet<>(singles);
+		if (singles.isEmpty() && colour.isDetective()) moves.add(new PassMove(colour));
+		if (!doubleMoves || tickets.get(DOUBLE) == 0) return moves;
+		for (TicketMove first : singles) {
+			Map<Ticket, Integer> left = new EnumMap<>(tickets);
+			left.merge(first.ticket(), -1, Integer::sum);
+			for (TicketMove second : singles(graph, colour, first.destination(), left, occupied))
+				moves.add(new DoubleMove(colour, first, second));
+		}
+		return moves;
+	}
+
+	private static Map<Ticket, Integer> tickets(Random random, Colour colour) {
+		Map<Ticket, Integer> tickets = new EnumMap<>(Ticket.class);
+		for (Ticket ticket : Ticket.values()) tickets.put(ticket, random.nextInt(3));
+		if (colour.isDetective()) {
+			tickets.put(DOUBLE, 0);
+			tickets.put(SECRET, 0);
+		}
+		return tickets;
+	}
+
+	private static void assertSameMoves(Set<Move> actual, Set<Move> expected) {
+		assertThat(actual).hasSameSizeAs(expected).containsAll(expected);
+		List<Move> iterated = new ArrayList<>();
+		actual.forEach(iterated::add);
+		assertThat(iterated).hasSize(actual.size()).doesNotHaveDuplicates()
+				.containsExactlyInAnyOrderElementsOf(expected);
+		assertThat(actual).isEqualTo(expected);
+		assertThat(expected).isEqualTo(actual);
+	}
+
+	@Test
+	public void testMatchesExpandedMovesOnStandardMap() throws IOException {
+		Graph<Integer, Transport> graph = StandardGame.standardGraph();
+		DestinationTable table = DestinationTable.of(graph);
+		int nodes = graph.getNodes().size();
+		Random random = new Random(42);
+		MoveList generated = new MoveList();
+		int doubles = 0, secrets = 0, passes = 0;
+		for (int i = 0; i < 600; i++) {
+			int[] locations = new int[COLOURS.length];
+			Set<Integer> taken = new HashSet<>();
+			for (int p = 0; p < locations.length; p++) {
+				do locations[p] = 1 + random.nextInt(nodes);
+				while (!taken.add(locations[p]));
+			}
+			List<Map<Ticket, Integer>> tickets = new ArrayList<>();
+			long[] packed = new long[COLOURS.length];
+			for (int p = 0; p < COLOURS.length; p++) {
+				tickets.add(tickets(random, COLOURS[p]));
+				packed[p] = BitboardState.pack(tickets.get(p));
+			}
+			int player = random.nextInt(COLOURS.length);
+			boolean doubleMoves = player == 0 && random.nextBoolean();
+
+			Set<Integer> occupied = new HashSet<>();
+			for (int p = 1; p < locations.length; p++) occupied.add(locations[p]);
+			occupied.remove(locations[player]);
+			long[] excluded = table.newBitset();
+			for (int node : occupied) NodeBitset.add(excluded, node);
+
+			Set<Move> expected = expanded(graph, COLOURS[player], locations[player],
+					tickets.get(player), occupied, doubleMoves);
+			assertSameMoves(new ValidMoveSet(table, COLOURS[player], locations[player],
+					packed[player], excluded, doubleMoves), expected);
+
+			BitboardState state = new BitboardState(locations, packed, table.words());
+			state.current(player);
+			state.round(doubleMoves ? 0 : ROUNDS - 1);
+			new MoveGenerator(table, COLOURS, ROUNDS).generate(state, generated);
+			assertSameMoves(ValidMoveSet.copyOf(generated), expected);
+
+			for (Move move : expected) {
+				if (move instanceof DoubleMove) doubles++;
+				else if (move instanceof PassMove) passes++;
+				else if (((TicketMove) move).ticket() == SECRET) secrets++;
+			}
+		}
+		assertThat(doubles).isPositive();
+		assertThat(secrets).isPositive();
+		assertThat(passes).isPositive();
+	}
+
+	@Test
+	public void testRejectsMovesOfOtherTurns() {
+		Graph<Integer, Transport> graph = ScotlandYardGraphReader.fromLines(Arrays.asList(
+				"3 3", "1", "2", "3", "1 2 Taxi", "2 3 Taxi", "1 3 Bus"));
+		DestinationTable table = DestinationTable.of(graph);
+		Map<Ticket, Integer> tickets = new EnumMap<>(Ticket.class);
+		for (Ticket ticket : Ticket.values()) tickets.put(ticket, 1);
+		tickets.put(BUS, 0);
+		tickets.put(UNDERGROUND, 0);
+		tickets.put(SECRET, 0);
+		long packed = BitboardState.pack(tickets);
+
+		Set<Move> single = new ValidMoveSet(table, BLACK, 1, packed, table.newBitset(), false);
+		assertThat(single).containsExactly(taxi(BLACK, 2));
+		assertThat(single).doesNotContain(taxi(RED, 2), new TicketMove(BLACK, BUS, 3),
+				x2(BLACK, TAXI, 2, TAXI, 3), pass(BLACK));
+		assertThat(single.contains("taxi")).isFalse();
+
+		Set<Move> twice = new ValidMoveSet(table, BLACK, 1, packed, table.newBitset(), true);
+		// only one taxi ticket, so both legs cannot be taxi
+		assertThat(twice).containsExactly(taxi(BLACK, 2));
+		tickets.put(TAXI, 2);
+		twice = new ValidMoveSet(table, BLACK, 1, BitboardState.pack(tickets),
+				table.newBitset(), true);
+		assertThat(twice).containsExactlyInAnyOrder(taxi(BLACK, 2),
+				x2(BLACK, TAXI, 2, TAXI, 1), x2(BLACK, TAXI, 2, TAXI, 3));
+
+		long[] blocked = table.newBitset();
+		NodeBitset.add(blocked, 2);
+		Set<Move> stuck = new ValidMoveSet(table, RED, 1, packed, blocked, false);
+		assertThat(stuck).containsExactly(pass(RED));
+		assertThat(stuck).doesNotContain(taxi(RED, 2), pass(BLACK));
+	}
+
+}